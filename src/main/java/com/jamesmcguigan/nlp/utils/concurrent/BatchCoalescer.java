@@ -0,0 +1,202 @@
+package com.jamesmcguigan.nlp.utils.concurrent;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+
+/**
+ * Collects concurrently submitted items into batches, trading a bounded latency for throughput
+ * <p/>
+ * A batch is dispatched to the worker pool once it reaches {@code maxBatchSize} items,
+ * or {@code maxDelayMicros} after its first item was submitted, whichever comes first.
+ * Each caller gets its own future; if the batch function throws, every item in the batch fails.
+ * Timers run on a scheduler that may be shared between many coalescers, so no thread is held per instance
+ * @param <I> input item
+ * @param <O> output item
+ */
+public class BatchCoalescer<I, O> implements AutoCloseable {
+    private static final ScheduledExecutorService sharedScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "batch-coalescer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @FunctionalInterface
+    public interface BatchFunction<I, O> {
+        /**
+         * @return one output per input, in the same order
+         */
+        List<O> apply(List<I> batch) throws Exception;
+    }
+
+    private final BatchFunction<I, O>      function;
+    private final int                      maxBatchSize;
+    private final long                     maxDelayMicros;
+    private final Executor                 workers;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong itemCount  = new AtomicLong();
+
+    private List<I>                    items      = new ArrayList<>();
+    private List<CompletableFuture<O>> futures    = new ArrayList<>();
+    private long                       generation = 0;
+    private @Nullable ScheduledFuture<?> timer;
+    private boolean closed = false;
+
+    /**
+     * @param function        scores a whole batch
+     * @param maxBatchSize    dispatch as soon as this many items are waiting
+     * @param maxDelayMicros  maximum time the first item of a batch waits before dispatch
+     * @param workers         pool on which batches are scored
+     */
+    public BatchCoalescer(BatchFunction<I, O> function, int maxBatchSize, long maxDelayMicros, Executor workers) {
+        this(function, maxBatchSize, maxDelayMicros, workers, sharedScheduler);
+    }
+    public BatchCoalescer(
+        BatchFunction<I, O> function, int maxBatchSize, long maxDelayMicros,
+        Executor workers, ScheduledExecutorService scheduler
+    ) {
+        if(!( maxBatchSize >= 1 ))   { throw new IllegalArgumentException("PRECONDITION: maxBatchSize="+maxBatchSize+" >= 1"); }
+        if(!( maxDelayMicros >= 0 )) { throw new IllegalArgumentException("PRECONDITION: maxDelayMicros="+maxDelayMicros+" >= 0"); }
+        this.function       = function;
+        this.maxBatchSize   = maxBatchSize;
+        this.maxDelayMicros = maxDelayMicros;
+        this.workers        = workers;
+        this.scheduler      = scheduler;
+    }
+
+    /**
+     * @return a fixed daemon pool suitable for scoring batches
+     */
+    public static ExecutorService newWorkerPool(int threads, String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public long getBatchCount() { return this.batchCount.get(); }
+    public long getItemCount()  { return this.itemCount.get();  }
+    public synchronized int getPendingCount() { return this.items.size(); }
+
+
+    //***** Submit *****//
+
+    public CompletableFuture<O> submit(I item) {
+        CompletableFuture<O> future = this.trySubmit(item);
+        return ( future != null ) ? future : CompletableFuture.failedFuture(new IllegalStateException("BatchCoalescer is closed"));
+    }
+
+    /**
+     * @return future for the item, or null if closed
+     */
+    public @Nullable CompletableFuture<O> trySubmit(I item) {
+        CompletableFuture<O> future = new CompletableFuture<>();
+        Batch<I, O> full = null;
+        synchronized( this ) {
+            if( this.closed ) { return null; }
+            this.items.add(item);
+            this.futures.add(future);
+            if( this.items.size() >= this.maxBatchSize ) {
+                full = this.take();
+            } else if( this.items.size() == 1 ) {
+                long scheduled = this.generation;
+                this.timer = this.scheduler.schedule(() -> this.flush(scheduled), this.maxDelayMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+        if( full != null ) { this.dispatch(full); }
+        return future;
+    }
+
+    public List<CompletableFuture<O>> submitAll(Collection<? extends I> inputs) {
+        return inputs.stream().map(this::submit).collect(Collectors.toList());
+    }
+
+    /**
+     * Dispatches any waiting items immediately
+     */
+    public void flush() {
+        Batch<I, O> batch;
+        synchronized( this ) { batch = this.items.isEmpty() ? null : this.take(); }
+        if( batch != null ) { this.dispatch(batch); }
+    }
+
+    /**
+     * Timer callback, ignored if the batch it was scheduled for has already been dispatched
+     */
+    private void flush(long scheduled) {
+        Batch<I, O> batch;
+        synchronized( this ) {
+            if( scheduled != this.generation || this.items.isEmpty() ) { return; }
+            batch = this.take();
+        }
+        this.dispatch(batch);
+    }
+
+
+    //***** Dispatch *****//
+
+    private static class Batch<I, O> {
+        private final List<I>                    items;
+        private final List<CompletableFuture<O>> futures;
+        Batch(List<I> items, List<CompletableFuture<O>> futures) {
+            this.items   = items;
+            this.futures = futures;
+        }
+    }
+
+    private Batch<I, O> take() {
+        Batch<I, O> batch = new Batch<>(this.items, this.futures);
+        this.items   = new ArrayList<>(this.maxBatchSize);
+        this.futures = new ArrayList<>(this.maxBatchSize);
+        this.generation++;
+        if( this.timer != null ) { this.timer.cancel(false); this.timer = null; }
+        return batch;
+    }
+
+    private void dispatch(Batch<I, O> batch) {
+        try {
+            this.workers.execute(() -> this.score(batch));
+        } catch( RejectedExecutionException e ) {
+            batch.futures.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private void score(Batch<I, O> batch) {
+        this.batchCount.incrementAndGet();
+        this.itemCount.addAndGet(batch.items.size());
+        try {
+            List<O> outputs = this.function.apply(batch.items);
+            if( outputs == null || outputs.size() != batch.items.size() ) {
+                throw new IllegalStateException("BatchFunction returned "
+                    + (outputs == null ? "null" : outputs.size()) + " outputs for " + batch.items.size() + " inputs");
+            }
+            for( int i = 0; i < outputs.size(); i++ ) {
+                batch.futures.get(i).complete(outputs.get(i));
+            }
+        } catch( Exception e ) {
+            batch.futures.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Dispatches waiting items, then rejects further submissions
+     */
+    @Override
+    public void close() {
+        Batch<I, O> batch;
+        synchronized( this ) {
+            this.closed = true;
+            batch = this.items.isEmpty() ? null : this.take();
+        }
+        if( batch != null ) { this.dispatch(batch); }
+    }
+}
@@ -0,0 +1,120 @@
+package com.jamesmcguigan.nlp.utils.concurrent;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Shared executor for blocking Elasticsearch I/O, kept separate from the ForkJoinPool used by parallel streams
+ * <p/>
+ * Selected by the {@code nlp.io.executor} system property, or replaced at runtime with {@code setExecutor()}:
+ * <pre>
+ *     platform  cached pool of daemon platform threads (default)
+ *     virtual   one virtual thread per task, on JDKs that support them (falls back to platform)
+ *     common    ForkJoinPool.commonPool(), as used by CompletableFuture.runAsync()
+ * </pre>
+ * Virtual threads are created via reflection, as the project still compiles for Java 15
+ */
+public final class IOExecutors {
+    private static final Logger logger = LogManager.getLogger();
+    public static final String PROPERTY = "nlp.io.executor";
+
+    public enum Mode { platform, virtual, common }
+
+    private static volatile ExecutorService executor;
+
+    private IOExecutors() {}
+
+
+    //***** Shared Instance *****//
+
+    /**
+     * @return shared executor for blocking I/O, created on first use from the {@code nlp.io.executor} property
+     */
+    public static ExecutorService getExecutor() {
+        if( executor == null ) {
+            synchronized( IOExecutors.class ) {
+                if( executor == null ) { executor = newExecutor(getMode(), "es-io"); }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Replaces the shared executor for all subsequently created iterators and queues
+     * The previous executor is not shut down, as it may still have tasks in flight
+     */
+    public static synchronized void setExecutor(ExecutorService replacement) {
+        executor = replacement;
+    }
+
+    public static Mode getMode() {
+        String value = System.getProperty(PROPERTY, Mode.platform.name()).trim().toLowerCase(Locale.ROOT);
+        try {
+            return Mode.valueOf(value);
+        } catch( IllegalArgumentException e ) {
+            logger.warn("{}={} is not one of platform|virtual|common, using platform", PROPERTY, value);
+            return Mode.platform;
+        }
+    }
+
+
+    //***** Factories *****//
+
+    public static ExecutorService newExecutor(Mode mode, String name) {
+        switch( mode ) {
+            case virtual:
+                if( isVirtualThreadSupported() ) { return newVirtualThreadPerTaskExecutor(); }
+                logger.warn("{}=virtual requires a JDK with virtual threads, using platform threads", PROPERTY);
+                return newPlatformExecutor(name);
+            case common:
+                return ForkJoinPool.commonPool();
+            case platform:
+            default:
+                return newPlatformExecutor(name);
+        }
+    }
+
+    /**
+     * Unbounded cached pool: I/O concurrency is limited by the callers (request sizes and in-flight limits),
+     * and idle threads are released after 60 seconds
+     */
+    public static ExecutorService newPlatformExecutor(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return getVirtualThreadFactoryMethod() != null;
+    }
+
+    /**
+     * @throws UnsupportedOperationException on JDKs without virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        Method method = getVirtualThreadFactoryMethod();
+        if( method == null ) { throw new UnsupportedOperationException("virtual threads are not supported by this JDK"); }
+        try {
+            return (ExecutorService) method.invoke(null);
+        } catch( ReflectiveOperationException e ) {
+            throw new UnsupportedOperationException("unable to create virtual thread executor", e);
+        }
+    }
+
+    private static Method getVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch( NoSuchMethodException e ) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.jamesmcguigan.nlp.utils.data;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.jamesmcguigan.nlp.utils.data.OpenAddressing.*;
+
+
+/**
+ * Vocabulary of dense int ids [0, size), for converting token streams into int arrays
+ * <p/>
+ * Terms are stored as UTF-8 in one contiguous byte arena, indexed by an open-addressing hash table of ids,
+ * so there is no per-term object overhead and lookups compare bytes in place without allocating.
+ * The arena can be kept off-heap ({@code direct}), or memory-mapped read-only from a file written by {@code save()}.
+ * <p/>
+ * Not thread-safe for writes. Once built, concurrent lookups are safe as long as no more terms are added.
+ * <pre>
+ *     file: MAGIC | FORMAT_VERSION | size | arena length | hashes[size] | offsets[size + 1] | counts[size] | arena
+ * </pre>
+ */
+public class IndexedVocabulary {
+    public static final int MISSING = -1;
+
+    static final int MAGIC          = 0x4e4c5056;  // "NLPV"
+    static final int FORMAT_VERSION = 1;
+
+    private final boolean direct;
+    private ByteBuffer arena;      // UTF-8 bytes of all terms, in id order
+    private int[]      offsets;    // id -> arena start, offsets[size] = arena length
+    private int[]      hashes;     // id -> String.hashCode()
+    private long[]     counts;     // id -> frequency
+    private int[]      table;      // slot -> id, linear probing
+    private int size = 0;
+
+    public IndexedVocabulary() { this(1024, false); }
+
+    /**
+     * @param capacity  expected number of terms
+     * @param direct    store the byte arena off-heap
+     */
+    public IndexedVocabulary(int capacity, boolean direct) {
+        this(capacity, capacity * 8, direct);
+    }
+    private IndexedVocabulary(int capacity, int arenaCapacity, boolean direct) {
+        capacity     = Math.max(16, capacity);
+        this.direct  = direct;
+        this.arena   = allocate(arenaCapacity, direct);
+        this.offsets = new int[capacity + 1];
+        this.hashes  = new int[capacity];
+        this.counts  = new long[capacity];
+        this.table   = newTable(tableSizeFor(capacity), MISSING);
+    }
+
+    public int     size()     { return this.size; }
+    public boolean isDirect() { return this.arena.isDirect(); }
+
+    /**
+     * @return bytes used by the term arena, excluding the index arrays
+     */
+    public int getArenaSize() { return this.offsets[this.size]; }
+
+
+    //***** Lookup *****//
+
+    /**
+     * @return id of the term, or {@code MISSING}
+     */
+    public int getId(String term) {
+        int hash = term.hashCode();
+        int mask = this.table.length - 1;
+        for( int slot = mix(hash) & mask; ; slot = (slot + 1) & mask ) {
+            int id = this.table[slot];
+            if( id == MISSING ) { return MISSING; }
+            if( this.hashes[id] == hash && this.matches(id, term) ) { return id; }
+        }
+    }
+
+    public boolean contains(String term) { return this.getId(term) != MISSING; }
+
+    public String getTerm(int id) {
+        if(!( 0 <= id && id < this.size )) { throw new IllegalArgumentException("PRECONDITION: 0 <= id="+id+" < size="+this.size); }
+        byte[] bytes = new byte[this.offsets[id + 1] - this.offsets[id]];
+        ByteBuffer view = this.arena.duplicate();
+        view.position(this.offsets[id]);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getCount(int id) {
+        if(!( 0 <= id && id < this.size )) { throw new IllegalArgumentException("PRECONDITION: 0 <= id="+id+" < size="+this.size); }
+        return this.counts[id];
+    }
+    public long getCount(String term) {
+        int id = this.getId(term);
+        return ( id != MISSING ) ? this.counts[id] : 0;
+    }
+
+    /**
+     * @param tokens  token stream
+     * @return        ids of known tokens in order, unknown tokens are skipped
+     */
+    public int[] encode(String[] tokens) {
+        int[] ids   = new int[tokens.length];
+        int   count = 0;
+        for( String token : tokens ) {
+            int id = this.getId(token);
+            if( id != MISSING ) { ids[count++] = id; }
+        }
+        return ( count == ids.length ) ? ids : Arrays.copyOf(ids, count);
+    }
+
+    public String[] decode(int[] ids) {
+        String[] terms = new String[ids.length];
+        for( int i = 0; i < ids.length; i++ ) { terms[i] = this.getTerm(ids[i]); }
+        return terms;
+    }
+
+
+    //***** Building *****//
+
+    /**
+     * @return id of the term, assigning a new id if absent, and increments its count by one
+     */
+    public int add(String term) { return this.add(term, 1); }
+
+    /**
+     * @return id of the term, assigning a new id if absent
+     */
+    public int add(String term, long count) {
+        int hash = term.hashCode();
+        int mask = this.table.length - 1;
+        int slot = mix(hash) & mask;
+        for( ; ; slot = (slot + 1) & mask ) {
+            int id = this.table[slot];
+            if( id == MISSING ) { break; }
+            if( this.hashes[id] == hash && this.matches(id, term) ) {
+                this.counts[id] += count;
+                return id;
+            }
+        }
+        byte[] bytes = term.getBytes(StandardCharsets.UTF_8);
+        if( this.size == this.hashes.length ) { this.growIndex(); }
+        this.ensureArena(bytes.length);
+
+        int id    = this.size++;
+        int start = this.offsets[id];
+        ByteBuffer view = this.arena.duplicate();
+        view.position(start);
+        view.put(bytes);
+        this.offsets[id + 1] = start + bytes.length;
+        this.hashes[id]      = hash;
+        this.counts[id]      = count;
+        this.table[slot]     = id;
+        if( isFull(this.size, this.table.length) ) { this.rehash(this.table.length * 2); }
+        return id;
+    }
+
+    /**
+     * Adds and counts every token
+     * @return ids for each token, in order
+     */
+    public int[] addAll(String[] tokens) {
+        int[] ids = new int[tokens.length];
+        for( int i = 0; i < tokens.length; i++ ) { ids[i] = this.add(tokens[i]); }
+        return ids;
+    }
+
+    /**
+     * Adds the terms and counts of another vocabulary, ids in this vocabulary are unchanged
+     * @return this
+     */
+    public IndexedVocabulary merge(IndexedVocabulary other) {
+        for( int id = 0; id < other.size; id++ ) { this.add(other.getTerm(id), other.counts[id]); }
+        return this;
+    }
+
+    /**
+     * @param minCount  minimum frequency to keep
+     * @return          new vocabulary of the remaining terms, renumbered by descending count
+     */
+    public IndexedVocabulary prune(long minCount) {
+        int[] ids = IntStream.range(0, this.size)
+            .filter(id -> this.counts[id] >= minCount)
+            .boxed()
+            .sorted((a, b) -> ( this.counts[a] != this.counts[b] ) ? Long.compare(this.counts[b], this.counts[a]) : Integer.compare(a, b))
+            .mapToInt(Integer::intValue)
+            .toArray()
+        ;
+        IndexedVocabulary output = new IndexedVocabulary(ids.length, this.direct);
+        for( int id : ids ) { output.add(this.getTerm(id), this.counts[id]); }
+        return output;
+    }
+
+
+    //***** Factories *****//
+
+    /**
+     * Counts all tokens in parallel, each thread building its own vocabulary which are then merged
+     */
+    public static IndexedVocabulary fromTweets(List<Tweet> tweets) {
+        return tweets.parallelStream()
+            .map(Tweet::tokenize)
+            .collect(IndexedVocabulary::new, IndexedVocabulary::addAll, IndexedVocabulary::merge)
+        ;
+    }
+
+
+    //***** Persistence *****//
+
+    /**
+     * Writes to a temporary file then atomically replaces the destination
+     */
+    public void save(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try( DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))) ) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(this.size);
+                output.writeInt(this.getArenaSize());
+                for( int id = 0; id <  this.size; id++ ) { output.writeInt(this.hashes[id]);   }
+                for( int id = 0; id <= this.size; id++ ) { output.writeInt(this.offsets[id]);  }
+                for( int id = 0; id <  this.size; id++ ) { output.writeLong(this.counts[id]);  }
+                ByteBuffer view = this.arena.duplicate();
+                view.position(0).limit(this.getArenaSize());
+                byte[] buffer = new byte[8192];
+                while( view.hasRemaining() ) {
+                    int length = Math.min(buffer.length, view.remaining());
+                    view.get(buffer, 0, length);
+                    output.write(buffer, 0, length);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Memory-maps the term arena read-only, only the index arrays are copied onto the heap
+     * Adding new terms copies the arena into a writable buffer first
+     */
+    public static IndexedVocabulary load(Path path) throws IOException {
+        try( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if( buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION ) {
+                throw new IOException("Invalid vocabulary file header: " + path);
+            }
+            int size      = buffer.getInt();
+            int arenaSize = buffer.getInt();
+
+            IndexedVocabulary vocabulary = new IndexedVocabulary(size, 0, true);
+            buffer.asIntBuffer().get(vocabulary.hashes, 0, size);
+            buffer.position(buffer.position() + size * Integer.BYTES);
+            buffer.asIntBuffer().get(vocabulary.offsets, 0, size + 1);
+            buffer.position(buffer.position() + (size + 1) * Integer.BYTES);
+            buffer.asLongBuffer().get(vocabulary.counts, 0, size);
+            buffer.position(buffer.position() + size * Long.BYTES);
+            if( buffer.remaining() != arenaSize ) {
+                throw new IOException("Truncated vocabulary file: " + path);
+            }
+            vocabulary.arena = buffer.slice();
+            vocabulary.size  = size;
+            vocabulary.rehash(vocabulary.table.length);
+            return vocabulary;
+        }
+    }
+
+
+    //***** Storage *****//
+
+    /**
+     * Compares the UTF-8 bytes of a stored term against a String, without allocating
+     * Unpaired surrogates are compared as {@code '?'}, as they were encoded by {@code String.getBytes(UTF_8)}
+     */
+    private boolean matches(int id, String term) {
+        int end    = this.offsets[id + 1];
+        int length = term.length();
+        int p = this.offsets[id];
+        int i = 0;
+        while( p < end && i < length ) {
+            char c        = term.charAt(i);
+            int  expected = c;
+            int  chars    = 1;
+            if( Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(term.charAt(i + 1)) ) {
+                expected = Character.toCodePoint(c, term.charAt(i + 1));
+                chars    = 2;
+            } else if( Character.isSurrogate(c) ) {
+                expected = '?';
+            }
+
+            int b = this.arena.get(p) & 0xFF;
+            if( b < 0x80 ) {
+                if( expected != b ) { return false; }
+                p++;
+                i += chars;
+                continue;
+            }
+            int width, codePoint;
+            if(      (b & 0xE0) == 0xC0 ) { width = 2; codePoint = b & 0x1F; }
+            else if( (b & 0xF0) == 0xE0 ) { width = 3; codePoint = b & 0x0F; }
+            else                          { width = 4; codePoint = b & 0x07; }
+            if( p + width > end ) { return false; }
+            for( int k = 1; k < width; k++ ) { codePoint = (codePoint << 6) | (this.arena.get(p + k) & 0x3F); }
+            if( expected != codePoint ) { return false; }
+            p += width;
+            i += chars;
+        }
+        return p == end && i == length;
+    }
+
+    private void ensureArena(int length) {
+        int used     = this.getArenaSize();
+        int required = used + length;
+        if( required <= this.arena.capacity() && !this.arena.isReadOnly() ) { return; }
+        ByteBuffer resized = allocate(Math.max(required, this.arena.capacity() * 2), this.direct);
+        ByteBuffer source  = this.arena.duplicate();
+        source.position(0).limit(used);
+        resized.put(source);
+        this.arena = resized;
+    }
+
+    private void growIndex() {
+        int capacity = this.hashes.length * 2;
+        this.offsets = Arrays.copyOf(this.offsets, capacity + 1);
+        this.hashes  = Arrays.copyOf(this.hashes,  capacity);
+        this.counts  = Arrays.copyOf(this.counts,  capacity);
+    }
+
+    private void rehash(int tableSize) {
+        this.table = newTable(tableSize, MISSING);
+        int mask = tableSize - 1;
+        for( int id = 0; id < this.size; id++ ) {
+            int slot = mix(this.hashes[id]) & mask;
+            while( this.table[slot] != MISSING ) { slot = (slot + 1) & mask; }
+            this.table[slot] = id;
+        }
+    }
+
+    private static ByteBuffer allocate(int capacity, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+}
@@ -0,0 +1,52 @@
+package com.jamesmcguigan.nlp.utils.data;
+
+import java.util.Arrays;
+
+
+/**
+ * Shared sizing and hashing for the primitive open-addressing tables, which use linear probing over
+ * power-of-two sized arrays, see {@link IndexedVocabulary} and {@code NaiveBayesCounts}
+ */
+public final class OpenAddressing {
+    public static final float LOAD_FACTOR = 0.5f;
+
+    private OpenAddressing() {}
+
+    /**
+     * @return power-of-two table size that holds {@code capacity} entries below {@code LOAD_FACTOR}
+     */
+    public static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(2, (int) (capacity / LOAD_FACTOR) - 1)) << 1;
+    }
+
+    /**
+     * @return true once {@code size} entries exceed {@code LOAD_FACTOR}, and the table should be doubled
+     */
+    public static boolean isFull(int size, int tableSize) {
+        return size > tableSize * LOAD_FACTOR;
+    }
+
+    public static int[] newTable(int size, int empty) {
+        int[] table = new int[size];
+        Arrays.fill(table, empty);
+        return table;
+    }
+
+    public static long[] newTable(int size, long empty) {
+        long[] table = new long[size];
+        Arrays.fill(table, empty);
+        return table;
+    }
+
+    /** Spreads String.hashCode() bits, which are poorly distributed in the low bits for short strings */
+    public static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /** Folds a 64-bit key into a well-distributed 32-bit slot hash */
+    public static int mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -4,7 +4,9 @@ import org.elasticsearch.client.core.TermVectorsResponse;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -66,4 +68,18 @@ public class TermVectorTokens {
         ;
         return tokens;
     }
+
+    /**
+     * @return term to {@code getTermFreq()}, summed over all fields, in response order
+     */
+    public Map<String, Integer> getTermFrequencies() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for( TermVectorsResponse.TermVector termVector : response.getTermVectorsList() ) {
+            if( termVector.getTerms() == null ) { continue; }
+            for( TermVectorsResponse.TermVector.Term term : termVector.getTerms() ) {
+                counts.merge(term.getTerm(), term.getTermFreq(), Integer::sum);
+            }
+        }
+        return counts;
+    }
 }
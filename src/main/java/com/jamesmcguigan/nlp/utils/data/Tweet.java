@@ -15,7 +15,7 @@ public class Tweet {
     public final String text;
     public final String target;
 
-    private final ATokenizer tokenizer = NLPTokenizer.getDefaultTokenizer();
+    private static final ATokenizer tokenizer = NLPTokenizer.getSharedTokenizer();
 
     public Tweet(int id, String keyword, String location, String text, @Nullable String target) {
         this.id       = id;
@@ -42,18 +42,18 @@ public class Tweet {
                 // this.location,
                 this.text
             )
-            .map(this.tokenizer::tokenize)
+            .map(tokenizer::tokenize)
             .flatMap(Stream::of)
             .toArray(String[]::new)
         ;
     }
 
     public DocumentSample toDocumentSampleKeyword() {
-        var tokens = this.tokenizer.tokenize(this.text);
+        var tokens = tokenizer.tokenize(this.text);
         return new DocumentSample(this.keyword, tokens);
     }
     public DocumentSample toDocumentSampleTarget() {
-        String[] tokens = this.tokenizer.tokenize(this.text);
+        String[] tokens = tokenizer.tokenize(this.text);
         return new DocumentSample(this.target, tokens);
     }
 }
@@ -1,51 +1,58 @@
 package com.jamesmcguigan.nlp.utils.data;
 
+import com.jamesmcguigan.nlp.utils.iterators.csv.CSVSpliterator;
+import com.jamesmcguigan.nlp.utils.tokenize.NLPTokenizer;
 import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.logging.log4j.Level.INFO;
 
 @SuppressWarnings({"java:S1192"})
 public class Tweets {
     private static final Logger logger = LogManager.getLogger();
 
+    /**
+     * Memory-maps the file and parses it in parallel, split at record boundaries
+     * Tweets share a single thread-local tokenizer pool, see {@link NLPTokenizer#getSharedTokenizer()}
+     *
+     * @param csvFile  CSV with header: id, keyword, location, text, [target]
+     * @return         tweets in file order, or an empty list on IOException
+     */
     public static List<Tweet> fromCSV(Path csvFile) {
-        List<Tweet> tweets = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(csvFile, UTF_8)) {
-            CSVFormat csv = CSVFormat.RFC4180.withHeader();
-            try( CSVParser parser = csv.parse(reader) ) {
-                Iterator<CSVRecord> it = parser.iterator();
-                it.forEachRemaining((CSVRecord row) -> {
-                    int id          = Integer.parseInt(row.get("id"));
-                    String keyword  = row.get("keyword");
-                    String location = row.get("location");
-                    String text     = row.get("text");
-                    String target   = row.isMapped("target")
-                            ? row.get("target")
-                            : null;
-                    Tweet tweet = new Tweet(id, keyword, location, text, target);
-                    tweets.add(tweet);
-                });
-            }
-        } catch (IOException e) {
+        try( CSVSpliterator spliterator = CSVSpliterator.open(csvFile) ) {
+            Map<String, Integer> header = spliterator.getHeaderMap();
+            return spliterator.stream(true)
+                .map(row -> Tweets.fromRow(header, row))
+                .collect(Collectors.toList())
+            ;
+        } catch( IOException | UncheckedIOException e ) {
             logger.error(e);
         }
-        return tweets;
+        return new ArrayList<>();
+    }
+
+    private static Tweet fromRow(Map<String, Integer> header, String[] row) {
+        int id          = Integer.parseInt(row[header.get("id")]);
+        String keyword  = row[header.get("keyword")];
+        String location = row[header.get("location")];
+        String text     = row[header.get("text")];
+        String target   = header.containsKey("target")
+                ? row[header.get("target")]
+                : null;
+        return new Tweet(id, keyword, location, text, target);
     }
 
     public static void toSubmissionCSV(Path csvFile, List<Tweet> tweets, List<String> predictions) {
@@ -33,7 +33,7 @@ class Vocabulary extends TreeSet<String> {
     public static Vocabulary fromTweet(Tweet tweet)     { return Vocabulary.fromTweets(Collections.singletonList(tweet)); }
     public static Vocabulary fromTweets(Tweet...tweets) { return Vocabulary.fromTweets(Arrays.asList(tweets)); }
     public static Vocabulary fromTweets(List<Tweet> tweets ) {
-        var words = tweets.stream()
+        var words = tweets.parallelStream()
                 .map(Tweet::tokenize)
                 .flatMap(Stream::of)
                 .distinct()
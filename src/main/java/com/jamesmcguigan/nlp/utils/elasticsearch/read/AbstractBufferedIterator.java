@@ -1,5 +1,6 @@
 package com.jamesmcguigan.nlp.utils.elasticsearch.read;
 
+import com.jamesmcguigan.nlp.utils.concurrent.IOExecutors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -11,6 +12,7 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 
@@ -37,6 +39,7 @@ public abstract class AbstractBufferedIterator<T, B> implements Iterator<T> {
 
     protected final Deque<B>          buffer = new ConcurrentLinkedDeque<>();
     protected CompletableFuture<Void> future = CompletableFuture.completedFuture(null);  // Semaphore for async promises
+    protected Executor executor = IOExecutors.getExecutor();  // Blocking prefetch requests, not the ForkJoinPool
 
 
     //***** Constructors *****//
@@ -65,9 +68,11 @@ public abstract class AbstractBufferedIterator<T, B> implements Iterator<T> {
     public boolean hasMoreRequests()         { return this.getTotalHits() - this.pos - this.buffer.size() > 0; }
     public int     getRequestSize()          { return this.requestSize; }
     public long    getTTL()                  { return this.ttl;  }
+    public Executor getExecutor()            { return this.executor; }
 
     public void    setRequestSize(int size)  { this.requestSize = size; }
     public void    setTTL(long ttl)          { this.ttl  = ttl;  }
+    public void    setExecutor(Executor executor) { this.executor = executor; }
 
 
     //***** Buffer functions *****//
@@ -98,7 +103,7 @@ public abstract class AbstractBufferedIterator<T, B> implements Iterator<T> {
     protected synchronized void prefetchBuffer() {
         // NOTE: synchronized due to this.future.isDone() - only have one request in flight
         if( this.buffer.size() < this.getRequestSize() && this.future.isDone() && this.hasMoreRequests() ) {
-            this.future = CompletableFuture.runAsync(() -> this.populateBuffer(true));
+            this.future = CompletableFuture.runAsync(() -> this.populateBuffer(true), this.executor);
         }
     }
 
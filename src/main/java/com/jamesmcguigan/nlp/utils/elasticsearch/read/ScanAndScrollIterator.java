@@ -8,6 +8,7 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.document.DocumentField;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.SearchHit;
@@ -17,8 +18,7 @@ import org.json.JSONObject;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 
 /**
@@ -32,7 +32,9 @@ import java.util.List;
 public class ScanAndScrollIterator<T> extends AbstractBufferedIterator<T, SearchHit> {
     private final String index;
     @Nullable private final QueryBuilder query;
-    @Nullable private final String[] fields;
+    @Nullable private String[] fields;
+    private List<String> docValueFields = Collections.emptyList();
+    private boolean seqNoAndPrimaryTerm = false;
 
     protected int  defaultRequestSize = 1000;  // Number of items to load in buffer, pre-fetching may double this
     protected long defaultTtl         = 360;   // API timeout in seconds
@@ -61,6 +63,30 @@ public class ScanAndScrollIterator<T> extends AbstractBufferedIterator<T, Search
         this.reset();
     }
 
+    /**
+     * Include {@code _seq_no} and {@code _primary_term} in each SearchHit, see {@code SearchHit.getSeqNo()}
+     */
+    public ScanAndScrollIterator<T> setSeqNoAndPrimaryTerm(boolean seqNoAndPrimaryTerm) {
+        this.seqNoAndPrimaryTerm = seqNoAndPrimaryTerm;
+        return this;
+    }
+
+    /**
+     * Read fields from columnar doc values rather than {@code _source}, only valid for keyword/numeric fields
+     * Values are removed from the {@code _source} include list and merged back into the document on {@code cast()}
+     */
+    public ScanAndScrollIterator<T> setDocValueFields(List<String> docValueFields) {
+        this.docValueFields = new ArrayList<>(docValueFields);
+        if( this.fields != null ) {
+            this.fields = Arrays.stream(this.fields)
+                .filter(field -> !this.docValueFields.contains(field))
+                .toArray(String[]::new)
+            ;
+        }
+        return this;
+    }
+    public List<String> getDocValueFields() { return Collections.unmodifiableList(this.docValueFields); }
+
     @Override
     public void reset() {
         super.reset();
@@ -94,8 +120,14 @@ public class ScanAndScrollIterator<T> extends AbstractBufferedIterator<T, Search
         SearchRequest searchRequest = new SearchRequest(this.index);
         SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
         searchSourceBuilder.query(this.query);
-        searchSourceBuilder.fetchSource(this.fields, null);
+        if( this.fields != null && this.fields.length == 0 ) {
+            searchSourceBuilder.fetchSource(false);  // all requested fields are docvalue_fields
+        } else {
+            searchSourceBuilder.fetchSource(this.fields, null);
+        }
+        this.docValueFields.forEach(searchSourceBuilder::docValueField);
         searchSourceBuilder.size(this.requestSize);
+        searchSourceBuilder.seqNoAndPrimaryTerm(this.seqNoAndPrimaryTerm);
 
         searchRequest.source(searchSourceBuilder);
         searchRequest.scroll(TimeValue.timeValueSeconds(this.ttl));
@@ -115,7 +147,7 @@ public class ScanAndScrollIterator<T> extends AbstractBufferedIterator<T, Search
             item = (T) bufferItem;
         }
         else {
-            String json = bufferItem.getSourceAsString();
+            String json = this.getSourceAsString(bufferItem);
             if( this.type.isAssignableFrom( String.class ) ) {
                 item = (T) json;
             }
@@ -128,4 +160,19 @@ public class ScanAndScrollIterator<T> extends AbstractBufferedIterator<T, Search
         }
         return item;
     }
+
+    /**
+     * @return {@code _source} json with any {@code docvalue_fields} merged in as top level keys
+     */
+    protected String getSourceAsString(SearchHit hit) {
+        if( this.docValueFields.isEmpty() ) { return hit.getSourceAsString(); }
+
+        Map<String, Object> source = hit.hasSource() ? hit.getSourceAsMap() : new HashMap<>();
+        for( String field : this.docValueFields ) {
+            DocumentField values = hit.field(field);
+            if( values == null || values.getValues().isEmpty() ) { continue; }
+            source.put(field, values.getValues().size() == 1 ? values.getValue() : values.getValues());
+        }
+        return new Gson().toJson(source);
+    }
 }
@@ -0,0 +1,113 @@
+package com.jamesmcguigan.nlp.utils.elasticsearch.read;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.elasticsearch.client.core.TermVectorsResponse;
+import org.elasticsearch.client.core.TermVectorsResponse.TermVector;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+
+/**
+ * Derives term vectors client-side from {@code _source}, avoiding the {@code _mtermvectors} round-trip
+ * <p/>
+ * The default analyzer reproduces the Elasticsearch {@code standard} analyzer (no stopwords).
+ * Term statistics ({@code doc_freq}, {@code ttf}) and field statistics are not available client-side,
+ * so are returned as null
+ */
+public class SourceTermVectors {
+    public static final String TYPE = "_doc";
+    public static final int POSITION_INCREMENT_GAP = 100;  // Elasticsearch default between values of a text field
+
+    private final String       index;
+    private final List<String> fields;
+    private final Analyzer     analyzer;
+    private boolean tokens = true;  // positions and offsets
+
+    public SourceTermVectors(String index, List<String> fields) {
+        this(index, fields, new StandardAnalyzer(CharArraySet.EMPTY_SET));
+    }
+    public SourceTermVectors(String index, List<String> fields, Analyzer analyzer) {
+        this.index    = index;
+        this.fields   = new ArrayList<>(fields);
+        this.analyzer = analyzer;
+    }
+
+    public Analyzer getAnalyzer() { return this.analyzer; }
+
+    /**
+     * @param tokens  include positions and offsets for each term, false for term counts only
+     */
+    public SourceTermVectors setTokens(boolean tokens) { this.tokens = tokens; return this; }
+
+
+    /**
+     * @param source  document {@code _source}, dotted field names are resolved as nested objects
+     * @return        term vectors for each configured field present in the source, terms in sorted order
+     */
+    public TermVectorsResponse getTermVectors(String id, @Nullable Map<String, Object> source) {
+        List<TermVector> termVectors = new ArrayList<>();
+        for( String field : this.fields ) {
+            List<String> values = getValues(source, field);
+            if( values.isEmpty() ) { continue; }
+            termVectors.add(new TermVector(field, null, this.analyze(field, values)));
+        }
+        return new TermVectorsResponse(this.index, TYPE, id, -1, source != null, 0, termVectors);
+    }
+
+    private List<TermVector.Term> analyze(String field, List<String> values) {
+        Map<String, List<TermVector.Token>> tokens = new TreeMap<>();  // _mtermvectors returns terms sorted
+        int position = -1;
+        int offset   = 0;
+        for( String value : values ) {
+            try( TokenStream stream = this.analyzer.tokenStream(field, value) ) {
+                CharTermAttribute          term      = stream.addAttribute(CharTermAttribute.class);
+                OffsetAttribute            offsets   = stream.addAttribute(OffsetAttribute.class);
+                PositionIncrementAttribute increment = stream.addAttribute(PositionIncrementAttribute.class);
+                stream.reset();
+                while( stream.incrementToken() ) {
+                    position += increment.getPositionIncrement();
+                    tokens.computeIfAbsent(term.toString(), k -> new ArrayList<>()).add(new TermVector.Token(
+                        offset + offsets.startOffset(), offset + offsets.endOffset(), position, null
+                    ));
+                }
+                stream.end();
+                position += increment.getPositionIncrement() + POSITION_INCREMENT_GAP;
+                offset   += offsets.endOffset() + this.analyzer.getOffsetGap(field);
+            } catch( IOException e ) {
+                throw new UncheckedIOException(e);  // StringReader does not throw
+            }
+        }
+        List<TermVector.Term> terms = new ArrayList<>(tokens.size());
+        tokens.forEach((term, termTokens) -> terms.add(new TermVector.Term(
+            term, termTokens.size(), null, null, null, this.tokens ? termTokens : null
+        )));
+        return terms;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> getValues(@Nullable Map<String, Object> source, String field) {
+        Object value = source;
+        for( String key : field.split("\\.") ) {
+            if( !(value instanceof Map) ) { return Collections.emptyList(); }
+            value = ((Map<String, Object>) value).get(key);
+        }
+        if( value == null ) { return Collections.emptyList(); }
+        if( value instanceof Collection ) {
+            List<String> values = new ArrayList<>();
+            for( Object item : (Collection<Object>) value ) {
+                if( item != null ) { values.add(item.toString()); }
+            }
+            return values;
+        }
+        return Collections.singletonList(value.toString());
+    }
+}
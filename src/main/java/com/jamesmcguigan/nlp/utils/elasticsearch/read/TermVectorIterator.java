@@ -3,15 +3,32 @@ package com.jamesmcguigan.nlp.utils.elasticsearch.read;
 import com.jamesmcguigan.nlp.utils.data.TermVectorDocTokens;
 import com.jamesmcguigan.nlp.utils.data.TermVectorTokens;
 import com.jamesmcguigan.nlp.utils.elasticsearch.ESClient;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.analysis.Analyzer;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.core.TermVectorsResponse;
+import org.elasticsearch.client.indices.GetMappingsRequest;
+import org.elasticsearch.cluster.metadata.MappingMetadata;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.SearchHit;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.singletonList;
@@ -25,17 +42,44 @@ import static java.util.Collections.singletonList;
  * Performs synchronous HTTP request on first iteration,
  * then attempts to asynchronously keep the buffer populated with at least {@code bufferSize} entries
  * <p/>
+ * {@code setParallelism(n)} enables pipelined mode: ids are scrolled ahead, and up to {@code n} smaller
+ * {@code _mtermvectors} batches of {@code batchSize} ids are kept in flight on the {@code IOExecutors} executor.
+ * Batches are returned in scroll order, or as each completes if {@code setOrdered(false)}
+ * <p/>
+ * {@code setSource(Source.source)} skips {@code _mtermvectors} entirely: the scroll fetches the fields from
+ * {@code _source} and term vectors are derived client-side by {@link SourceTermVectors}.
+ * {@code Source.auto} reads the index mapping and picks {@code source} unless a field stores term vectors
+ * (so {@code _mtermvectors} is a cheap lookup) or uses a custom analyzer that cannot be reproduced locally
+ * <p/>
+ *
+ * By default the {@code _mtermvectors} request is projected to the cast type, see {@code TermVectorQuery.setProjection()}
+ * <p/>
  *
  * @param <T> AutoCast = {@link TermVectorsResponse} | {@link TermVectorDocTokens} | {@link TermVectorTokens} | {@code String[]}
+ *            | {@code String} | {@code Map} of term frequencies
  */
 public class TermVectorIterator<T> extends AbstractBufferedIterator<T, TermVectorsResponse> {
+    private static final Logger logger = LogManager.getLogger();
+
+    public enum Source { mtermvectors, source, auto }
+
     private final String index;
     private final List<String> fields;
+    @Nullable private final QueryBuilder query;
+    private Source source = Source.mtermvectors;
+    @Nullable private SourceTermVectors sourceTermVectors;
 
     protected int  defaultRequestSize = 100;  // Reduce buffer size to reduce Connection-is-Closed errors
     protected long defaultTtl         = 360;   // API timeout in seconds
 
-    private final ScanAndScrollIterator<SearchHit> scanAndScroll;
+    protected int     parallelism = 1;     // _mtermvectors requests in flight, 1 = sequential
+    protected int     batchSize   = 0;     // ids per _mtermvectors request when pipelined, 0 = requestSize / parallelism
+    protected boolean ordered     = true;  // return pipelined batches in scroll order
+    protected boolean projection  = true;  // only request the term vector sections read by the cast type
+
+    private ScanAndScrollIterator<SearchHit> scanAndScroll;
+    private final Deque<String> pendingIds = new ArrayDeque<>();
+    private final Deque<CompletableFuture<List<TermVectorsResponse>>> inFlight = new ArrayDeque<>();
     protected final RestHighLevelClient client = ESClient.getInstance();
 
 
@@ -53,6 +97,7 @@ public class TermVectorIterator<T> extends AbstractBufferedIterator<T, TermVecto
 
         this.index  = index;
         this.fields = new ArrayList<>(fields);
+        this.query  = query;
         this.scanAndScroll = new ScanAndScrollIterator<>(SearchHit.class, index, singletonList("id"), query);
         this.scanAndScroll.setRequestSize(this.requestSize);
         this.setRequestSize(this.defaultRequestSize);
@@ -61,34 +106,236 @@ public class TermVectorIterator<T> extends AbstractBufferedIterator<T, TermVecto
 
     }
     @Override
-    public void reset() {
+    public synchronized void reset() {
         super.reset();
         if( this.scanAndScroll != null ) { this.scanAndScroll.reset(); }
+        if( this.inFlight != null ) {
+            this.inFlight.forEach(future -> future.cancel(true));
+            this.inFlight.clear();
+            this.pendingIds.clear();
+        }
     }
 
 
     //***** Getters / Setters *****//
 
     @Override public Long    getTotalHits()        { return this.scanAndScroll.getTotalHits();     }
-    @Override public boolean hasMoreRequests()     { return this.scanAndScroll.hasMoreRequests();  }
+    @Override public synchronized boolean hasMoreRequests() {
+        return this.scanAndScroll.hasMoreRequests() || !this.pendingIds.isEmpty() || !this.inFlight.isEmpty();
+    }
     @Override public int     getRequestSize()      { return this.scanAndScroll.getRequestSize();   }
     @Override public long    getTTL()              { return this.scanAndScroll.getTTL();           }
 
     @Override public void setRequestSize(int size) { super.setRequestSize(size); this.scanAndScroll.setRequestSize(size); }
     @Override public void setTTL(long ttl)         { super.setTTL(ttl);          this.scanAndScroll.setTTL(ttl);          }
 
+    public int     getParallelism() { return this.parallelism; }
+    public boolean isOrdered()      { return this.ordered; }
+    public int     getBatchSize()   {
+        return ( this.batchSize > 0 ) ? this.batchSize : Math.max(1, -Math.floorDiv(-this.getRequestSize(), this.parallelism));
+    }
+
+    /**
+     * @param parallelism  number of concurrent {@code _mtermvectors} requests, 1 disables pipelining
+     */
+    public TermVectorIterator<T> setParallelism(int parallelism) {
+        if(!( parallelism >= 1 )) { throw new IllegalArgumentException("PRECONDITION: parallelism="+parallelism+" >= 1"); }
+        this.parallelism = parallelism;
+        return this;
+    }
+    /**
+     * @param batchSize  ids per pipelined {@code _mtermvectors} request, 0 splits {@code requestSize} between requests
+     */
+    public TermVectorIterator<T> setBatchSize(int batchSize) {
+        if(!( batchSize >= 0 )) { throw new IllegalArgumentException("PRECONDITION: batchSize="+batchSize+" >= 0"); }
+        this.batchSize = batchSize;
+        return this;
+    }
+    public TermVectorIterator<T> setOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    public boolean isProjection() { return this.projection; }
+    /**
+     * @param projection  false to always request positions, offsets, payloads and statistics
+     */
+    public TermVectorIterator<T> setProjection(boolean projection) {
+        this.projection = projection;
+        if( this.sourceTermVectors != null ) { this.sourceTermVectors.setTokens(this.isFullResponse()); }
+        return this;
+    }
+    private boolean isFullResponse() {
+        return !this.projection || this.type.isAssignableFrom(TermVectorsResponse.class);
+    }
+
+    protected TermVectorQuery getTermVectorQuery() {
+        TermVectorQuery query = new TermVectorQuery(this.index, this.fields);
+        if( this.projection ) { query.setProjection(this.type); }
+        return query;
+    }
+
+    public Source getSource() { return this.source; }
+
+    /**
+     * Call before iterating, as this replaces the underlying scroll
+     * @param source  {@code auto} is resolved immediately from the index mapping
+     */
+    public synchronized TermVectorIterator<T> setSource(Source source) {
+        this.source = ( source == Source.auto ) ? probeSource(this.index, this.fields) : source;
+        List<String> includes = ( this.source == Source.source ) ? this.fields : singletonList("id");
+        int  requestSize = this.getRequestSize();
+        long ttl         = this.getTTL();
+        this.scanAndScroll = new ScanAndScrollIterator<>(SearchHit.class, this.index, includes, this.query);
+        this.setRequestSize(requestSize);
+        this.setTTL(ttl);
+        this.reset();
+        return this;
+    }
+
+    /**
+     * @param analyzer  used by {@code Source.source}, defaults to the Elasticsearch standard analyzer
+     */
+    public TermVectorIterator<T> setAnalyzer(Analyzer analyzer) {
+        this.sourceTermVectors = new SourceTermVectors(this.index, this.fields, analyzer).setTokens(this.isFullResponse());
+        return this;
+    }
+
+    /**
+     * @return {@code mtermvectors} if any field stores term vectors or has a non-standard analyzer,
+     *         either in its mapping or as the index default analyzer, else {@code source}
+     */
+    @SuppressWarnings("unchecked")
+    public static Source probeSource(String index, List<String> fields) {
+        try {
+            GetSettingsResponse settings = ESClient.getInstance().indices()
+                .getSettings(new GetSettingsRequest().indices(index), RequestOptions.DEFAULT)
+            ;
+            for( var indexSettings : settings.getIndexToSettings().values() ) {  // hppc cursors, one per index behind an alias
+                Settings defaultAnalyzer = getDefaultAnalyzer(indexSettings.value);
+                if( !isStandard(defaultAnalyzer) ) {
+                    logger.info("{} | default analyzer is {}, using _mtermvectors", index, defaultAnalyzer);
+                    return Source.mtermvectors;
+                }
+            }
+            Map<String, MappingMetadata> mappings = ESClient.getInstance().indices()
+                .getMapping(new GetMappingsRequest().indices(index), RequestOptions.DEFAULT)
+                .mappings()
+            ;
+            for( MappingMetadata mapping : mappings.values() ) {
+                for( String field : fields ) {
+                    Object properties = mapping.sourceAsMap();
+                    for( String key : field.split("\\.") ) {
+                        properties = ( properties instanceof Map ) ? ((Map<String, Object>) properties).get("properties") : null;
+                        properties = ( properties instanceof Map ) ? ((Map<String, Object>) properties).get(key) : null;
+                    }
+                    if( !(properties instanceof Map) ) { continue; }
+                    Map<String, Object> fieldMapping = (Map<String, Object>) properties;
+                    Object termVector = fieldMapping.get("term_vector");
+                    Object analyzer   = fieldMapping.get("analyzer");
+                    if( termVector != null && !"no".equals(termVector) ) {
+                        logger.info("{} | {} stores term vectors, using _mtermvectors", index, field);
+                        return Source.mtermvectors;
+                    }
+                    if( analyzer != null && !"standard".equals(analyzer) ) {
+                        logger.info("{} | {} uses analyzer {}, using _mtermvectors", index, field, analyzer);
+                        return Source.mtermvectors;
+                    }
+                }
+            }
+            logger.info("{} | no stored term vectors, deriving term vectors from _source", index);
+            return Source.source;
+        } catch( IOException | ElasticsearchException e ) {
+            logger.warn("{} | unable to read mapping, using _mtermvectors: {}", index, e.getMessage());
+            return Source.mtermvectors;
+        }
+    }
+
+    /**
+     * @return {@code index.analysis.analyzer.default} settings, empty if the index uses the built-in default
+     */
+    static Settings getDefaultAnalyzer(Settings indexSettings) {
+        return indexSettings.getByPrefix("index.analysis.analyzer.default.");
+    }
+
+    /**
+     * @return true if the analyzer settings are unset or a plain {@code type: standard} without parameters,
+     *         as {@link SourceTermVectors} only reproduces the standard analyzer
+     */
+    static boolean isStandard(Settings analyzer) {
+        if( analyzer.isEmpty() ) { return true; }
+        return analyzer.keySet().equals(Set.of("type")) && "standard".equals(analyzer.get("type"));
+    }
+
 
 
     //***** Buffer functions *****//
 
     @Override
     protected List<TermVectorsResponse> fetch() throws IOException {
+        if( this.source == Source.source ) { return this.fetchFromSource(); }
+        if( this.parallelism > 1 ) { return this.fetchPipelined(); }
         List<String> ids = this.getScanAndScrollIds();
         List<TermVectorsResponse> responses =
-            new TermVectorQuery(this.index, this.fields).getMultiTermVectors(ids);
+            this.getTermVectorQuery().getMultiTermVectors(ids);
         return responses;
     }
 
+    /**
+     * Single round-trip: term vectors are derived locally from the scrolled {@code _source}
+     */
+    protected synchronized List<TermVectorsResponse> fetchFromSource() {
+        if( this.sourceTermVectors == null ) {
+            this.sourceTermVectors = new SourceTermVectors(this.index, this.fields).setTokens(this.isFullResponse());
+        }
+        SourceTermVectors termVectors = this.sourceTermVectors;
+        return this.scanAndScroll.popBuffer().stream()
+            .map(hit -> termVectors.getTermVectors(hit.getId(), hit.getSourceAsMap()))
+            .collect(Collectors.toList())
+        ;
+    }
+
+    /**
+     * Returns the next completed batch, then tops up the pipeline so requests continue while it is consumed
+     * NOTE: called from synchronized populateBuffer()
+     */
+    protected synchronized List<TermVectorsResponse> fetchPipelined() throws IOException {
+        this.fillPipeline();
+        if( this.inFlight.isEmpty() ) { return new ArrayList<>(); }
+
+        CompletableFuture<List<TermVectorsResponse>> next;
+        if( this.ordered ) {
+            next = this.inFlight.pollFirst();
+        } else {
+            CompletableFuture.anyOf(this.inFlight.toArray(CompletableFuture<?>[]::new)).exceptionally(e -> null).join();
+            next = this.inFlight.stream().filter(CompletableFuture::isDone).findFirst().orElse(this.inFlight.peekFirst());
+            this.inFlight.remove(next);
+        }
+        try {
+            List<TermVectorsResponse> responses = next.join();
+            this.fillPipeline();
+            return responses;
+        } catch( CompletionException e ) {
+            if( e.getCause() instanceof UncheckedIOException ) { throw ((UncheckedIOException) e.getCause()).getCause(); }
+            throw e;
+        }
+    }
+
+    private void fillPipeline() {
+        int size = this.getBatchSize();
+        TermVectorQuery query = this.getTermVectorQuery();
+        while( this.inFlight.size() < this.parallelism ) {
+            // scanAndScroll.popBuffer() prefetches the next page of ids asynchronously
+            while( this.pendingIds.size() < size && this.scanAndScroll.hasNext() ) {
+                this.pendingIds.addAll(this.getScanAndScrollIds());
+            }
+            if( this.pendingIds.isEmpty() ) { break; }
+            List<String> ids = new ArrayList<>(size);
+            while( ids.size() < size && !this.pendingIds.isEmpty() ) { ids.add(this.pendingIds.pollFirst()); }
+            this.inFlight.addLast(query.getMultiTermVectorsAsync(ids));
+        }
+    }
+
     protected List<String> getScanAndScrollIds() {
         List<String> ids = this.scanAndScroll.popBuffer().stream()
             .map(SearchHit::getId)
@@ -123,6 +370,9 @@ public class TermVectorIterator<T> extends AbstractBufferedIterator<T, TermVecto
             String[] tokens = new TermVectorTokens(bufferItem).tokenize();
             item = (T) String.join("\t", tokens);
         }
+        else if( this.type.equals(Map.class) ) {
+            item = (T) new TermVectorTokens(bufferItem).getTermFrequencies();
+        }
         if( item == null ) {
             throw new IllegalArgumentException("unsupported type: " + this.type.getCanonicalName());
         }
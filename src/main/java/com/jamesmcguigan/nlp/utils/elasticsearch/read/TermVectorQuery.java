@@ -1,6 +1,7 @@
 package com.jamesmcguigan.nlp.utils.elasticsearch.read;
 
 import com.github.underscore.lodash.U;
+import com.jamesmcguigan.nlp.utils.concurrent.IOExecutors;
 import com.jamesmcguigan.nlp.utils.elasticsearch.ESClient;
 import org.apache.http.ConnectionClosedException;
 import org.apache.http.util.EntityUtils;
@@ -16,8 +17,11 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Utility wrapper for making ElasticSearch _mtermvectors requests
@@ -29,12 +33,14 @@ public class TermVectorQuery {
 
     private final String       index;
     private final List<String> fields;
-    private boolean termStatistics = true;
-    private boolean offsets        = true;
-    private boolean payloads       = true;
-    private boolean positions      = true;
+    private boolean termStatistics  = true;
+    private boolean fieldStatistics = true;
+    private boolean offsets         = true;
+    private boolean payloads        = true;
+    private boolean positions       = true;
 
     private final ESClient client  = ESClient.getInstance();
+    private Executor executor      = IOExecutors.getExecutor();
 
 
     public TermVectorQuery(String index, List<String> fields) {
@@ -43,10 +49,29 @@ public class TermVectorQuery {
         this.index  = index;
         this.fields = new ArrayList<>(fields);
     }
-    public <T extends TermVectorQuery> T setTermStatistics(boolean termStatistics) { this.termStatistics = termStatistics; return (T) this; }
+    public <T extends TermVectorQuery> T setTermStatistics(boolean termStatistics)   { this.termStatistics = termStatistics;   return (T) this; }
+    public <T extends TermVectorQuery> T setFieldStatistics(boolean fieldStatistics) { this.fieldStatistics = fieldStatistics; return (T) this; }
     public <T extends TermVectorQuery> T setOffsets(boolean offsets)     { this.offsets = offsets;     return (T) this; }
     public <T extends TermVectorQuery> T setPayloads(boolean payloads)   { this.payloads = payloads;   return (T) this; }
     public <T extends TermVectorQuery> T setPositions(boolean positions) { this.positions = positions; return (T) this; }
+    public <T extends TermVectorQuery> T setExecutor(Executor executor)  { this.executor = executor;   return (T) this; }
+
+    /**
+     * Requests only the response sections the consumer type can read.
+     * Token wrappers ({@code TermVectorTokens}, {@code String[]}, {@code String}, term counts) only read
+     * terms and {@code term_freq}, which are always returned, so positions, offsets, payloads and statistics
+     * are skipped. Only a raw {@code TermVectorsResponse} consumer requests every section
+     * @param type  class the response will be cast to
+     */
+    public <T extends TermVectorQuery> T setProjection(Class<?> type) {
+        boolean full = type.isAssignableFrom(TermVectorsResponse.class);
+        this.termStatistics  = full;
+        this.fieldStatistics = full;
+        this.offsets         = full;
+        this.payloads        = full;
+        this.positions       = full;
+        return (T) this;
+    }
 
 
     public List<TermVectorsResponse> getMultiTermVectors(List<String> ids) throws IOException {
@@ -56,6 +81,20 @@ public class TermVectorQuery {
         return this.castTermVectorsResponse(responseJson);
     }
 
+    /**
+     * Runs the blocking request on the {@link IOExecutors} executor, so many requests can be in flight at once
+     * @return future completed exceptionally with UncheckedIOException on failure
+     */
+    public CompletableFuture<List<TermVectorsResponse>> getMultiTermVectorsAsync(List<String> ids) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return this.getMultiTermVectors(ids);
+            } catch( IOException e ) {
+                throw new UncheckedIOException(e);
+            }
+        }, this.executor);
+    }
+
     
     public String getMultiTermVectorsRequestJson(List<String> ids) {
         // WORKAROUND: client.mtermvectors(new MultiTermVectorsRequest()) on Bonsai throws 400 Bad Request
@@ -68,7 +107,8 @@ public class TermVectorQuery {
                     .add("offsets",   this.offsets)
                     .add("payloads",  this.payloads)
                     .add("positions", this.positions)
-                    .add("term_statistics", this.termStatistics)
+                    .add("term_statistics",  this.termStatistics)
+                    .add("field_statistics", this.fieldStatistics)
                 ), U.arrayBuilder())
             ).toJson()
         ;
@@ -1,5 +1,6 @@
 package com.jamesmcguigan.nlp.utils.elasticsearch.update;
 
+import com.jamesmcguigan.nlp.utils.concurrent.IOExecutors;
 import com.jamesmcguigan.nlp.utils.elasticsearch.ESClient;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,6 +11,9 @@ import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.RequestOptions;
 
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.logging.log4j.Level.TRACE;
 
@@ -17,11 +21,13 @@ import static org.apache.logging.log4j.Level.TRACE;
 public class AsyncUpdateQueue implements UpdateQueue {
     private static final Logger logger = LogManager.getLogger();
 
-    private int requestsInFlight    = 0;
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final AtomicInteger outstanding      = new AtomicInteger();  // not yet completed, including queued retries
     private int minRequestsInFlight = 5;
     private int maxRequestsInFlight = 25;
 
     private final String index;
+    private Executor executor = IOExecutors.getExecutor();  // retries must not block the client callback thread
 
 
     public AsyncUpdateQueue(String index) {
@@ -38,57 +44,88 @@ public class AsyncUpdateQueue implements UpdateQueue {
         this.maxRequestsInFlight = maxRequestsInFlight;
         return (T) this;
     }
+    @SuppressWarnings("unchecked")
+    public <T extends AsyncUpdateQueue> T setExecutor(Executor executor) {
+        this.executor = executor;
+        return (T) this;
+    }
 
 
 
     @Override
     public void update(String id, Map<String, Object> updateKeyValues) {
+        this.outstanding.incrementAndGet();
         this.waitForQueue();
 
-        this.requestsInFlight += 1;
+        this.requestsInFlight.incrementAndGet();
         var request = new UpdateRequest(this.index, id).doc(updateKeyValues);
-        ESClient.getInstance().updateAsync(
-            request,
-            RequestOptions.DEFAULT,
-            new ActionListener<>() {
-                @Override
-                public void onResponse(UpdateResponse updateResponse) {
-                    AsyncUpdateQueue.this.requestsInFlight -= 1;
-
-                    var result = updateResponse.getResult();
-                    logger.info("{} {}({}) | {}", result, index, id, updateKeyValues);
-                }
-                @Override
-                public void onFailure(Exception e) {
-                    AsyncUpdateQueue.this.requestsInFlight -= 1;
-                    boolean retry  = false;
-                    String action  = "ERROR";
-                    String message = e.toString();
-
-                    // ERROR: Concurrent request limit exceeded. Please consider batching your requests
-                    // WORKAROUND: Retry and reduce maxRequestsInFlight
-                    if( e instanceof ElasticsearchStatusException ) {
-                        var exception = (ElasticsearchStatusException) e;
-                        if( "TOO_MANY_REQUESTS".equals(exception.status().toString()) ) {
-                            AsyncUpdateQueue.this.maxRequestsInFlight *= 0.9;  // race condition is desirable here
-                            retry   = true;
-                            action  = exception.status().toString();
-                            message = "reducing maxRequestsInFlight = " + AsyncUpdateQueue.this.maxRequestsInFlight;
-                        }
+        try {
+            ESClient.getInstance().updateAsync(
+                request,
+                RequestOptions.DEFAULT,
+                new ActionListener<>() {
+                    @Override
+                    public void onResponse(UpdateResponse updateResponse) {
+                        AsyncUpdateQueue.this.requestsInFlight.decrementAndGet();
+                        AsyncUpdateQueue.this.outstanding.decrementAndGet();
+
+                        var result = updateResponse.getResult();
+                        logger.info("{} {}({}) | {}", result, index, id, updateKeyValues);
                     }
+                    @Override
+                    public void onFailure(Exception e) {
+                        AsyncUpdateQueue.this.requestsInFlight.decrementAndGet();
+                        boolean retry  = false;
+                        String action  = "ERROR";
+                        String message = e.toString();
+
+                        // ERROR: Concurrent request limit exceeded. Please consider batching your requests
+                        // WORKAROUND: Retry and reduce maxRequestsInFlight
+                        if( e instanceof ElasticsearchStatusException ) {
+                            var exception = (ElasticsearchStatusException) e;
+                            if( "TOO_MANY_REQUESTS".equals(exception.status().toString()) ) {
+                                AsyncUpdateQueue.this.maxRequestsInFlight *= 0.9;  // race condition is desirable here
+                                retry   = true;
+                                action  = exception.status().toString();
+                                message = "reducing maxRequestsInFlight = " + AsyncUpdateQueue.this.maxRequestsInFlight;
+                            }
+                        }
 
-                    logger.printf(TRACE, "%s %s(%s) | %s", action, index, id, message);
-                    if( retry ) {
-                        AsyncUpdateQueue.this.update(id, updateKeyValues);
+                        logger.printf(TRACE, "%s %s(%s) | %s", action, index, id, message);
+                        if( retry ) { AsyncUpdateQueue.this.retry(id, updateKeyValues); }
+                        else        { AsyncUpdateQueue.this.outstanding.decrementAndGet(); }
                     }
                 }
-            }
-        );
+            );
+        } catch( RuntimeException e ) {  // eg. client closed, so no callback will decrement the counts
+            this.requestsInFlight.decrementAndGet();
+            this.outstanding.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * update() may sleep in waitForQueue(), so retry off the client's I/O reactor thread
+     * The failed request stays outstanding until update() has counted its retry, so close() cannot miss it
+     */
+    private void retry(String id, Map<String, Object> updateKeyValues) {
+        try {
+            this.executor.execute(() -> {
+                try {
+                    this.update(id, updateKeyValues);
+                } finally {
+                    this.outstanding.decrementAndGet();
+                }
+            });
+        } catch( RejectedExecutionException e ) {
+            this.outstanding.decrementAndGet();
+            logger.warn("{}({}) | retry rejected by executor", this.index, id, e);
+        }
     }
 
     @SuppressWarnings("BusyWait")
     private void waitForQueue() {
-        while( this.requestsInFlight > Math.max(this.maxRequestsInFlight, this.minRequestsInFlight) ) {
+        while( this.requestsInFlight.get() > Math.max(this.maxRequestsInFlight, this.minRequestsInFlight) ) {
             try {
                 Thread.sleep(10);
             } catch( InterruptedException e ) {
@@ -98,7 +135,18 @@ public class AsyncUpdateQueue implements UpdateQueue {
     }
 
 
+    /**
+     * Waits for requests in flight and their retries to complete
+     */
+    @SuppressWarnings("BusyWait")
     public void close() {
-        // Do Nothing
+        while( this.outstanding.get() > 0 ) {
+            try {
+                Thread.sleep(10);
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
     }
 }
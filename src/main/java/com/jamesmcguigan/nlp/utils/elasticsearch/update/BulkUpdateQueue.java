@@ -139,7 +139,10 @@ public class BulkUpdateQueue implements UpdateQueue {
         // DOCS: https://www.elastic.co/guide/en/elasticsearch/client/java-rest/7.11/java-rest-high-document-update.html
         if( updateKeyValues.isEmpty() ) { return; }
         String json           = new Gson().toJson(updateKeyValues);
-        UpdateRequest request = new UpdateRequest(this.index, id).doc(json, XContentType.JSON);
+        UpdateRequest request = new UpdateRequest(this.index, id)
+            .doc(json, XContentType.JSON)
+            .detectNoop(true)  // ES default, explicit as serverNoop enrichment relies on unchanged values not being rewritten
+        ;
         this.bulkProcessor.add(request);  // HighLevelRESTClient is thread-safe
     }
 
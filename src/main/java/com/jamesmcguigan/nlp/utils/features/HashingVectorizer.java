@@ -0,0 +1,119 @@
+package com.jamesmcguigan.nlp.utils.features;
+
+import com.jamesmcguigan.nlp.utils.tokenize.ATokenizer;
+import com.jamesmcguigan.nlp.utils.tokenize.NLPTokenizer;
+
+import java.util.List;
+
+
+/**
+ * Feature hashing of token streams into 2^bits dimensions, as a constant-memory alternative to a vocabulary
+ * <p/>
+ * Each token is hashed with {@link MurmurHash3} and counted in bucket {@code hash & (2^bits - 1)},
+ * with the sign taken from the top bit of the hash, so collisions cancel out in expectation.
+ * Word and char n-grams are rolling hashes from {@link NGramHasher}, without building the n-gram Strings.
+ * <p/>
+ * Immutable once configured, so one instance can be shared between threads, each with its own output SparseVector
+ * <pre>
+ *     HashingVectorizer vectorizer = new HashingVectorizer(18).setNgrams(2);
+ *     SparseVector      vector     = new SparseVector();
+ *     vectorizer.transform(text, vector);
+ * </pre>
+ */
+public class HashingVectorizer {
+    public static final int DEFAULT_BITS = 20;
+
+    private final ATokenizer tokenizer;
+    private final int        bits;
+    private final int        mask;
+    private NGramHasher hasher = new NGramHasher(1);
+    private boolean signed    = true;
+    private boolean normalize = true;
+
+    public HashingVectorizer() { this(DEFAULT_BITS); }
+    public HashingVectorizer(int bits) { this(bits, NLPTokenizer.getSharedTokenizer()); }
+    public HashingVectorizer(int bits, ATokenizer tokenizer) {
+        if(!( 1 <= bits && bits <= 30 )) { throw new IllegalArgumentException("PRECONDITION: 1 <= bits="+bits+" <= 30"); }
+        this.tokenizer = tokenizer;
+        this.bits      = bits;
+        this.mask      = (1 << bits) - 1;
+    }
+
+    public int         getBits()       { return this.bits;      }
+    public int         getDimensions() { return 1 << this.bits; }
+    public NGramHasher getHasher()     { return this.hasher;    }
+
+    /**
+     * @param ngrams  maximum word n-gram length, 1 for unigrams only
+     */
+    public HashingVectorizer setNgrams(int ngrams) {
+        if(!( ngrams >= 1 )) { throw new IllegalArgumentException("PRECONDITION: ngrams="+ngrams+" >= 1"); }
+        return this.setHasher(new NGramHasher(ngrams, this.hasher.getCharNgramMin(), this.hasher.getCharNgramMax(), this.hasher.getSeed()));
+    }
+
+    /**
+     * @param min  minimum char n-gram length within each token, 0 to disable
+     * @param max  maximum char n-gram length
+     */
+    public HashingVectorizer setCharNgrams(int min, int max) {
+        return this.setHasher(new NGramHasher(this.hasher.getWordNgrams(), min, max, this.hasher.getSeed()));
+    }
+    public HashingVectorizer setSeed(int seed) {
+        return this.setHasher(new NGramHasher(this.hasher.getWordNgrams(), this.hasher.getCharNgramMin(), this.hasher.getCharNgramMax(), seed));
+    }
+    public HashingVectorizer setHasher(NGramHasher hasher)   { this.hasher    = hasher;    return this; }
+    public HashingVectorizer setSigned(boolean signed)       { this.signed    = signed;    return this; }
+    public HashingVectorizer setNormalize(boolean normalize) { this.normalize = normalize; return this; }
+
+
+    //***** Transform *****//
+
+    public SparseVector transform(String text, SparseVector output) {
+        return this.transform(this.tokenizer.tokenize(text), output);
+    }
+
+    /**
+     * @param tokens  output of {@link ATokenizer#tokenize(String)}
+     * @param output  cleared and reused
+     * @return        output, compacted and optionally L2 normalized
+     */
+    public SparseVector transform(String[] tokens, SparseVector output) {
+        output.clear();
+        this.addTo(tokens, output);
+        output.compact();
+        if( this.normalize ) { output.normalize(); }
+        return output;
+    }
+
+    /**
+     * @param fields  tokens of each field, hashed into the same vector
+     * @param output  cleared and reused
+     * @return        output, compacted and optionally L2 normalized
+     */
+    public SparseVector transform(List<String[]> fields, SparseVector output) {
+        output.clear();
+        for( String[] tokens : fields ) { this.addTo(tokens, output); }
+        output.compact();
+        if( this.normalize ) { output.normalize(); }
+        return output;
+    }
+
+    /**
+     * Appends features without clearing or compacting, for combining several fields into one vector
+     */
+    public void addTo(String[] tokens, SparseVector output) {
+        this.hasher.hash(tokens, hash -> this.addHash(hash, output));
+    }
+
+    /**
+     * @return bucket index for a single feature string
+     */
+    public int getIndex(String feature) {
+        return this.hasher.hashToken(feature) & this.mask;
+    }
+
+    private void addHash(int hash, SparseVector output) {
+        float value = ( this.signed && hash < 0 ) ? -1f : 1f;
+        output.add(hash & this.mask, value);
+    }
+}
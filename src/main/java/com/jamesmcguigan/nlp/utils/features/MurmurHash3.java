@@ -0,0 +1,90 @@
+package com.jamesmcguigan.nlp.utils.features;
+
+
+/**
+ * MurmurHash3 x86 32-bit, computed over the UTF-8 encoding of a String without allocating a byte array
+ * <p/>
+ * Output matches {@code Hashing.murmur3_32(seed).hashBytes(text.getBytes(UTF_8))} and scikit-learn's
+ * {@code murmurhash3_32}, so hashed features are compatible with a Python HashingVectorizer.
+ * Unpaired surrogates are encoded as {@code '?'}, as by {@code String.getBytes(UTF_8)}
+ */
+public final class MurmurHash3 {
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private MurmurHash3() {}
+
+    public static int hash32(CharSequence text) { return hash32(text, 0, text.length(), 0); }
+    public static int hash32(CharSequence text, int seed) { return hash32(text, 0, text.length(), seed); }
+
+    /**
+     * @param start  first char index, inclusive
+     * @param end    last char index, exclusive
+     */
+    public static int hash32(CharSequence text, int start, int end, int seed) {
+        int hash   = seed;
+        int block  = 0;  // up to 4 pending bytes, little-endian
+        int shift  = 0;
+        int length = 0;
+        for( int i = start; i < end; i++ ) {
+            char c = text.charAt(i);
+            int  codePoint = c;
+            if( Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1)) ) {
+                codePoint = Character.toCodePoint(c, text.charAt(++i));
+            } else if( Character.isSurrogate(c) ) {
+                codePoint = '?';
+            }
+
+            // Inline UTF-8 encoding, feeding each byte into the current block
+            int bytes, lead;
+            if(      codePoint < 0x80    ) { bytes = 1; lead = codePoint; }
+            else if( codePoint < 0x800   ) { bytes = 2; lead = 0xC0 | (codePoint >>> 6);  }
+            else if( codePoint < 0x10000 ) { bytes = 3; lead = 0xE0 | (codePoint >>> 12); }
+            else                           { bytes = 4; lead = 0xF0 | (codePoint >>> 18); }
+            for( int b = 0; b < bytes; b++ ) {
+                int value = ( b == 0 ) ? lead : 0x80 | ((codePoint >>> (6 * (bytes - 1 - b))) & 0x3F);
+                block |= (value & 0xFF) << shift;
+                shift += 8;
+                length++;
+                if( shift == 32 ) {
+                    hash  = mixHash(hash, mixBlock(block));
+                    block = 0;
+                    shift = 0;
+                }
+            }
+        }
+        if( shift > 0 ) { hash ^= mixBlock(block); }
+        return fmix(hash ^ length);
+    }
+
+    /**
+     * Hashes a single int, for combining already-hashed values
+     */
+    public static int hashInt(int value, int seed) {
+        return fmix(mixHash(seed, mixBlock(value)) ^ Integer.BYTES);
+    }
+
+
+    //***** Primitives *****//
+
+    static int mixBlock(int block) {
+        block *= C1;
+        block  = Integer.rotateLeft(block, 15);
+        return block * C2;
+    }
+
+    static int mixHash(int hash, int block) {
+        hash ^= block;
+        hash  = Integer.rotateLeft(hash, 13);
+        return hash * 5 + 0xe6546b64;
+    }
+
+    static int fmix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,114 @@
+package com.jamesmcguigan.nlp.utils.features;
+
+import java.util.function.IntConsumer;
+
+
+/**
+ * Hashes word n-grams (1..N tokens) and optional char n-grams of a token array, without building n-gram Strings
+ * <p/>
+ * Unigrams are the {@link MurmurHash3} of each token. Longer word n-grams are polynomial rolling hashes
+ * over the token hashes, so each position costs O(N) regardless of n-gram length.
+ * Char n-grams are rolling hashes over each token padded with {@code '<'} and {@code '>'}, as in fastText,
+ * so prefixes and suffixes are distinguished from infixes.
+ * Each n-gram length and kind is finalized with a different salt, so they do not share hash values.
+ * <p/>
+ * Immutable and thread-safe
+ */
+public class NGramHasher {
+    private static final int BASE       = 0x01000193;  // FNV prime, odd so multiplication is invertible mod 2^32
+    private static final int WORD_SALT  = 0x9E3779B9;
+    private static final int CHAR_SALT  = 0x7F4A7C15;
+
+    private final int   wordNgrams;
+    private final int   charNgramMin;
+    private final int   charNgramMax;
+    private final int   seed;
+    private final int[] powers;  // BASE^n
+
+    /**
+     * @param wordNgrams  maximum word n-gram length, 1 for unigrams only
+     */
+    public NGramHasher(int wordNgrams) { this(wordNgrams, 0, 0, 0); }
+
+    /**
+     * @param wordNgrams    maximum word n-gram length, 1 for unigrams only, 0 to disable word features
+     * @param charNgramMin  minimum char n-gram length, 0 to disable char n-grams
+     * @param charNgramMax  maximum char n-gram length
+     * @param seed          MurmurHash3 seed for tokens
+     */
+    public NGramHasher(int wordNgrams, int charNgramMin, int charNgramMax, int seed) {
+        if(!( wordNgrams >= 0 )) { throw new IllegalArgumentException("PRECONDITION: wordNgrams="+wordNgrams+" >= 0"); }
+        if(!( charNgramMin >= 0 && charNgramMax >= charNgramMin )) {
+            throw new IllegalArgumentException("PRECONDITION: 0 <= charNgramMin="+charNgramMin+" <= charNgramMax="+charNgramMax);
+        }
+        this.wordNgrams   = wordNgrams;
+        this.charNgramMin = charNgramMin;
+        this.charNgramMax = ( charNgramMin > 0 ) ? charNgramMax : 0;
+        this.seed         = seed;
+        this.powers       = new int[Math.max(wordNgrams, this.charNgramMax) + 1];
+        this.powers[0]    = 1;
+        for( int n = 1; n < this.powers.length; n++ ) { this.powers[n] = this.powers[n - 1] * BASE; }
+    }
+
+    public int getWordNgrams()   { return this.wordNgrams;   }
+    public int getCharNgramMin() { return this.charNgramMin; }
+    public int getCharNgramMax() { return this.charNgramMax; }
+    public int getSeed()         { return this.seed;         }
+
+    /**
+     * @return unigram hash of a single token, as produced by {@code hash()}
+     */
+    public int hashToken(String token) { return MurmurHash3.hash32(token, this.seed); }
+
+
+    /**
+     * @param tokens  token array, as produced by an ATokenizer
+     * @param output  receives one hash per n-gram occurrence
+     */
+    public void hash(String[] tokens, IntConsumer output) {
+        if( this.wordNgrams > 0 ) { this.hashWords(tokens, output); }
+        if( this.charNgramMax > 0 ) {
+            for( String token : tokens ) { this.hashChars(token, output); }
+        }
+    }
+
+    private void hashWords(String[] tokens, IntConsumer output) {
+        int   maxN    = this.wordNgrams;
+        int[] window  = new int[maxN];      // ring buffer of recent token hashes
+        int[] rolling = new int[maxN + 1];  // rolling[n] = polynomial hash of the last n token hashes
+        for( int i = 0; i < tokens.length; i++ ) {
+            int hash = this.hashToken(tokens[i]);
+            output.accept(hash);
+
+            int outgoing = window[i % maxN];  // token hash leaving the largest window
+            window[i % maxN] = hash;
+            for( int n = 2; n <= maxN; n++ ) {
+                // slide: drop token i-n (if the window was full), shift and add token i
+                if( i >= n ) {
+                    int dropped = ( n == maxN ) ? outgoing : window[(i - n) % maxN];
+                    rolling[n] -= dropped * this.powers[n - 1];
+                }
+                rolling[n] = rolling[n] * BASE + hash;
+                if( i >= n - 1 ) { output.accept(MurmurHash3.fmix(rolling[n] ^ (WORD_SALT * n))); }
+            }
+        }
+    }
+
+    private void hashChars(String token, IntConsumer output) {
+        int length = token.length() + 2;  // '<' + token + '>'
+        for( int n = this.charNgramMin; n <= this.charNgramMax && n <= length; n++ ) {
+            int rolling = 0;
+            for( int j = 0; j < length; j++ ) {
+                rolling = rolling * BASE + paddedCharAt(token, j, length);
+                if( j >= n ) { rolling -= paddedCharAt(token, j - n, length) * this.powers[n]; }
+                if( j >= n - 1 ) { output.accept(MurmurHash3.fmix(rolling ^ this.seed ^ (CHAR_SALT * n))); }
+            }
+        }
+    }
+
+    private static int paddedCharAt(String token, int index, int length) {
+        if( index == 0 )          { return '<'; }
+        if( index == length - 1 ) { return '>'; }
+        return token.charAt(index - 1);
+    }
+}
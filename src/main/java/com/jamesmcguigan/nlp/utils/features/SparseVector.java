@@ -0,0 +1,123 @@
+package com.jamesmcguigan.nlp.utils.features;
+
+import java.util.Arrays;
+
+
+/**
+ * Reusable sparse float vector of (index, value) pairs
+ * <p/>
+ * Buffers grow as needed and are retained by {@code clear()}, so a vector reused per thread
+ * stops allocating once it has seen the longest document.
+ * {@code compact()} sorts by index and sums duplicate indices, as produced by hash collisions.
+ * Not thread-safe
+ */
+public class SparseVector {
+    private int[]   indices;
+    private float[] values;
+    private int     size = 0;
+
+    private long[]  sortBuffer  = new long[0];   // index << 32 | position, for compact()
+    private float[] valueBuffer = new float[0];
+
+    public SparseVector() { this(64); }
+    public SparseVector(int capacity) {
+        this.indices = new int[Math.max(1, capacity)];
+        this.values  = new float[Math.max(1, capacity)];
+    }
+
+    public int     size()              { return this.size;           }
+    public boolean isEmpty()           { return this.size == 0;      }
+    public int     getIndex(int i)     { return this.indices[i];     }
+    public float   getValue(int i)     { return this.values[i];      }
+
+    /**
+     * @return backing array, valid up to {@code size()}
+     */
+    public int[]   getIndices()        { return this.indices;        }
+    public float[] getValues()         { return this.values;         }
+
+    public SparseVector clear() {
+        this.size = 0;
+        return this;
+    }
+
+    public SparseVector add(int index, float value) {
+        if( this.size == this.indices.length ) {
+            this.indices = Arrays.copyOf(this.indices, this.size * 2);
+            this.values  = Arrays.copyOf(this.values,  this.size * 2);
+        }
+        this.indices[this.size] = index;
+        this.values[this.size]  = value;
+        this.size++;
+        return this;
+    }
+
+
+    //***** Transforms *****//
+
+    /**
+     * Sorts by index, summing the values of duplicate indices and dropping entries that cancel to zero
+     * @return this
+     */
+    public SparseVector compact() {
+        if( this.sortBuffer.length < this.size ) {
+            this.sortBuffer  = new long[this.indices.length];
+            this.valueBuffer = new float[this.indices.length];
+        }
+        for( int i = 0; i < this.size; i++ ) {
+            this.sortBuffer[i] = ((long) this.indices[i] << 32) | i;
+        }
+        System.arraycopy(this.values, 0, this.valueBuffer, 0, this.size);
+        Arrays.sort(this.sortBuffer, 0, this.size);
+
+        int output = -1;
+        for( int i = 0; i < this.size; i++ ) {
+            int   index = (int) (this.sortBuffer[i] >>> 32);
+            float value = this.valueBuffer[(int) this.sortBuffer[i]];
+            if( output >= 0 && this.indices[output] == index ) {
+                this.values[output] += value;
+            } else {
+                if( output >= 0 && this.values[output] == 0f ) { output--; }
+                output++;
+                this.indices[output] = index;
+                this.values[output]  = value;
+            }
+        }
+        if( output >= 0 && this.values[output] == 0f ) { output--; }
+        this.size = output + 1;
+        return this;
+    }
+
+    /**
+     * Scales to unit L2 norm, unless all values are zero
+     * @return this
+     */
+    public SparseVector normalize() {
+        double norm = 0;
+        for( int i = 0; i < this.size; i++ ) { norm += (double) this.values[i] * this.values[i]; }
+        if( norm == 0 ) { return this; }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for( int i = 0; i < this.size; i++ ) { this.values[i] *= scale; }
+        return this;
+    }
+
+    /**
+     * @param weights  dense weights, indexed by feature
+     * @return         sum of weights[index] * value
+     */
+    public double dot(float[] weights) {
+        double sum = 0;
+        for( int i = 0; i < this.size; i++ ) { sum += weights[this.indices[i]] * this.values[i]; }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder("{");
+        for( int i = 0; i < this.size; i++ ) {
+            if( i > 0 ) { output.append(", "); }
+            output.append(this.indices[i]).append('=').append(this.values[i]);
+        }
+        return output.append('}').toString();
+    }
+}
@@ -0,0 +1,302 @@
+package com.jamesmcguigan.nlp.utils.iterators.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+
+/**
+ * Lazily evaluated RFC4180 CSV reader implemented as a Spliterator of {@code String[]} rows
+ * <p/>
+ * Files are memory-mapped and parsed on demand, nothing is read until the first {@code tryAdvance()}.
+ * {@code trySplit()} partitions the mapped file at record boundaries, tracking quote parity
+ * so that newlines inside "quoted fields" are never mistaken for the end of a record.
+ * This allows {@code .parallel()} streams to parse large files on multiple cores.
+ * <p/>
+ * Files larger than 2Gb (or a supplied Reader) fall back to a sequential unsplittable reader
+ * <p/>
+ * Rows are returned in header order, missing trailing columns are {@code null}
+ */
+public class CSVSpliterator implements Spliterator<String[]>, Closeable {
+    private static final Logger logger = LogManager.getLogger();
+    private static final CSVFormat format   = CSVFormat.RFC4180;
+    private static final byte      QUOTE    = '"';
+    private static final byte      NEWLINE  = '\n';
+    private static final byte[]    UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    private int minSplitSize = 1 << 20;  // 1Mb - smaller chunks are not worth the thread overhead
+
+    @Nullable private final ByteBuffer buffer;  // read-only memory-mapped file, shared between splits
+    private final List<String>         header;
+    private final Map<String, Integer> headerMap;
+    private int       position;                 // start of the next unread record in buffer
+    private final int end;                      // exclusive end of this split in buffer
+
+    @Nullable private CSVParser           parser;   // lazily opened upon first tryAdvance()
+    @Nullable private Iterator<CSVRecord> records;
+
+
+    //***** Constructors *****//
+
+    /**
+     * Memory-maps the file and parses the header row
+     * @param path          CSV file with header row
+     * @return              spliterator over the remaining rows
+     * @throws IOException  if the file cannot be read
+     */
+    public static CSVSpliterator open(Path path) throws IOException {
+        long size = Files.size(path);
+        if( size > Integer.MAX_VALUE ) {
+            logger.debug("{} is too large to memory-map, falling back to sequential reader", path);
+            return new CSVSpliterator(Files.newBufferedReader(path, UTF_8));
+        }
+        try( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+            // NOTE: mapping remains valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new CSVSpliterator(buffer);
+        }
+    }
+
+    /**
+     * Parse CSV from an in-memory or memory-mapped buffer
+     * @param buffer  UTF-8 encoded CSV with header row
+     */
+    public CSVSpliterator(ByteBuffer buffer) throws IOException {
+        this.buffer   = buffer.asReadOnlyBuffer();
+        this.end      = this.buffer.limit();
+        this.position = startsWithBOM(this.buffer) ? UTF8_BOM.length : 0;
+
+        int headerEnd = this.nextRecordBoundary(this.position, this.position);
+        try( CSVParser headerParser = format.parse(this.getReader(this.position, headerEnd)) ) {
+            Iterator<CSVRecord> iterator = headerParser.iterator();
+            this.header = iterator.hasNext() ? toList(iterator.next()) : Collections.emptyList();
+        }
+        this.headerMap = toHeaderMap(this.header);
+        this.position  = headerEnd;
+    }
+
+    /**
+     * Sequential fallback for non-mappable sources
+     * @param reader  CSV with header row, closed by {@code close()}
+     */
+    public CSVSpliterator(Reader reader) throws IOException {
+        this.buffer    = null;
+        this.end       = 0;
+        this.position  = 0;
+        this.parser    = format.withFirstRecordAsHeader().parse(reader);
+        this.records   = this.parser.iterator();
+        this.header    = headerFromParser(this.parser);
+        this.headerMap = toHeaderMap(this.header);
+    }
+
+    private CSVSpliterator(CSVSpliterator parent, int position, int end) {
+        this.buffer       = parent.buffer;
+        this.header       = parent.header;
+        this.headerMap    = parent.headerMap;
+        this.minSplitSize = parent.minSplitSize;
+        this.position     = position;
+        this.end          = end;
+    }
+
+
+    //***** Getters / Setters *****//
+
+    public List<String>         getHeader()    { return this.header;    }
+    public Map<String, Integer> getHeaderMap() { return this.headerMap; }
+    public int getMinSplitSize()               { return this.minSplitSize; }
+
+    @SuppressWarnings("unchecked")
+    public <T extends CSVSpliterator> T setMinSplitSize(int minSplitSize) {
+        if(!( minSplitSize >= 1 )) { throw new IllegalArgumentException("PRECONDITION: minSplitSize="+minSplitSize+" >= 1"); }
+        this.minSplitSize = minSplitSize;
+        return (T) this;
+    }
+
+    /**
+     * @param parallel  if true, the stream will split the file between threads
+     * @return          lazy stream of rows, closing the stream closes the underlying reader
+     */
+    public Stream<String[]> stream(boolean parallel) {
+        return StreamSupport.stream(this, parallel).onClose(this::close);
+    }
+
+
+    //***** Spliterator interface *****//
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String[]> action) {
+        if( this.records == null ) {
+            if( this.buffer == null || this.position >= this.end ) { return false; }
+            this.openParser();
+        }
+        assert this.records != null;
+        if( !this.records.hasNext() ) {
+            this.close();
+            return false;
+        }
+        action.accept( this.toRow(this.records.next()) );
+        return true;
+    }
+
+    /**
+     * Splits the unread portion of the file in half, at the nearest record boundary after the midpoint.
+     * Splitting is only possible before the first {@code tryAdvance()} on this split.
+     */
+    @Override
+    public @Nullable Spliterator<String[]> trySplit() {
+        if( this.buffer == null || this.records != null )                 { return null; }
+        if( (long) this.end - this.position < 2L * this.minSplitSize )    { return null; }
+
+        int midpoint = this.position + (this.end - this.position) / 2;
+        int boundary = this.nextRecordBoundary(this.position, midpoint);
+        if( boundary >= this.end ) { return null; }
+
+        var prefix    = new CSVSpliterator(this, this.position, boundary);
+        this.position = boundary;
+        return prefix;
+    }
+
+    /**
+     * @return number of unread bytes, as an upper bound for the number of rows
+     */
+    @Override
+    public long estimateSize() {
+        return ( this.buffer != null && this.records == null ) ? (this.end - this.position) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if( this.parser != null ) { this.parser.close(); }
+        } catch( IOException e ) {
+            logger.error(e);
+        }
+    }
+
+
+    //***** Parsing *****//
+
+    private void openParser() {
+        try {
+            this.parser  = format.parse(this.getReader(this.position, this.end));
+            this.records = this.parser.iterator();
+        } catch( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Reader getReader(int start, int end) {
+        assert this.buffer != null;
+        ByteBuffer slice = this.buffer.duplicate();
+        slice.limit(end).position(start);
+        return new BufferedReader(new InputStreamReader(new ByteBufferInputStream(slice), UTF_8), 1 << 16);
+    }
+
+    /**
+     * Scans forward from a known record boundary, tracking quote parity,
+     * for the first unquoted newline at or after {@code target}.
+     * RFC4180 escaped quotes ({@code ""}) toggle parity twice and so are handled implicitly.
+     * UTF-8 multibyte sequences never contain ASCII bytes, so a byte scan is safe.
+     *
+     * @param from    offset of a known record boundary
+     * @param target  offset from which to look for the next boundary
+     * @return        offset of the start of the next record, or {@code end}
+     */
+    protected int nextRecordBoundary(int from, int target) {
+        assert this.buffer != null;
+        boolean quoted = false;
+        for( int i = from; i < this.end; i++ ) {
+            byte character = this.buffer.get(i);
+            if( character == QUOTE ) {
+                quoted = !quoted;
+            } else if( character == NEWLINE && !quoted && i >= target ) {
+                return i + 1;
+            }
+        }
+        return this.end;
+    }
+
+    private String[] toRow(CSVRecord record) {
+        String[] row = new String[this.header.size()];
+        for( int i = 0; i < Math.min(row.length, record.size()); i++ ) {
+            row[i] = record.get(i);
+        }
+        return row;
+    }
+
+    private static List<String> toList(CSVRecord record) {
+        List<String> values = new ArrayList<>(record.size());
+        record.forEach(values::add);
+        return Collections.unmodifiableList(values);
+    }
+
+    private static List<String> headerFromParser(CSVParser parser) {
+        String[] names = new String[parser.getHeaderMap().size()];
+        parser.getHeaderMap().forEach((name, index) -> names[index] = name);
+        return List.of(names);
+    }
+
+    private static Map<String, Integer> toHeaderMap(List<String> header) {
+        Map<String, Integer> headerMap = new HashMap<>();
+        for( int i = 0; i < header.size(); i++ ) {
+            headerMap.putIfAbsent(header.get(i), i);
+        }
+        return Collections.unmodifiableMap(headerMap);
+    }
+
+    private static boolean startsWithBOM(ByteBuffer buffer) {
+        if( buffer.limit() < UTF8_BOM.length ) { return false; }
+        for( int i = 0; i < UTF8_BOM.length; i++ ) {
+            if( buffer.get(i) != UTF8_BOM[i] ) { return false; }
+        }
+        return true;
+    }
+
+
+    /**
+     * Minimal InputStream view over a ByteBuffer, without copying
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) { this.buffer = buffer; }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? (this.buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if( length == 0 ) { return 0; }
+            if( !this.buffer.hasRemaining() ) { return -1; }
+            length = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() { return this.buffer.remaining(); }
+    }
+}
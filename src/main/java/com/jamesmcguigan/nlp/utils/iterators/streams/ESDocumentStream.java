@@ -5,6 +5,7 @@ import opennlp.tools.doccat.DocumentSample;
 import opennlp.tools.util.ObjectStream;
 import org.elasticsearch.index.query.QueryBuilder;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -19,7 +20,7 @@ public class ESDocumentStream extends JsonDocumentStream implements ObjectStream
     }
     public ESDocumentStream(String index, List<String> fields, String target, QueryBuilder query) {
         this(
-            new ScanAndScrollIterator<>(String.class, index, query),
+            new ScanAndScrollIterator<>(String.class, index, getSourceFields(fields, target), query),
             fields,
             target
         );
@@ -31,6 +32,24 @@ public class ESDocumentStream extends JsonDocumentStream implements ObjectStream
         assert iterator instanceof ScanAndScrollIterator;
     }
 
+    /**
+     * @return {@code _source} includes: only the fields to be tokenized and the target category
+     */
+    protected static List<String> getSourceFields(List<String> fields, String target) {
+        List<String> sourceFields = new ArrayList<>(fields);
+        if( !sourceFields.contains(target) ) { sourceFields.add(target); }
+        return sourceFields;
+    }
+
+    /**
+     * Read keyword fields, such as the target category, from doc values rather than {@code _source}
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ESDocumentStream> T setDocValueFields(List<String> docValueFields) {
+        ((ScanAndScrollIterator<String>) this.iterator).setDocValueFields(docValueFields);
+        return (T) this;
+    }
+
     @Override
     public void reset()        {        ((ScanAndScrollIterator<String>) this.iterator).reset();        }
     public Long size()         { return ((ScanAndScrollIterator<String>) this.iterator).size();         }
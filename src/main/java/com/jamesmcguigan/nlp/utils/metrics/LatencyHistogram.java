@@ -0,0 +1,85 @@
+package com.jamesmcguigan.nlp.utils.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Lock-free latency histogram with logarithmic buckets, for reporting percentiles of a long-running service
+ * <p/>
+ * Buckets grow by {@code GROWTH} (5%), so percentiles are accurate to within 5% from 1 microsecond up to
+ * {@code MAX_MICROS}; larger values are counted in the last bucket
+ */
+public class LatencyHistogram {
+    static final double GROWTH     = 1.05;
+    static final long   MAX_MICROS = Duration.ofMinutes(10).toNanos() / 1000;
+    private static final int BUCKETS = bucket(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong      count  = new AtomicLong();
+    private final AtomicLong      total  = new AtomicLong();  // micros
+    private final AtomicLong      max    = new AtomicLong();  // micros
+
+    private static int bucket(long micros) {
+        if( micros <= 1 ) { return 0; }
+        return (int) Math.ceil(Math.log(micros) / Math.log(GROWTH));
+    }
+    private static long upperBound(int bucket) {
+        return (long) Math.ceil(Math.pow(GROWTH, bucket));
+    }
+
+
+    //***** Record *****//
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        this.counts.incrementAndGet(Math.min(bucket(micros), BUCKETS - 1));
+        this.count.incrementAndGet();
+        this.total.addAndGet(micros);
+        this.max.accumulateAndGet(micros, Math::max);
+    }
+    public void record(Duration duration) {
+        this.recordNanos(duration.toNanos());
+    }
+
+
+    //***** Report *****//
+
+    public long getCount() { return this.count.get(); }
+    public Duration getMax() { return Duration.ofNanos(this.max.get() * 1000); }
+    public Duration getMean() {
+        long n = this.count.get();
+        return ( n == 0 ) ? Duration.ZERO : Duration.ofNanos(this.total.get() * 1000 / n);
+    }
+
+    /**
+     * @param percentile  0 < percentile <= 100
+     * @return            upper bound of the bucket containing the percentile, or zero if nothing was recorded
+     */
+    public Duration getPercentile(double percentile) {
+        if(!( percentile > 0 && percentile <= 100 )) { throw new IllegalArgumentException("PRECONDITION: percentile="+percentile+" in (0, 100]"); }
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for( int i = 0; i < BUCKETS; i++ ) { snapshot[i] = this.counts.get(i); n += snapshot[i]; }
+        if( n == 0 ) { return Duration.ZERO; }
+
+        long rank       = (long) Math.ceil(n * percentile / 100);
+        long cumulative = 0;
+        for( int i = 0; i < BUCKETS; i++ ) {
+            cumulative += snapshot[i];
+            if( cumulative >= rank ) {
+                long micros = ( i == BUCKETS - 1 ) ? this.max.get() : Math.min(upperBound(i), this.max.get());
+                return Duration.ofNanos(micros * 1000);
+            }
+        }
+        return this.getMax();
+    }
+
+    public void reset() {
+        for( int i = 0; i < BUCKETS; i++ ) { this.counts.set(i, 0); }
+        this.count.set(0);
+        this.total.set(0);
+        this.max.set(0);
+    }
+}
@@ -0,0 +1,29 @@
+package com.jamesmcguigan.nlp.utils.models;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+
+/**
+ * Serialization strategy for a model type stored in a {@link ModelRegistry}
+ * @param <M> model class
+ */
+public interface ModelCodec<M> {
+    /**
+     * @return name stored in the file header, to detect files written by a different codec
+     */
+    String getName();
+
+    void write(M model, OutputStream output) throws IOException;
+    M read(InputStream input) throws IOException;
+
+    /**
+     * Used to enforce the registry heap budget, the default assumes a compressed serialized format
+     * @param serializedSize  size of the serialized model in bytes
+     * @return                approximate heap usage of the deserialized model in bytes
+     */
+    default long estimateHeapSize(M model, long serializedSize) {
+        return serializedSize * 4;
+    }
+}
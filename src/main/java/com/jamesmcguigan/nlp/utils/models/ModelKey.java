@@ -0,0 +1,57 @@
+package com.jamesmcguigan.nlp.utils.models;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+
+/**
+ * Identifies a trained model by the dataset it was trained on, the label it predicts,
+ * and the pipeline {@code context:} it was trained in
+ */
+public final class ModelKey {
+    public static final String DEFAULT_CONTEXT = "default";
+
+    private final String dataset;
+    private final String target;
+    private final String context;
+
+    public ModelKey(String dataset, String target) {
+        this(dataset, target, null);
+    }
+    public ModelKey(String dataset, String target, @Nullable String context) {
+        this.dataset = Objects.requireNonNull(dataset, "dataset");
+        this.target  = Objects.requireNonNull(target,  "target");
+        this.context = ( context != null && !context.isEmpty() ) ? context : DEFAULT_CONTEXT;
+    }
+
+    public String getDataset() { return this.dataset; }
+    public String getTarget()  { return this.target;  }
+    public String getContext() { return this.context; }
+
+    /**
+     * @return relative file path: {@code <context>/<dataset>/<target>.model}, with unsafe characters replaced
+     */
+    public String toPath() {
+        return safe(this.context) + "/" + safe(this.dataset) + "/" + safe(this.target) + ".model";
+    }
+    private static String safe(String name) {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if( this == other ) { return true; }
+        if( !(other instanceof ModelKey) ) { return false; }
+        ModelKey key = (ModelKey) other;
+        return this.dataset.equals(key.dataset)
+            && this.target.equals(key.target)
+            && this.context.equals(key.context)
+        ;
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(this.dataset, this.target, this.context); }
+
+    @Override
+    public String toString() { return this.context + "/" + this.dataset + "/" + this.target; }
+}
@@ -0,0 +1,283 @@
+package com.jamesmcguigan.nlp.utils.models;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Directory of serialized models keyed by dataset/target/context, for serving many models from one process
+ * <p/>
+ * Model files are memory-mapped on first use, so the serialized bytes live in the OS page cache rather than
+ * on heap. Deserialized models are kept in an LRU cache bounded by a heap budget; evicted models are
+ * decoded again from the mapping on the next {@code get()}.
+ * <pre>
+ *     file:    {context}/{dataset}/{target}.model
+ *     header:  MAGIC | FORMAT_VERSION | codec | dataset | target | context | payload length
+ *     payload: ModelCodec output
+ * </pre>
+ * @param <M> model class
+ */
+public class ModelRegistry<M> {
+    private static final Logger logger = LogManager.getLogger();
+
+    static final int MAGIC          = 0x4e4c504d;  // "NLPM"
+    static final int FORMAT_VERSION = 1;
+
+    private final Path          directory;
+    private final ModelCodec<M> codec;
+    private final long          heapBudget;
+    private long heapUsage = 0;
+
+    private final Map<ModelKey, ByteBuffer> mapped = new ConcurrentHashMap<>();
+    private final LinkedHashMap<ModelKey, Entry<M>> loaded = new LinkedHashMap<>(16, 0.75f, true);  // access order
+    private final Map<ModelKey, Long> generations = new HashMap<>();  // bumped by invalidate(), guarded by this
+    private final List<Consumer<ModelKey>> evictionListeners = new CopyOnWriteArrayList<>();
+
+    private static class Entry<M> {
+        private final M    model;
+        private final long heapSize;
+        Entry(M model, long heapSize) {
+            this.model    = model;
+            this.heapSize = heapSize;
+        }
+    }
+
+    /**
+     * @param directory   root directory for model files
+     * @param codec       serialization for the model class
+     * @param heapBudget  maximum estimated heap bytes of deserialized models, the most recent model is always kept
+     */
+    public ModelRegistry(Path directory, ModelCodec<M> codec, long heapBudget) {
+        if(!( heapBudget >= 0 )) { throw new IllegalArgumentException("PRECONDITION: heapBudget="+heapBudget+" >= 0"); }
+        this.directory  = directory;
+        this.codec      = codec;
+        this.heapBudget = heapBudget;
+    }
+
+    public Path getDirectory()   { return this.directory;  }
+    public long getHeapBudget()  { return this.heapBudget; }
+    public synchronized long getHeapUsage()  { return this.heapUsage; }
+    public synchronized int  getLoadedCount() { return this.loaded.size(); }
+    public synchronized boolean isLoaded(ModelKey key) { return this.loaded.containsKey(key); }
+
+    /**
+     * @param listener  called outside the registry lock with each key evicted from the heap cache or invalidated,
+     *                  so callers can release per-model resources
+     */
+    public void addEvictionListener(Consumer<ModelKey> listener) { this.evictionListeners.add(listener); }
+
+    public Path getPath(ModelKey key) { return this.directory.resolve(key.toPath()); }
+    public boolean contains(ModelKey key) { return Files.isRegularFile(this.getPath(key)); }
+
+
+    //***** Write *****//
+
+    /**
+     * Writes to a temporary file then atomically replaces any existing model,
+     * so concurrent readers see either the old or the new version
+     */
+    public void put(ModelKey key, M model) throws IOException {
+        Path path = this.getPath(key);
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try( DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))) ) {
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                this.codec.write(model, payload);
+
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeUTF(this.codec.getName());
+                output.writeUTF(key.getDataset());
+                output.writeUTF(key.getTarget());
+                output.writeUTF(key.getContext());
+                output.writeLong(payload.size());
+                payload.writeTo(output);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        this.invalidate(key);
+    }
+
+    /**
+     * Drops the cached mapping and heap copy, so the next {@code get()} reads the file again
+     */
+    public void invalidate(ModelKey key) {
+        synchronized( this ) {
+            this.mapped.remove(key);
+            this.unload(key);
+            this.generations.merge(key, 1L, Long::sum);
+        }
+        this.notifyEvicted(List.of(key));
+    }
+
+    public void evict(ModelKey key) {
+        boolean evicted;
+        synchronized( this ) { evicted = this.unload(key); }
+        if( evicted ) { this.notifyEvicted(List.of(key)); }
+    }
+
+    private synchronized boolean unload(ModelKey key) {
+        Entry<M> entry = this.loaded.remove(key);
+        if( entry != null ) { this.heapUsage -= entry.heapSize; }
+        return entry != null;
+    }
+
+    private void notifyEvicted(List<ModelKey> keys) {
+        for( ModelKey key : keys ) {
+            this.evictionListeners.forEach(listener -> listener.accept(key));
+        }
+    }
+
+
+    //***** Read *****//
+
+    /**
+     * Loads the model on first use, evicting least recently used models beyond the heap budget
+     * @return deserialized model, or null if no model file exists for the key
+     * @throws UncheckedIOException if the model file is invalid
+     */
+    public @Nullable M get(ModelKey key) {
+        long generation;
+        synchronized( this ) {
+            Entry<M> entry = this.loaded.get(key);
+            if( entry != null ) { return entry.model; }
+            generation = this.generations.getOrDefault(key, 0L);
+        }
+        if( !this.contains(key) ) { return null; }
+
+        // Decode outside the lock, so slow loads do not block cache hits for other models
+        ByteBuffer payload = this.getPayload(key).duplicate();
+        long serializedSize = payload.remaining();
+        M model;
+        try( InputStream input = new ByteBufferInputStream(payload) ) {
+            model = this.codec.read(input);
+        } catch( IOException e ) {
+            throw new UncheckedIOException("Unable to decode model " + key, e);
+        }
+        long heapSize = this.codec.estimateHeapSize(model, serializedSize);
+        logger.debug("{} | loaded {} bytes", key, serializedSize);
+
+        List<ModelKey> evicted;
+        synchronized( this ) {
+            Entry<M> existing = this.loaded.get(key);
+            if( existing != null ) { return existing.model; }  // loaded concurrently
+            if( generation != this.generations.getOrDefault(key, 0L) ) { return model; }  // put() or invalidate() during decode, do not cache stale bytes
+            this.loaded.put(key, new Entry<>(model, heapSize));
+            this.heapUsage += heapSize;
+            evicted = this.evictOverBudget();
+        }
+        this.notifyEvicted(evicted);
+        return model;
+    }
+
+    /**
+     * @return evicted keys, guarded by this
+     */
+    private List<ModelKey> evictOverBudget() {
+        List<ModelKey> evicted = new ArrayList<>();
+        Iterator<Map.Entry<ModelKey, Entry<M>>> iterator = this.loaded.entrySet().iterator();
+        while( this.heapUsage > this.heapBudget && this.loaded.size() > 1 && iterator.hasNext() ) {
+            Map.Entry<ModelKey, Entry<M>> eldest = iterator.next();
+            iterator.remove();
+            this.heapUsage -= eldest.getValue().heapSize;
+            evicted.add(eldest.getKey());
+            logger.debug("{} | evicted", eldest.getKey());
+        }
+        return evicted;
+    }
+
+    private ByteBuffer getPayload(ModelKey key) {
+        return this.mapped.computeIfAbsent(key, k -> {
+            Path path = this.getPath(k);
+            try( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                try( DataInputStream header = new DataInputStream(new ByteBufferInputStream(buffer.duplicate())) ) {
+                    if( header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION ) {
+                        throw new IOException("Invalid model file header: " + path);
+                    }
+                    String codecName = header.readUTF();
+                    if( !codecName.equals(this.codec.getName()) ) {
+                        throw new IOException("Model file " + path + " written by codec " + codecName + " not " + this.codec.getName());
+                    }
+                    header.readUTF();  // dataset
+                    header.readUTF();  // target
+                    header.readUTF();  // context
+                    long length   = header.readLong();
+                    int  position = (int) (channel.size() - length);
+                    buffer.position(position);
+                    return buffer.slice();  // still memory-mapped
+                }
+            } catch( IOException e ) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * @return keys of all models stored in the registry, read from each file header
+     */
+    public List<ModelKey> list() throws IOException {
+        if( !Files.isDirectory(this.directory) ) { return Collections.emptyList(); }
+        try( Stream<Path> paths = Files.walk(this.directory) ) {
+            List<ModelKey> keys = new ArrayList<>();
+            for( Path path : paths.filter(p -> p.toString().endsWith(".model")).collect(Collectors.toList()) ) {
+                try( DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))) ) {
+                    if( input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION ) { continue; }
+                    input.readUTF();  // codec
+                    String dataset = input.readUTF();
+                    String target  = input.readUTF();
+                    String context = input.readUTF();
+                    keys.add(new ModelKey(dataset, target, context));
+                }
+            }
+            keys.sort(Comparator.comparing(ModelKey::toString));
+            return keys;
+        }
+    }
+
+
+    /**
+     * Minimal InputStream view over a ByteBuffer, without copying
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) { this.buffer = buffer; }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? (this.buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if( length == 0 ) { return 0; }
+            if( !this.buffer.hasRemaining() ) { return -1; }
+            length = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() { return this.buffer.remaining(); }
+    }
+}
@@ -15,6 +15,7 @@ public class NLPTokenizer extends ATokenizer {
     private static final Pattern regexTwitterHandle = Pattern.compile("^@");
     private static final Pattern regexHashtag       = Pattern.compile("^#");
     private static final Pattern regexUrl           = Pattern.compile("^\\w+://", UNICODE_CHARACTER_CLASS);
+    private static final ThreadLocalTokenizer sharedTokenizer = new ThreadLocalTokenizer(NLPTokenizer::getDefaultTokenizer);
     private final Stemmer stemmer = new SnowballStemmer(ENGLISH);  // making static causes multi-processing StringIndexOutOfBoundsException
 
     //***** Default Settings *****//
@@ -39,6 +40,13 @@ public class NLPTokenizer extends ATokenizer {
         ;
     }
 
+    /**
+     * @return thread-safe pool of default tokenizers, shared between all callers
+     */
+    public static ATokenizer getSharedTokenizer() {
+        return sharedTokenizer;
+    }
+
     public NLPTokenizer setStopwords(boolean useStopwords) {
         this.useStopwords = useStopwords;
         return this;
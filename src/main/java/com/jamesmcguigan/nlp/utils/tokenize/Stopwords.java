@@ -15,8 +15,8 @@ public final class Stopwords {
     private static final Pattern regexPunctuation = Pattern.compile("^([!\"#$%&'()*+,./:;<=>?@\\[\\]^_`{|}~-])\\1*$");
 
     private static final Set<String> stopwords = new BufferedReader(new InputStreamReader(
-            Objects.requireNonNull(
-                Thread.currentThread().getContextClassLoader().getResourceAsStream("stopwords.txt")
+            Objects.requireNonNull(  // not the context ClassLoader, which may differ on ForkJoinPool workers
+                Stopwords.class.getClassLoader().getResourceAsStream("stopwords.txt")
             )
         ))
         .lines()
@@ -0,0 +1,27 @@
+package com.jamesmcguigan.nlp.utils.tokenize;
+
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe tokenizer pool, lazily creating one delegate tokenizer per thread
+ * <p/>
+ * NLPTokenizer cannot be shared between threads as SnowballStemmer has internal state,
+ * but constructing one per object is expensive when loading large datasets
+ */
+public class ThreadLocalTokenizer extends ATokenizer {
+    private final ThreadLocal<ATokenizer> tokenizers;
+
+    public ThreadLocalTokenizer(Supplier<? extends ATokenizer> supplier) {
+        this.tokenizers = ThreadLocal.withInitial(supplier);
+    }
+
+    /**
+     * @return the tokenizer instance owned by the current thread
+     */
+    public ATokenizer get() { return this.tokenizers.get(); }
+
+    @Override
+    public String[] tokenize(String text) {
+        return this.tokenizers.get().tokenize(text);
+    }
+}
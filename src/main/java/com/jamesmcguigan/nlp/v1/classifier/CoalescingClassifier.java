@@ -0,0 +1,39 @@
+package com.jamesmcguigan.nlp.v1.classifier;
+
+import com.jamesmcguigan.nlp.utils.concurrent.BatchCoalescer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Online prediction front end for an OpenNLPClassifier
+ * <p/>
+ * Concurrent single-document {@code predict()} calls are coalesced into batches of up to {@code maxBatchSize}
+ * documents or {@code maxDelayMicros}, and each batch is scored in one pass on the worker pool.
+ * Batches run concurrently, so each is scored by its own categorizer, see {@code OpenNLPClassifier.predictBatch()}
+ */
+public class CoalescingClassifier implements AutoCloseable {
+    private final OpenNLPClassifier classifier;
+    private final BatchCoalescer<String, String> coalescer;
+
+    public CoalescingClassifier(OpenNLPClassifier classifier, int maxBatchSize, long maxDelayMicros, Executor workers) {
+        this.classifier = classifier;
+        this.coalescer  = new BatchCoalescer<>(classifier::predictBatch, maxBatchSize, maxDelayMicros, workers);
+    }
+
+    public OpenNLPClassifier getClassifier() { return this.classifier; }
+    public BatchCoalescer<String, String> getCoalescer() { return this.coalescer; }
+
+    /**
+     * @return future completed with the predicted category once this document's batch has been scored
+     */
+    public CompletableFuture<String> predict(String text) {
+        return this.coalescer.submit(text);
+    }
+
+    @Override
+    public void close() {
+        this.coalescer.close();
+    }
+}
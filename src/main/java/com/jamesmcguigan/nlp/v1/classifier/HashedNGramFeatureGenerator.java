@@ -0,0 +1,57 @@
+package com.jamesmcguigan.nlp.v1.classifier;
+
+import com.jamesmcguigan.nlp.utils.features.NGramHasher;
+import opennlp.tools.doccat.FeatureGenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * OpenNLP doccat FeatureGenerator for hashed word and char n-grams, replacing the default bag-of-words
+ * <p/>
+ * Features are named by hash bucket rather than by the n-gram text, and bucket names are cached,
+ * so richer n-gram features do not allocate one concatenated String per n-gram occurrence.
+ * <p/>
+ * OpenNLP recreates feature generators from the model manifest by class name,
+ * so only the no-arg configuration (word 1-2 grams, 2^20 buckets) is restored when a model is loaded.
+ * Subclass with a no-arg constructor to persist a different configuration.
+ */
+public class HashedNGramFeatureGenerator implements FeatureGenerator {
+    public static final int DEFAULT_WORD_NGRAMS = 2;
+    public static final int DEFAULT_BITS        = 20;
+
+    private final NGramHasher hasher;
+    private final int         mask;
+    private final String[]    names;  // bucket -> feature name, filled lazily, racy writes are benign
+
+    public HashedNGramFeatureGenerator() {
+        this(new NGramHasher(DEFAULT_WORD_NGRAMS), DEFAULT_BITS);
+    }
+    public HashedNGramFeatureGenerator(NGramHasher hasher, int bits) {
+        if(!( 1 <= bits && bits <= 24 )) { throw new IllegalArgumentException("PRECONDITION: 1 <= bits="+bits+" <= 24"); }
+        this.hasher = hasher;
+        this.mask   = (1 << bits) - 1;
+        this.names  = new String[1 << bits];
+    }
+
+    public NGramHasher getHasher() { return this.hasher; }
+
+    @Override
+    public Collection<String> extractFeatures(String[] text, Map<String, Object> extraInformation) {
+        List<String> features = new ArrayList<>(text.length * (this.hasher.getWordNgrams() + 1));
+        this.hasher.hash(text, hash -> features.add(this.getName(hash & this.mask)));
+        return features;
+    }
+
+    private String getName(int bucket) {
+        String name = this.names[bucket];
+        if( name == null ) {
+            name = "ng=" + Integer.toHexString(bucket);
+            this.names[bucket] = name;
+        }
+        return name;
+    }
+}
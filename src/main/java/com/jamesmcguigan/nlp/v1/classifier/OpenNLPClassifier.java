@@ -1,16 +1,35 @@
 package com.jamesmcguigan.nlp.v1.classifier;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.jamesmcguigan.nlp.utils.models.ModelKey;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
 import com.jamesmcguigan.nlp.utils.tokenize.ATokenizer;
 import com.jamesmcguigan.nlp.utils.tokenize.NLPTokenizer;
 import opennlp.tools.doccat.DoccatFactory;
 import opennlp.tools.doccat.DoccatModel;
 import opennlp.tools.doccat.DocumentCategorizerME;
 import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.doccat.FeatureGenerator;
+import opennlp.tools.ml.model.Context;
+import opennlp.tools.ml.naivebayes.NaiveBayesModel;
 import opennlp.tools.util.ObjectStream;
 import opennlp.tools.util.TrainingParameters;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 @SuppressWarnings("unchecked")
 public class OpenNLPClassifier {
@@ -18,7 +37,9 @@ public class OpenNLPClassifier {
     protected final TrainingParameters params;
     protected DoccatModel model;
     protected DocumentCategorizerME doccat;
-    protected ATokenizer tokenizer = NLPTokenizer.getDefaultTokenizer();
+    protected ATokenizer tokenizer = NLPTokenizer.getSharedTokenizer();  // thread-safe, see predictBatch()
+    @Nullable protected FeatureGenerator[] featureGenerators;  // null = DoccatFactory default bag-of-words
+    @Nullable private String fingerprint;  // cached hash of the serialized model
 
 
     //***** Constructor *****//
@@ -41,8 +62,9 @@ public class OpenNLPClassifier {
     }
     public <T extends OpenNLPClassifier> T load(Path filepath) throws IOException {
         if( filepath != null ) {
-            this.model  = new DoccatModel(filepath);
-            this.doccat = new DocumentCategorizerME(this.model);
+            this.model       = new DoccatModel(filepath);
+            this.doccat      = new DocumentCategorizerME(this.model);
+            this.fingerprint = null;
         }
         return (T) this;
     }
@@ -53,9 +75,70 @@ public class OpenNLPClassifier {
         return (T) this;
     }
 
+    /**
+     * @throws IOException if the registry contains no model for the key
+     */
+    public <T extends OpenNLPClassifier> T load(ModelRegistry<DoccatModel> registry, ModelKey key) throws IOException {
+        DoccatModel registered = registry.get(key);
+        if( registered == null ) { throw new FileNotFoundException("No model in registry for " + key); }
+        return this.setModel(registered);
+    }
+    public <T extends OpenNLPClassifier> T save(ModelRegistry<DoccatModel> registry, ModelKey key) throws IOException {
+        if( this.model == null ) {
+            throw new UnsupportedOperationException("model not trained yet");
+        }
+        registry.put(key, this.model);
+        return (T) this;
+    }
+
+    public DoccatModel getModel() { return this.model; }
+    public <T extends OpenNLPClassifier> T setModel(DoccatModel model) {
+        this.model       = model;
+        this.doccat      = new DocumentCategorizerME(model);
+        this.fingerprint = null;
+        return (T) this;
+    }
+
+    /**
+     * Hash of the serialized model artifacts, excluding the manifest which contains a training timestamp
+     * Retraining on the same data produces the same fingerprint
+     * @return hash of the model weights
+     */
+    public synchronized String getFingerprint() {
+        if( this.model == null ) {
+            throw new UnsupportedOperationException("model not trained yet");
+        }
+        if( this.fingerprint == null ) {
+            try( var output = new ByteArrayOutputStream() ) {
+                this.model.serialize(output);
+                Hasher hasher = Hashing.sha256().newHasher();
+                try( var zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray())) ) {
+                    for( ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry() ) {
+                        if( "manifest.properties".equals(entry.getName()) ) { continue; }
+                        hasher.putString(entry.getName(), StandardCharsets.UTF_8);
+                        hasher.putBytes(zip.readAllBytes());
+                    }
+                }
+                this.fingerprint = hasher.hash().toString();
+            } catch( IOException e ) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return this.fingerprint;
+    }
+
     public ATokenizer getTokenizer() { return this.tokenizer; }
     public <T extends OpenNLPClassifier> T setTokenizer(ATokenizer tokenizer) { this.tokenizer = tokenizer; return (T) this; }
 
+    /**
+     * Feature generators for the next {@code train()}, eg {@link HashedNGramFeatureGenerator}
+     * Loaded models use the generators recorded in the model itself
+     */
+    public <T extends OpenNLPClassifier> T setFeatureGenerators(FeatureGenerator... featureGenerators) {
+        this.featureGenerators = featureGenerators;
+        return (T) this;
+    }
+
 
     //***** Training and Prediction *****//
 
@@ -64,9 +147,106 @@ public class OpenNLPClassifier {
             "en",
             objectStream,
             this.params,
-            new DoccatFactory()
+            ( this.featureGenerators != null ) ? new DoccatFactory(this.featureGenerators) : new DoccatFactory()
+        );
+        this.doccat      = new DocumentCategorizerME(model);
+        this.fingerprint = null;
+    }
+
+    /**
+     * Adds new samples to a trained NAIVEBAYES model, without revisiting the samples it was trained on
+     * <p/>
+     * The NAIVEBAYES parameters are per-outcome feature counts, so a model trained on only the new samples
+     * is summed into the current model, which is equivalent to retraining on both.
+     * Cost is proportional to the new samples plus the size of the model, not the original corpus.
+     * The training cutoff applies to each batch, so a predicate seen fewer than cutoff times in every batch
+     * is dropped even if retraining on the union would have kept it.
+     * An untrained classifier is trained from scratch, an empty stream leaves the model unchanged
+     * @throws UnsupportedOperationException if the current model was not trained by NAIVEBAYES
+     */
+    public void update(ObjectStream<DocumentSample> objectStream) throws IOException {
+        if( this.model == null ) { this.train(objectStream); return; }
+        if( !(this.model.getMaxentModel() instanceof NaiveBayesModel) ) {
+            throw new UnsupportedOperationException("update() requires a NAIVEBAYES model, not "
+                + this.model.getMaxentModel().getClass().getSimpleName());
+        }
+        DocumentSample first = objectStream.read();
+        if( first == null ) { return; }
+
+        DoccatModel delta = DocumentCategorizerME.train(
+            this.model.getLanguage(),
+            new PeekedObjectStream<>(first, objectStream),
+            this.params,
+            this.model.getFactory()  // same feature generators as the current model
         );
-        this.doccat = new DocumentCategorizerME(model);
+        NaiveBayesModel merged = sumCounts(
+            (NaiveBayesModel) this.model.getMaxentModel(),
+            (NaiveBayesModel) delta.getMaxentModel()
+        );
+        this.setModel(new DoccatModel(this.model.getLanguage(), merged, null, this.model.getFactory()));
+    }
+
+    /**
+     * @return model whose counts for each predicate and outcome are the sum of both models
+     */
+    @SuppressWarnings("unchecked")
+    private static NaiveBayesModel sumCounts(NaiveBayesModel left, NaiveBayesModel right) {
+        Map<String, Integer> outcomes = new LinkedHashMap<>();
+        for( NaiveBayesModel model : List.of(left, right) ) {
+            for( String outcome : (String[]) model.getDataStructures()[2] ) {
+                outcomes.putIfAbsent(outcome, outcomes.size());
+            }
+        }
+
+        Map<String, double[]> counts = new LinkedHashMap<>();  // predicate -> count per merged outcome
+        for( NaiveBayesModel model : List.of(left, right) ) {
+            Object[]             data  = model.getDataStructures();
+            Map<String, Context> pmap  = (Map<String, Context>) data[1];
+            String[]             names = (String[]) data[2];
+            for( Map.Entry<String, Context> entry : pmap.entrySet() ) {
+                double[] total      = counts.computeIfAbsent(entry.getKey(), key -> new double[outcomes.size()]);
+                int[]    ids        = entry.getValue().getOutcomes();
+                double[] parameters = entry.getValue().getParameters();
+                for( int i = 0; i < ids.length; i++ ) {
+                    total[ outcomes.get(names[ids[i]]) ] += parameters[i];
+                }
+            }
+        }
+
+        String[]  predicates = counts.keySet().toArray(new String[0]);
+        Context[] contexts   = new Context[predicates.length];
+        int[]     outcomeIds = outcomes.values().stream().mapToInt(Integer::intValue).toArray();  // dense, shared
+        for( int p = 0; p < predicates.length; p++ ) {
+            contexts[p] = new Context(outcomeIds, counts.get(predicates[p]));
+        }
+        return new NaiveBayesModel(contexts, predicates, outcomes.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * Replays a sample already read from the wrapped stream
+     */
+    private static class PeekedObjectStream<T> implements ObjectStream<T> {
+        private final ObjectStream<T> stream;
+        @Nullable private T peeked;
+
+        PeekedObjectStream(T peeked, ObjectStream<T> stream) {
+            this.peeked = peeked;
+            this.stream = stream;
+        }
+
+        @Override
+        public T read() throws IOException {
+            if( this.peeked == null ) { return this.stream.read(); }
+            T output    = this.peeked;
+            this.peeked = null;
+            return output;
+        }
+
+        @Override
+        public void reset() throws IOException { this.peeked = null; this.stream.reset(); }
+
+        @Override
+        public void close() throws IOException { this.stream.close(); }
     }
 
 
@@ -74,6 +254,23 @@ public class OpenNLPClassifier {
         String[] tokens = this.tokenizer.tokenize(text);
         return this.predict(tokens);
     }
+    /**
+     * Scores a batch against its own DocumentCategorizerME, so concurrent batches share only the model,
+     * see {@link CoalescingClassifier}. A custom tokenizer must also be thread-safe, like the default
+     */
+    public List<String> predictBatch(List<String> texts) {
+        DoccatModel model = this.model;
+        if( model == null ) {
+            throw new UnsupportedOperationException("model not trained yet");
+        }
+        DocumentCategorizerME batchDoccat = new DocumentCategorizerME(model);
+        List<String> predictions = new ArrayList<>(texts.size());
+        for( String text : texts ) {
+            double[] probabilities = batchDoccat.categorize(this.tokenizer.tokenize(text));
+            predictions.add(batchDoccat.getBestCategory(probabilities));
+        }
+        return predictions;
+    }
     public String predict(String[] tokens) {
         if( this.model == null || this.doccat == null ) {
             throw new UnsupportedOperationException("model not trained yet");
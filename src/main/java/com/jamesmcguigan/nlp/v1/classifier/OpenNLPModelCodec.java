@@ -0,0 +1,27 @@
+package com.jamesmcguigan.nlp.v1.classifier;
+
+import com.jamesmcguigan.nlp.utils.models.ModelCodec;
+import opennlp.tools.doccat.DoccatModel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+
+/**
+ * Stores a DoccatModel in its native zip format, which is already compressed
+ */
+public class OpenNLPModelCodec implements ModelCodec<DoccatModel> {
+    @Override
+    public String getName() { return "opennlp-doccat"; }
+
+    @Override
+    public void write(DoccatModel model, OutputStream output) throws IOException {
+        model.serialize(output);
+    }
+
+    @Override
+    public DoccatModel read(InputStream input) throws IOException {
+        return new DoccatModel(input);
+    }
+}
@@ -0,0 +1,99 @@
+package com.jamesmcguigan.nlp.v1.enricher;
+
+import com.google.common.hash.Hashing;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPClassifier;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.elasticsearch.index.query.QueryBuilders.*;
+
+
+/**
+ * Bookkeeping for incremental enrichment, stored alongside the predictions in each document
+ * <pre>
+ *     {prefix}.model        fingerprint of the models that made the predictions
+ *     {prefix}.enriched_at  epoch millis when the enrichment scan started, before the document was read
+ *     {prefix}.version      {@link ModelVersion} that made the predictions
+ * </pre>
+ * {@code _seq_no} cannot detect modifications: it is a per-shard counter, so the enrichment update itself
+ * advances it by an arbitrary amount. Instead, modifications are detected by an optional {@code updatedAtField}
+ * (numeric epoch millis or date), which must be set by the writers of the source fields, not by the enricher.
+ * A document is modified if {@code updatedAtField >= {prefix}.enriched_at}, so writes made while the scan
+ * is running are re-enriched on the next run. Both clocks are compared directly, so writers should be clock-synchronised.
+ * <p/>
+ * {@code getStaleQuery()} selects only documents that are new, modified or enriched by a different model
+ */
+public final class IncrementalEnrichment {
+    // only the cross-field comparison needs a script, missing enrichment is a plain exists query
+    private static final String MODIFIED_SCRIPT = String.join(" ",
+        "if( !doc.containsKey(params.updatedAtField) || doc[params.updatedAtField].size() == 0 ) { return false; }",
+        "if( !doc.containsKey(params.enrichedAtKey)  || doc[params.enrichedAtKey].size()  == 0 ) { return false; }",
+        "def updatedAt = doc[params.updatedAtField].value;",
+        "long millis = ( updatedAt instanceof Number ) ? updatedAt.longValue() : updatedAt.toInstant().toEpochMilli();",
+        "return millis >= doc[params.enrichedAtKey].value;"
+    );
+
+    private IncrementalEnrichment() {}
+
+
+    public static String getModelKey(String prefix)      { return prefix.isEmpty() ? "_enriched_model"   : prefix + ".model";       }
+    public static String getEnrichedAtKey(String prefix) { return prefix.isEmpty() ? "_enriched_at"      : prefix + ".enriched_at"; }
+    public static String getVersionKey(String prefix)    { return prefix.isEmpty() ? "_enriched_version" : prefix + ".version";     }
+
+    /**
+     * @param classifiers  map of target field to trained classifier
+     * @return             combined fingerprint of all models, independent of map ordering
+     */
+    public static String getFingerprint(Map<String, ? extends OpenNLPClassifier> classifiers) {
+        StringBuilder key = new StringBuilder();
+        new TreeMap<>(classifiers).forEach((target, classifier) ->
+            key.append(target).append('=').append(classifier.getFingerprint()).append(';')
+        );
+        return Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString().substring(0, 16);
+    }
+
+    /**
+     * @param prefix          prefix field containing the enrichment metadata
+     * @param fingerprint     current model fingerprint
+     * @param updatedAtField  optional numeric or date field set whenever the source fields are modified
+     * @param query           optional user query, which must also match
+     * @return                query for documents that require enrichment
+     */
+    public static QueryBuilder getStaleQuery(
+        String prefix, String fingerprint, @Nullable String updatedAtField, @Nullable QueryBuilder query
+    ) {
+        String enrichedAtKey = getEnrichedAtKey(prefix);
+        BoolQueryBuilder stale = boolQuery()
+            .should(boolQuery().mustNot(termQuery(getModelKey(prefix), fingerprint)))
+            .should(boolQuery().mustNot(existsQuery(enrichedAtKey)))
+            .minimumShouldMatch(1)
+        ;
+        if( updatedAtField != null ) {
+            stale.should(scriptQuery(new Script(
+                ScriptType.INLINE, Script.DEFAULT_SCRIPT_LANG, MODIFIED_SCRIPT,
+                Map.of("enrichedAtKey", enrichedAtKey, "updatedAtField", updatedAtField)
+            )));
+        }
+        BoolQueryBuilder output = boolQuery().filter(stale);
+        if( query != null ) { output.must(query); }
+        return output;
+    }
+
+    /**
+     * @param enrichedAt  epoch millis captured before the scan started, so concurrent writes are seen as modifications
+     * @return            metadata to be written alongside the predictions
+     */
+    public static Map<String, Object> getStateUpdate(String prefix, String fingerprint, long enrichedAt) {
+        return Map.of(
+            getModelKey(prefix),      fingerprint,
+            getEnrichedAtKey(prefix), enrichedAt
+        );
+    }
+}
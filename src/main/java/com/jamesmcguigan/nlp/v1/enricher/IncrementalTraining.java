@@ -0,0 +1,119 @@
+package com.jamesmcguigan.nlp.v1.enricher;
+
+import com.jamesmcguigan.nlp.utils.elasticsearch.ESClient;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
+import opennlp.tools.doccat.DoccatModel;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+
+
+/**
+ * Bookkeeping for incremental training, stored in the manifest of each model snapshot
+ * <pre>
+ *     incremental.version          {@link ModelVersion} number of the snapshot
+ *     incremental.high_water_mark  largest {@code labeledAtField} value the snapshot was trained on
+ * </pre>
+ * The next snapshot trains only on documents with {@code high_water_mark < labeledAtField <= max(labeledAtField)},
+ * where the upper bound is read before streaming, so documents labeled during training are left for the next run.
+ * Values are compared as longs: numeric fields, or date fields as epoch millis.
+ * <p/>
+ * Visibility: the index is refreshed before the upper bound is read, so every document already indexed
+ * is visible to both the aggregation and the scroll. A document indexed after the refresh with
+ * {@code labeledAtField <= high_water_mark} is never trained on, and an overlap window cannot recover it
+ * without counting the overlap twice. Set {@code labeledAtField} when the document is indexed,
+ * eg. from {@code _ingest.timestamp} in an ingest pipeline, rather than from the client clock before the write.
+ * <p/>
+ * Snapshots are stored in a {@link ModelRegistry} under {@code ModelKey(index, target, context)},
+ * each replacing the previous one
+ */
+public final class IncrementalTraining {
+    public static final String VERSION_KEY         = "incremental.version";
+    public static final String HIGH_WATER_MARK_KEY = "incremental.high_water_mark";
+
+    private IncrementalTraining() {}
+
+
+    //***** Manifest *****//
+
+    /**
+     * @return snapshot version, or 0 if the model was not written by incremental training
+     */
+    public static long getVersion(@Nullable DoccatModel model) {
+        String version = ( model != null ) ? model.getManifestProperty(VERSION_KEY) : null;
+        return ( version != null ) ? Long.parseLong(version) : 0;
+    }
+
+    /**
+     * @return high-water mark, or null if the model was not written by incremental training
+     */
+    public static @Nullable Long getHighWaterMark(@Nullable DoccatModel model) {
+        String highWaterMark = ( model != null ) ? model.getManifestProperty(HIGH_WATER_MARK_KEY) : null;
+        return ( highWaterMark != null ) ? Long.parseLong(highWaterMark) : null;
+    }
+
+    /**
+     * @return the same model parameters, with the snapshot bookkeeping in the manifest
+     */
+    public static DoccatModel withSnapshot(DoccatModel model, long version, long highWaterMark) {
+        return new DoccatModel(model.getLanguage(), model.getMaxentModel(), Map.of(
+            VERSION_KEY,         String.valueOf(version),
+            HIGH_WATER_MARK_KEY, String.valueOf(highWaterMark)
+        ), model.getFactory());
+    }
+
+
+    //***** Queries *****//
+
+    /**
+     * @param labeledQuery   documents with a label
+     * @param after          previous high-water mark, exclusive, or null for all labeled documents
+     * @param upTo           new high-water mark, inclusive, or null for no upper bound
+     * @return               query for documents labeled since the previous snapshot
+     */
+    public static QueryBuilder getNewLabelsQuery(
+        QueryBuilder labeledQuery, String labeledAtField, @Nullable Long after, @Nullable Long upTo
+    ) {
+        RangeQueryBuilder range = rangeQuery(labeledAtField);
+        if( after != null ) { range.gt(after); }
+        if( upTo  != null ) { range.lte(upTo); }
+        return boolQuery().filter(labeledQuery).filter(range);
+    }
+
+    /**
+     * Makes every document indexed so far visible to search, call before {@code getMaxValue()}
+     */
+    public static void refresh(String index) throws IOException {
+        ESClient.getInstance().indices().refresh(new RefreshRequest(index), RequestOptions.DEFAULT);
+    }
+
+    /**
+     * Reads the sort value of the top document rather than a max aggregation,
+     * as aggregations return a double which cannot represent every long above 2^53
+     * @return largest value of {@code field} in documents matching {@code query}, or null if there are none
+     */
+    public static @Nullable Long getMaxValue(String index, String field, QueryBuilder query) throws IOException {
+        SearchRequest request = new SearchRequest(index).source(new SearchSourceBuilder()
+            .query(query)
+            .size(1)
+            .fetchSource(false)
+            .trackTotalHits(false)
+            .sort(field, SortOrder.DESC)
+        );
+        SearchHit[] hits = ESClient.getInstance().search(request, RequestOptions.DEFAULT).getHits().getHits();
+        if( hits.length == 0 ) { return null; }
+        return ((Number) hits[0].getSortValues()[0]).longValue();  // long and date fields sort as epoch millis longs
+    }
+}
@@ -0,0 +1,82 @@
+package com.jamesmcguigan.nlp.v1.enricher;
+
+import com.jamesmcguigan.nlp.utils.models.ModelKey;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPClassifier;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Immutable snapshot of the classifiers used by an enricher, published by copy-on-write
+ * <p/>
+ * Each document is predicted against a single snapshot, so a swap never mixes model versions
+ * within one update. Versions are strictly increasing epoch millis, so they remain comparable
+ * between processes and restarts. Version 0 is the initial set of untrained classifiers.
+ * <p/>
+ * Targets loaded from a {@link ModelRegistry} are resolved once when loaded and pinned here, with the keys
+ * they were loaded from. A later {@code registry.put()} therefore cannot change the models behind a version
+ * and its fingerprint; it is adopted as a new version by loading again
+ */
+public final class ModelVersion {
+    private final long version;
+    private final Map<String, OpenNLPClassifier> classifiers;
+    private final Map<String, ModelKey> keys;
+    private volatile String fingerprint;  // lazy, classifiers are not trained at version 0
+
+    ModelVersion(long version, Map<String, OpenNLPClassifier> classifiers) {
+        this(version, classifiers, Collections.emptyMap());
+    }
+    ModelVersion(long version, Map<String, OpenNLPClassifier> classifiers, Map<String, ModelKey> keys) {
+        this.version     = version;
+        this.classifiers = Collections.unmodifiableMap(new HashMap<>(classifiers));
+        this.keys        = Collections.unmodifiableMap(new HashMap<>(keys));
+    }
+
+    public long getVersion() { return this.version; }
+    public Map<String, OpenNLPClassifier> getClassifiers() { return this.classifiers; }
+    public OpenNLPClassifier get(String target) { return this.classifiers.get(target); }
+
+    /**
+     * @return registry keys by target, for the targets loaded from a {@link ModelRegistry}
+     */
+    public Map<String, ModelKey> getRegistryKeys() { return this.keys; }
+
+    public String getFingerprint() {
+        if( this.fingerprint == null ) {
+            this.fingerprint = IncrementalEnrichment.getFingerprint(this.classifiers);
+        }
+        return this.fingerprint;
+    }
+
+    /**
+     * @param replacements  trained classifiers by target, other targets keep their current classifier
+     * @return              next version
+     */
+    public ModelVersion with(Map<String, ? extends OpenNLPClassifier> replacements) {
+        return this.with(replacements, Collections.emptyMap());
+    }
+
+    /**
+     * @param replacements  classifiers by target, other targets keep their current classifier
+     * @param keys          registry keys the replacements were loaded from, if any
+     * @return              next version
+     */
+    public ModelVersion with(Map<String, ? extends OpenNLPClassifier> replacements, Map<String, ModelKey> keys) {
+        Map<String, OpenNLPClassifier> next = new HashMap<>(this.classifiers);
+        next.putAll(replacements);
+        Map<String, ModelKey> nextKeys = new HashMap<>(this.keys);
+        nextKeys.keySet().removeAll(replacements.keySet());
+        nextKeys.putAll(keys);
+        return new ModelVersion(nextVersion(this.version), next, nextKeys);
+    }
+
+    /**
+     * @return version number following {@code version}, also used for registry snapshots by {@link IncrementalTraining}
+     */
+    static long nextVersion(long version) {
+        return Math.max(version + 1, System.currentTimeMillis());
+    }
+}
@@ -5,18 +5,22 @@ import com.jamesmcguigan.nlp.utils.elasticsearch.ESClient;
 import com.jamesmcguigan.nlp.utils.elasticsearch.read.ScanAndScrollIterator;
 import com.jamesmcguigan.nlp.utils.elasticsearch.update.BulkUpdateQueue;
 import com.jamesmcguigan.nlp.utils.iterators.streams.ESDocumentStream;
+import com.jamesmcguigan.nlp.utils.models.ModelKey;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
 import com.jamesmcguigan.nlp.utils.tokenize.ATokenizer;
 import com.jamesmcguigan.nlp.utils.tokenize.NLPTokenizer;
 import com.jamesmcguigan.nlp.v1.classifier.OpenNLPClassifierES;
+import opennlp.tools.doccat.DoccatModel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
 
@@ -28,12 +32,18 @@ import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
  */
 @SuppressWarnings("unchecked")
 public class OpenNLPEnricher {
+    private static final Logger logger = LogManager.getLogger();
     private ATokenizer tokenizer = NLPTokenizer.getDefaultTokenizer();
 
     private final String       index;
     private final List<String> fields;
     private final String       target;
     private String             prefix = "_opennlp";
+    private boolean            incremental = false;
+    private boolean            serverNoop  = false;
+    private List<String>       docValueFields = Collections.emptyList();
+    @Nullable private String   labeledAtField;
+    @Nullable private String   updatedAtField;
     private final OpenNLPClassifierES classifier = new OpenNLPClassifierES();
 
 
@@ -58,6 +68,51 @@ public class OpenNLPEnricher {
     public ATokenizer getTokenizer() { return this.tokenizer; }
     public <T extends OpenNLPEnricher> T setTokenizer(ATokenizer tokenizer) { this.tokenizer = tokenizer; return (T) this; }
 
+    public boolean isIncremental() { return this.incremental; }
+    /**
+     * @param incremental  if true, {@code enrich()} only processes documents that are new, modified since
+     *                     the last enrichment or enriched by a different model, see {@link IncrementalEnrichment}
+     */
+    public <T extends OpenNLPEnricher> T setIncremental(boolean incremental) { this.incremental = incremental; return (T) this; }
+
+    public boolean isServerNoop() { return this.serverNoop; }
+    /**
+     * @param serverNoop  if true, {@code enrich()} does not read existing predictions, and instead sends every prediction
+     *                    as a partial update with {@code detect_noop}, so unchanged documents are not rewritten by ES
+     */
+    public <T extends OpenNLPEnricher> T setServerNoop(boolean serverNoop) { this.serverNoop = serverNoop; return (T) this; }
+
+    /**
+     * @return {@code _source} includes for enrich(): the id and input fields, plus existing predictions for client-side diffing
+     */
+    protected List<String> getEnrichSourceFields() {
+        List<String> sourceFields = new ArrayList<>();
+        sourceFields.add("id");
+        sourceFields.addAll(this.fields);
+        if( !this.serverNoop ) {
+            sourceFields.add(this.getUpdateKey(this.target));
+        }
+        return sourceFields;
+    }
+
+    /**
+     * @param docValueFields  keyword fields (typically the target) to read from doc values rather than {@code _source}
+     */
+    public <T extends OpenNLPEnricher> T setDocValueFields(List<String> docValueFields) { this.docValueFields = new ArrayList<>(docValueFields); return (T) this; }
+
+    public @Nullable String getLabeledAtField() { return this.labeledAtField; }
+    /**
+     * @param labeledAtField  numeric or date field set when a document is labeled, required by {@code trainIncremental()}
+     */
+    public <T extends OpenNLPEnricher> T setLabeledAtField(String labeledAtField) { this.labeledAtField = labeledAtField; return (T) this; }
+
+    public @Nullable String getUpdatedAtField() { return this.updatedAtField; }
+    /**
+     * @param updatedAtField  numeric or date field set when the input fields are modified, so incremental {@code enrich()}
+     *                        re-enriches modified documents, see {@link IncrementalEnrichment}
+     */
+    public <T extends OpenNLPEnricher> T setUpdatedAtField(String updatedAtField) { this.updatedAtField = updatedAtField; return (T) this; }
+
     public String getUpdateKey(String target) { return this.prefix.isEmpty() ? target : (this.prefix+'.'+target); }
 
 
@@ -73,23 +128,86 @@ public class OpenNLPEnricher {
         try (
             ESDocumentStream stream = new ESDocumentStream(
                 index, fields, target, streamQuery
-            ).setTokenizer(classifier.getTokenizer())
+            ).setDocValueFields(this.docValueFields)
+             .setTokenizer(classifier.getTokenizer())
         ) {
             classifier.train(stream);
         }
         return (T) this;
     }
 
+    public <T extends OpenNLPEnricher> T trainIncremental(ModelRegistry<DoccatModel> registry, @Nullable String context) throws IOException {
+        return trainIncremental(registry, context, null);
+    }
+    /**
+     * Updates the model with only the documents labeled since the last snapshot, then puts a new snapshot in the registry
+     * <p/>
+     * The registry model for {@code ModelKey(index, target, context)} is loaded if no model is loaded yet.
+     * Its high-water mark selects the new documents, whose counts are added to the NAIVEBAYES model,
+     * so cost follows the volume of new labels rather than the corpus size, see {@link IncrementalTraining}.
+     * A model without a high-water mark, or no model at all, is trained from scratch on every labeled document.
+     * Snapshots are numbered as the next {@link ModelVersion}
+     */
+    public <T extends OpenNLPEnricher> T trainIncremental(
+        ModelRegistry<DoccatModel> registry, @Nullable String context, @Nullable QueryBuilder query
+    ) throws IOException {
+        if( this.labeledAtField == null ) {
+            throw new IllegalStateException("trainIncremental() requires setLabeledAtField()");
+        }
+        ModelKey key = new ModelKey(this.index, this.target, context);
+        if( this.classifier.getModel() == null && registry.contains(key) ) {
+            this.classifier.load(registry, key);
+        }
+        BoolQueryBuilder labeledQuery = new BoolQueryBuilder();
+        labeledQuery.must(existsQuery(target));
+        if( query != null ) { labeledQuery.must(query); }
+
+        Long after = IncrementalTraining.getHighWaterMark(this.classifier.getModel());
+        IncrementalTraining.refresh(this.index);  // documents labeled before now are visible to the bound and the scroll
+        Long upTo  = IncrementalTraining.getMaxValue(this.index, this.labeledAtField,
+            IncrementalTraining.getNewLabelsQuery(labeledQuery, this.labeledAtField, after, null)
+        );
+        if( upTo == null ) {
+            logger.info("{} | {} | no new labels since {}", this.index, this.target, after);
+            return (T) this;
+        }
+
+        QueryBuilder newLabelsQuery = IncrementalTraining.getNewLabelsQuery(labeledQuery, this.labeledAtField, after, upTo);
+        long started = System.currentTimeMillis();
+        long newLabels;
+        try (
+            ESDocumentStream stream = new ESDocumentStream(
+                index, fields, target, newLabelsQuery
+            ).setDocValueFields(this.docValueFields)
+             .setTokenizer(classifier.getTokenizer())
+        ) {
+            if( after != null ) { classifier.update(stream); }
+            else                { classifier.train(stream);  }
+            Long totalHits = stream.getTotalHits();
+            newLabels = ( totalHits != null ) ? totalHits : 0;
+        }
+
+        long version = ModelVersion.nextVersion(IncrementalTraining.getVersion(this.classifier.getModel()));
+        this.classifier.setModel(IncrementalTraining.withSnapshot(this.classifier.getModel(), version, upTo));
+        this.classifier.save(registry, key);
+        logger.info("{} | {} | {} {} labels in {} ms | wrote: {} version {}", this.index, this.target,
+            ( after != null ) ? "updated with" : "trained on", newLabels, System.currentTimeMillis() - started, key, version);
+        return (T) this;
+    }
+
 
 
     //***** Enrich *****//
 
     public <T extends OpenNLPEnricher> T enrich() { return enrich(null); }
     public <T extends OpenNLPEnricher> T enrich(@Nullable QueryBuilder query) {
+        if( this.incremental ) { return this.enrichIncremental(query); }
         try(
             var updateQueue = new BulkUpdateQueue(this.index)
         ) {
-            var request = new ScanAndScrollIterator<>(String.class, index, query);
+            var request = new ScanAndScrollIterator<>(String.class, index, this.getEnrichSourceFields(), query)
+                .setDocValueFields(this.docValueFields)
+            ;
             while( request.hasNext() ) {
                 String json         = request.next();
                 ESJsonPath jsonPath = new ESJsonPath(json);
@@ -106,6 +224,30 @@ public class OpenNLPEnricher {
         return (T) this;
     }
 
+    protected <T extends OpenNLPEnricher> T enrichIncremental(@Nullable QueryBuilder query) {
+        long   enrichedAt  = System.currentTimeMillis();
+        String fingerprint = IncrementalEnrichment.getFingerprint(Map.of(this.target, this.classifier));
+        QueryBuilder staleQuery = IncrementalEnrichment.getStaleQuery(this.prefix, fingerprint, this.updatedAtField, query);
+        try(
+            var updateQueue = new BulkUpdateQueue(this.index)
+        ) {
+            var request = new ScanAndScrollIterator<>(SearchHit.class, index, this.fields, staleQuery);
+            while( request.hasNext() ) {
+                SearchHit hit       = request.next();
+                ESJsonPath jsonPath = new ESJsonPath(hit.getSourceAsString());
+                String[] tokens     = this.tokenizer.tokenize(jsonPath.get(this.fields));
+                String prediction   = this.classifier.predict(tokens);
+
+                Map<String, Object> updateMap = new HashMap<>(
+                    IncrementalEnrichment.getStateUpdate(this.prefix, fingerprint, enrichedAt)
+                );
+                updateMap.put(this.getUpdateKey(this.target), prediction);
+                updateQueue.update(hit.getId(), updateMap);
+            }
+        }
+        return (T) this;
+    }
+
     private static boolean isUpdateRequired(ESJsonPath jsonPath, String updateKey, String prediction) {
         String existing = jsonPath.get(updateKey);
         return !prediction.equals(existing);
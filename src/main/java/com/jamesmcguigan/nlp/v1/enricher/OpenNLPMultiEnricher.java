@@ -9,18 +9,24 @@ import com.jamesmcguigan.nlp.utils.iterators.multiplex.MultiplexIterator;
 import com.jamesmcguigan.nlp.utils.iterators.multiplex.MultiplexIterators;
 import com.jamesmcguigan.nlp.utils.iterators.streams.FilteredJsonDocumentStream;
 import com.jamesmcguigan.nlp.utils.iterators.streams.JsonDocumentStream;
+import com.jamesmcguigan.nlp.utils.models.ModelKey;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
 import com.jamesmcguigan.nlp.utils.tokenize.ATokenizer;
 import com.jamesmcguigan.nlp.utils.tokenize.NLPTokenizer;
 import com.jamesmcguigan.nlp.v1.classifier.OpenNLPClassifier;
+import opennlp.tools.doccat.DoccatModel;
 import opennlp.tools.tokenize.Tokenizer;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
 
 import javax.annotation.Nullable;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
@@ -41,8 +47,12 @@ public class OpenNLPMultiEnricher {
     protected final List<String> fields;
     protected final List<String> targets;
     protected String             prefix = "_opennlp";
+    protected boolean            incremental = false;
+    protected boolean            serverNoop  = false;
+    protected List<String>       docValueFields = Collections.emptyList();
+    @Nullable protected String   updatedAtField;
 
-    protected final Map<String, OpenNLPClassifier> classifiers;
+    protected final AtomicReference<ModelVersion> classifiers;
 
 
     //***** Constructors *****//
@@ -51,10 +61,10 @@ public class OpenNLPMultiEnricher {
         this.index   = index;
         this.fields  = fields;
         this.targets = targets;
-        this.classifiers = targets.stream().collect(Collectors.toMap(
+        this.classifiers = new AtomicReference<>(new ModelVersion(0, targets.stream().collect(Collectors.toMap(
             (String target) -> target,
             (String target) -> new OpenNLPClassifier()
-        ));
+        ))));
     }
     public OpenNLPMultiEnricher(String index, List<String> fields, List<String> targets, String prefix) {
         this(index, fields, targets);
@@ -66,8 +76,47 @@ public class OpenNLPMultiEnricher {
 
     //***** Getters / Setters *****//
 
+    public boolean isServerNoop() { return this.serverNoop; }
+    /**
+     * @param serverNoop  if true, {@code enrich()} does not read existing predictions, and instead sends every prediction
+     *                    as a partial update with {@code detect_noop}, so unchanged documents are not rewritten by ES
+     */
+    public <T extends OpenNLPMultiEnricher> T setServerNoop(boolean serverNoop) { this.serverNoop = serverNoop; return (T) this; }
+
+    /**
+     * @return {@code _source} includes for enrich(): the id and input fields, plus existing predictions for client-side diffing
+     */
+    protected List<String> getEnrichSourceFields() {
+        List<String> sourceFields = new ArrayList<>();
+        sourceFields.add("id");
+        sourceFields.addAll(this.fields);
+        if( !this.serverNoop ) {
+            for( String target : this.targets ) { sourceFields.add(this.getUpdateKey(target)); }
+        }
+        return sourceFields;
+    }
+
+    /**
+     * @param docValueFields  keyword fields (typically targets) to read from doc values rather than {@code _source}
+     */
+    public <T extends OpenNLPMultiEnricher> T setDocValueFields(List<String> docValueFields) { this.docValueFields = new ArrayList<>(docValueFields); return (T) this; }
+
     public String getUpdateKey(String target) { return this.prefix.isEmpty() ? target : (this.prefix+'.'+target); }
 
+    public boolean isIncremental() { return this.incremental; }
+    /**
+     * @param incremental  if true, {@code enrich()} only processes documents that are new, modified since
+     *                     the last enrichment or enriched by a different model, see {@link IncrementalEnrichment}
+     */
+    public <T extends OpenNLPMultiEnricher> T setIncremental(boolean incremental) { this.incremental = incremental; return (T) this; }
+
+    public @Nullable String getUpdatedAtField() { return this.updatedAtField; }
+    /**
+     * @param updatedAtField  numeric or date field set when the input fields are modified, so incremental {@code enrich()}
+     *                        re-enriches modified documents, see {@link IncrementalEnrichment}
+     */
+    public <T extends OpenNLPMultiEnricher> T setUpdatedAtField(String updatedAtField) { this.updatedAtField = updatedAtField; return (T) this; }
+
     public Tokenizer getTokenizer() { return this.tokenizer; }
     public <T extends OpenNLPMultiEnricher> T setTokenizer(ATokenizer tokenizer) { this.tokenizer = tokenizer; return (T) this; }
 
@@ -75,8 +124,15 @@ public class OpenNLPMultiEnricher {
 
     //***** Iterators *****//
 
+    /**
+     * Training iterator, reading only the fields and targets from {@code _source}
+     */
     public Iterator<String> getIterator(@Nullable QueryBuilder query) {
-        return new ScanAndScrollIterator<>(String.class, this.index, query);
+        List<String> sourceFields = new ArrayList<>(this.fields);
+        sourceFields.addAll(this.targets);
+        return new ScanAndScrollIterator<>(String.class, this.index, sourceFields, query)
+            .setDocValueFields(this.docValueFields)
+        ;
     }
 
     protected QueryBuilder getTargetQuery(@Nullable QueryBuilder query) {
@@ -87,6 +143,32 @@ public class OpenNLPMultiEnricher {
     }
 
 
+    //***** Models *****//
+
+    /**
+     * @return current snapshot, which may be replaced at any time by {@code swapModels()}
+     */
+    public ModelVersion getModelVersion() { return this.classifiers.get(); }
+
+    public ModelVersion swapModel(String target, OpenNLPClassifier classifier) {
+        return this.swapModels(Map.of(target, classifier));
+    }
+    /**
+     * Atomically publishes a new ModelVersion, safe to call while {@code enrich()} is running.
+     * Documents already being predicted finish on the previous version
+     * @param replacements  trained classifiers by target
+     * @return              the published version
+     */
+    public ModelVersion swapModels(Map<String, ? extends OpenNLPClassifier> replacements) {
+        if( !this.targets.containsAll(replacements.keySet()) ) {
+            throw new IllegalArgumentException("Unknown targets " + replacements.keySet() + " not in " + this.targets);
+        }
+        ModelVersion version = this.classifiers.updateAndGet(current -> current.with(replacements));
+        logger.info("{} | model version {} for {}", this.index, version.getVersion(), replacements.keySet());
+        return version;
+    }
+
+
     //***** Train *****//
 
     public <T extends OpenNLPMultiEnricher> T train() { return train(null); }
@@ -101,28 +183,69 @@ public class OpenNLPMultiEnricher {
         return (T) this;
     }
 
+    /**
+     * Trains a new classifier and swaps it in once complete, so training can run alongside {@code enrich()}
+     */
     protected void trainClassifier(MultiplexIterator<String> iterator) {
         String target                = iterator.getName();
-        OpenNLPClassifier classifier = this.classifiers.get(target).setTokenizer(this.tokenizer);
+        OpenNLPClassifier classifier = new OpenNLPClassifier().setTokenizer(this.tokenizer);
         JsonDocumentStream stream    = new FilteredJsonDocumentStream(iterator, this.fields, target);
         try {
             classifier.train(stream);
+            this.swapModel(target, classifier);
         } catch( IOException e ) {
             logger.error(e);
         }
     }
 
 
+    //***** Model Registry *****//
+
+    /**
+     * @param context  pipeline {@code context:}, models are keyed by index/target/context
+     */
+    public <T extends OpenNLPMultiEnricher> T save(ModelRegistry<DoccatModel> registry, @Nullable String context) throws IOException {
+        ModelVersion models = this.getModelVersion();
+        for( String target : this.targets ) {
+            models.get(target).save(registry, new ModelKey(this.index, target, context));
+        }
+        return (T) this;
+    }
+    /**
+     * Swaps in all targets from the registry as a single version, so can be used to adopt retrained models.
+     * Each model is resolved once here and pinned in the version with the enricher's tokenizer,
+     * so a later {@code registry.put()} or eviction does not change the models of a running {@code enrich()}
+     * @throws FileNotFoundException if the registry contains no model for a target
+     */
+    public <T extends OpenNLPMultiEnricher> T load(ModelRegistry<DoccatModel> registry, @Nullable String context) throws IOException {
+        Map<String, OpenNLPClassifier> loaded = new HashMap<>();
+        Map<String, ModelKey>          keys   = new HashMap<>();
+        for( String target : this.targets ) {
+            ModelKey    key   = new ModelKey(this.index, target, context);
+            DoccatModel model = registry.get(key);
+            if( model == null ) { throw new FileNotFoundException("No model in registry for " + key); }
+            loaded.put(target, new OpenNLPClassifier().setTokenizer(this.tokenizer).setModel(model));
+            keys.put(target, key);
+        }
+        ModelVersion version = this.classifiers.updateAndGet(current -> current.with(loaded, keys));
+        logger.info("{} | model version {} for {} from registry", this.index, version.getVersion(), keys.keySet());
+        return (T) this;
+    }
+
+
 
     //***** Enrich *****//
 
     public <T extends OpenNLPMultiEnricher> T enrich() { return enrich(null); }
     public <T extends OpenNLPMultiEnricher> T enrich(@Nullable QueryBuilder query) {
+        if( this.incremental ) { return this.enrichIncremental(query); }
         try(
             BulkUpdateQueue updateQueue = new BulkUpdateQueue(this.index)
         ) {
             // Read the items from scanAndScroll one at a time
-            var scanAndScroll = new ScanAndScrollIterator<>(String.class, this.index, query);
+            var scanAndScroll = new ScanAndScrollIterator<>(String.class, this.index, this.getEnrichSourceFields(), query)
+                .setDocValueFields(this.docValueFields)
+            ;
             Streams.stream(scanAndScroll)
                 .parallel()
                 .map(this::predictUpdatePairFromJson)
@@ -139,15 +262,57 @@ public class OpenNLPMultiEnricher {
         return (T) this;
     }
 
-    private @Nullable ImmutablePair<String, Map<String, Object>> predictUpdatePairFromJson(String json) {
-        var jsonPath    = new ESJsonPath(json);
-        String id       = jsonPath.get("id");
+    protected <T extends OpenNLPMultiEnricher> T enrichIncremental(@Nullable QueryBuilder query) {
+        long   enrichedAt       = System.currentTimeMillis();
+        String fingerprint      = this.getModelVersion().getFingerprint();
+        QueryBuilder staleQuery = IncrementalEnrichment.getStaleQuery(this.prefix, fingerprint, this.updatedAtField, query);
+        try(
+            BulkUpdateQueue updateQueue = new BulkUpdateQueue(this.index)
+        ) {
+            var scanAndScroll = new ScanAndScrollIterator<>(SearchHit.class, this.index, this.fields, staleQuery);
+            Streams.stream(scanAndScroll)
+                .parallel()
+                .map((SearchHit hit) -> new ImmutablePair<>(
+                    hit.getId(), this.predictIncrementalUpdateMap(new ESJsonPath(hit.getSourceAsString()), enrichedAt)
+                ))
+                .forEachOrdered(pair -> updateQueue.update(pair.getLeft(), pair.getRight()))
+            ;
+        }
+        return (T) this;
+    }
+
+    /**
+     * Always includes the state, so unchanged predictions are not re-selected next run
+     */
+    Map<String, Object> predictIncrementalUpdateMap(ESJsonPath jsonPath, long enrichedAt) {
+        ModelVersion models = this.getModelVersion();
+        Map<String, Object> updateMap = this.predictUpdateMap(jsonPath, models);
+        updateMap.putAll(IncrementalEnrichment.getStateUpdate(this.prefix, models.getFingerprint(), enrichedAt));
+        updateMap.put(IncrementalEnrichment.getVersionKey(this.prefix), models.getVersion());
+        return updateMap;
+    }
+
+    @Nullable ImmutablePair<String, Map<String, Object>> predictUpdatePairFromJson(String json) {
+        var jsonPath = new ESJsonPath(json);
+        String id    = jsonPath.get("id");
+        ModelVersion models = this.getModelVersion();
+        Map<String, Object> updateMap = this.predictUpdateMap(jsonPath, models);
+        if( updateMap.isEmpty() ) { return null; }
+        updateMap.put(IncrementalEnrichment.getVersionKey(this.prefix), models.getVersion());
+        return new ImmutablePair<>(id, updateMap);
+    }
+
+    /**
+     * @param models  snapshot read once per document, so all targets are predicted by the same version
+     * @return        predictions for each target that differ from the existing value
+     */
+    Map<String, Object> predictUpdateMap(ESJsonPath jsonPath, ModelVersion models) {
         String[] tokens = this.tokenizer.tokenize(jsonPath.get(this.fields));
 
         // Loop over each of the target fields
         HashMap<String, Object> updateMap = new HashMap<>();
         for( String target : this.targets ) {
-            OpenNLPClassifier classifier = this.classifiers.get(target);
+            OpenNLPClassifier classifier = models.get(target);
             String prediction = classifier.predict(tokens);
             String updateKey  = this.getUpdateKey(target);
 
@@ -157,9 +322,7 @@ public class OpenNLPMultiEnricher {
                 updateMap.put(updateKey, prediction);
             }
         }
-        return ( !updateMap.isEmpty() )
-            ? new ImmutablePair<>(id, updateMap)
-            : null;
+        return updateMap;
     }
 
     private static boolean isUpdateRequired(ESJsonPath jsonPath, String updateKey, String prediction) {
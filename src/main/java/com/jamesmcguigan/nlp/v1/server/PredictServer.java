@@ -0,0 +1,346 @@
+package com.jamesmcguigan.nlp.v1.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.jamesmcguigan.nlp.utils.concurrent.BatchCoalescer;
+import com.jamesmcguigan.nlp.utils.metrics.LatencyHistogram;
+import com.jamesmcguigan.nlp.utils.models.ModelKey;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
+import com.jamesmcguigan.nlp.utils.tokenize.ATokenizer;
+import com.jamesmcguigan.nlp.utils.tokenize.NLPTokenizer;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPClassifier;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPModelCodec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import opennlp.tools.doccat.DoccatModel;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import picocli.CommandLine;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Usage:
+// java -cp target/classes:`cat classpath` com.jamesmcguigan.nlp.v1.server.PredictServer --models models/
+// curl -s localhost:8080/predict -d '{"dataset":"twitter","target":"target","text":"Forest fire near La Ronge"}'
+// curl -s localhost:8080/predict/batch -d '[{"dataset":"twitter","target":"target","text":"..."}, ...]'
+// curl -s localhost:8080/stats
+
+/**
+ * Long-running HTTP prediction service over a {@link ModelRegistry} of OpenNLP models
+ * <p/>
+ * Tokenizers and models stay warm between requests. Concurrent requests for the same model are coalesced
+ * by a {@link BatchCoalescer}: a batch is flushed once it reaches {@code batchSize} items or {@code batchDelay}
+ * microseconds after its first item, then scored on the worker pool, loading the model once per batch.
+ * Coalescers exist only for models in the registry, and are closed when the registry evicts or replaces the model.
+ * {@code /stats} reports request count and p50/p99 latency for each endpoint
+ */
+@SuppressWarnings({"FieldMayBeFinal", "FieldCanBeLocal"})
+@CommandLine.Command(
+    name = "PredictServer",
+    description = "HTTP prediction service"
+)
+public class PredictServer implements Callable<Integer>, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+    private static final Gson gson = new Gson();
+
+    @CommandLine.Option(names={"-m", "--models"}, required=true, description="ModelRegistry directory")
+    private Path modelDirectory;
+
+    @CommandLine.Option(names={"-p", "--port"}, description="HTTP port (default: 8080)")
+    private int port = 8080;
+
+    @CommandLine.Option(names={"--heap-budget"}, description="Heap budget for loaded models in MB (default: 1024)")
+    private long heapBudgetMB = 1024;
+
+    @CommandLine.Option(names={"--batch-size"}, description="Maximum items per micro-batch (default: 64)")
+    private int batchSize = 64;
+
+    @CommandLine.Option(names={"--batch-delay"}, description="Maximum wait in microseconds to fill a micro-batch (default: 2000)")
+    private long batchDelayMicros = 2000;
+
+    @CommandLine.Option(names={"-t", "--threads"}, description="Worker pool size (default: number of processors)")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private ModelRegistry<DoccatModel> registry;
+    private ATokenizer tokenizer = NLPTokenizer.getSharedTokenizer();
+    private final Map<ModelKey, BatchCoalescer<String, String>> coalescers = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private final AtomicLong batchCount = new AtomicLong();  // counted here, as coalescers are discarded on eviction
+    private final AtomicLong itemCount  = new AtomicLong();
+    private volatile boolean running = false;
+    private @Nullable ExecutorService workers;
+    private @Nullable ExecutorService handlers;
+    private @Nullable HttpServer      server;
+
+    protected PredictServer() {}
+    /**
+     * @param batchSize         maximum items per micro-batch
+     * @param batchDelayMicros  maximum wait to fill a micro-batch after its first item
+     * @param threads           worker pool size
+     */
+    public PredictServer(ModelRegistry<DoccatModel> registry, int batchSize, long batchDelayMicros, int threads) {
+        if(!( batchSize >= 1 ))        { throw new IllegalArgumentException("PRECONDITION: batchSize="+batchSize+" >= 1"); }
+        if(!( batchDelayMicros >= 0 )) { throw new IllegalArgumentException("PRECONDITION: batchDelayMicros="+batchDelayMicros+" >= 0"); }
+        if(!( threads >= 1 ))          { throw new IllegalArgumentException("PRECONDITION: threads="+threads+" >= 1"); }
+        this.registry         = registry;
+        this.batchSize        = batchSize;
+        this.batchDelayMicros = batchDelayMicros;
+        this.threads          = threads;
+    }
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new PredictServer()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public Integer call() throws InterruptedException {
+        this.registry = new ModelRegistry<>(this.modelDirectory, new OpenNLPModelCodec(), this.heapBudgetMB * 1024 * 1024);
+        try {
+            this.start(new InetSocketAddress(this.port));
+        } catch( IOException e ) {
+            logger.error("Unable to start server on port {}: {}", this.port, e);
+            return 1;
+        }
+        CountDownLatch shutdown = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> { this.close(); shutdown.countDown(); }));
+        shutdown.await();
+        return 0;
+    }
+
+
+    //***** Request / Response *****//
+
+    public static class PredictRequest {
+        public String dataset;
+        public String target;
+        public @Nullable String context;
+        public String text;
+
+        public PredictRequest() {}
+        public PredictRequest(String dataset, String target, @Nullable String context, String text) {
+            this.dataset = dataset;
+            this.target  = target;
+            this.context = context;
+            this.text    = text;
+        }
+    }
+
+    public static class Prediction {
+        public final String dataset;
+        public final String target;
+        public final String context;
+        public final String label;
+
+        Prediction(ModelKey key, String label) {
+            this.dataset = key.getDataset();
+            this.target  = key.getTarget();
+            this.context = key.getContext();
+            this.label   = label;
+        }
+    }
+
+
+
+    //***** Predict *****//
+
+    /**
+     * Coalesces concurrent requests for the same model into micro-batches
+     * @return future completed with the prediction, or exceptionally with NoSuchElementException if no model exists
+     */
+    public CompletableFuture<Prediction> predict(PredictRequest request) {
+        if( request == null || request.dataset == null || request.target == null || request.text == null ) {
+            throw new IllegalArgumentException("dataset, target and text are required");
+        }
+        ModelKey key = new ModelKey(request.dataset, request.target, request.context);
+        return this.submit(key, request.text).thenApply(label -> new Prediction(key, label));
+    }
+
+    public List<CompletableFuture<Prediction>> predict(List<PredictRequest> requests) {
+        return requests.stream().map(this::predict).collect(Collectors.toList());
+    }
+
+    /**
+     * Retries on a new coalescer if the model was evicted between the lookup and the submit
+     */
+    private CompletableFuture<String> submit(ModelKey key, String text) {
+        while( this.running ) {
+            if( !this.coalescers.containsKey(key) && !this.registry.contains(key) ) {
+                return CompletableFuture.failedFuture(new NoSuchElementException("No model for " + key));
+            }
+            BatchCoalescer<String, String> coalescer = this.coalescers.computeIfAbsent(key, k -> new BatchCoalescer<>(
+                texts -> this.score(k, texts), this.batchSize, this.batchDelayMicros, Objects.requireNonNull(this.workers)
+            ));
+            CompletableFuture<String> future = coalescer.trySubmit(text);
+            if( future != null ) { return future; }
+            this.coalescers.remove(key, coalescer);
+        }
+        return CompletableFuture.failedFuture(new IllegalStateException("server is not running"));
+    }
+
+    /**
+     * Registry eviction listener, waiting requests are still scored, reloading the model
+     */
+    private void removeCoalescer(ModelKey key) {
+        BatchCoalescer<String, String> coalescer = this.coalescers.remove(key);
+        if( coalescer != null ) { coalescer.close(); }
+    }
+
+    int getCoalescerCount() { return this.coalescers.size(); }
+
+    /**
+     * Loads the model once per batch, then predicts every item against it
+     */
+    private List<String> score(ModelKey key, List<String> texts) {
+        this.batchCount.incrementAndGet();
+        this.itemCount.addAndGet(texts.size());
+        DoccatModel model = this.registry.get(key);
+        if( model == null ) { throw new NoSuchElementException("No model for " + key); }
+        OpenNLPClassifier classifier = new OpenNLPClassifier().setTokenizer(this.tokenizer).setModel(model);
+        return classifier.predictBatch(texts);
+    }
+
+
+    //***** Stats *****//
+
+    public LatencyHistogram getLatency(String endpoint) {
+        return this.latencies.computeIfAbsent(endpoint, k -> new LatencyHistogram());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        this.latencies.forEach((endpoint, histogram) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count",   histogram.getCount());
+            stats.put("p50_ms",  histogram.getPercentile(50).toNanos() / 1e6);
+            stats.put("p99_ms",  histogram.getPercentile(99).toNanos() / 1e6);
+            stats.put("max_ms",  histogram.getMax().toNanos() / 1e6);
+            stats.put("mean_ms", histogram.getMean().toNanos() / 1e6);
+            endpoints.put(endpoint, stats);
+        });
+        long batchCount = this.batchCount.get();
+        long itemCount  = this.itemCount.get();
+        Map<String, Object> output = new LinkedHashMap<>();
+        output.put("endpoints",       endpoints);
+        output.put("batches",         batchCount);
+        output.put("mean_batch_size", ( batchCount == 0 ) ? 0.0 : (double) itemCount / batchCount);
+        output.put("queued",          this.coalescers.values().stream().mapToInt(BatchCoalescer::getPendingCount).sum());
+        output.put("models_loaded",   this.registry.getLoadedCount());
+        output.put("model_heap_mb",   this.registry.getHeapUsage() / 1024.0 / 1024.0);
+        return output;
+    }
+
+
+    //***** HTTP *****//
+
+    /**
+     * @param address  use port 0 for an ephemeral port, see {@code getAddress()}
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if( this.running ) { throw new IllegalStateException("server already started"); }
+        AtomicInteger count = new AtomicInteger();
+        this.workers  = BatchCoalescer.newWorkerPool(this.threads, "predict");
+        this.handlers = Executors.newCachedThreadPool(runnable -> daemon(runnable, "http-" + count.incrementAndGet()));
+        this.running  = true;
+        this.registry.addEvictionListener(this::removeCoalescer);
+
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(this.handlers);
+        this.server.createContext("/predict/batch", exchange -> this.handle(exchange, "/predict/batch", body -> {
+            PredictRequest[] requests = gson.fromJson(body, PredictRequest[].class);
+            if( requests == null ) { throw new IllegalArgumentException("expected a JSON array of requests"); }
+            List<Prediction> output = new ArrayList<>();
+            for( CompletableFuture<Prediction> future : this.predict(Arrays.asList(requests)) ) {
+                output.add(future.join());
+            }
+            return output;
+        }));
+        this.server.createContext("/predict", exchange -> this.handle(exchange, "/predict", body ->
+            this.predict(gson.fromJson(body, PredictRequest.class)).join()
+        ));
+        this.server.createContext("/stats", exchange -> this.handle(exchange, null, body -> this.getStats()));
+        this.server.start();
+        logger.info("PredictServer listening on {} | models: {}", this.getAddress(), this.registry.getDirectory());
+    }
+
+    public InetSocketAddress getAddress() {
+        return Objects.requireNonNull(this.server, "server not started").getAddress();
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String body);
+    }
+
+    /**
+     * @param endpoint  latency histogram name, or null to not record latency
+     */
+    private void handle(HttpExchange exchange, @Nullable String endpoint, Handler handler) throws IOException {
+        long start = System.nanoTime();
+        int status;
+        Object response;
+        try {
+            if( endpoint != null && !"POST".equals(exchange.getRequestMethod()) ) {
+                status   = 405;
+                response = Map.of("error", "POST required");
+            } else {
+                String body;
+                try( InputStream input = exchange.getRequestBody() ) {
+                    body = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                response = handler.handle(body);
+                status   = 200;
+            }
+        } catch( JsonParseException | IllegalArgumentException e ) {
+            status   = 400;
+            response = Map.of("error", String.valueOf(e.getMessage()));
+        } catch( CompletionException e ) {
+            Throwable cause = ( e.getCause() != null ) ? e.getCause() : e;
+            status   = ( cause instanceof NoSuchElementException ) ? 404 : 500;
+            response = Map.of("error", String.valueOf(cause.getMessage()));
+            if( status == 500 ) { logger.error("{} | {}", exchange.getRequestURI(), cause); }
+        } catch( RuntimeException e ) {
+            status   = 500;
+            response = Map.of("error", String.valueOf(e.getMessage()));
+            logger.error("{} | {}", exchange.getRequestURI(), e);
+        }
+
+        byte[] bytes = gson.toJson(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try( OutputStream output = exchange.getResponseBody() ) {
+            output.write(bytes);
+        } catch( IOException e ) {
+            logger.debug("{} | client disconnected", exchange.getRequestURI());
+        }
+        if( endpoint != null ) { this.getLatency(endpoint).recordNanos(System.nanoTime() - start); }
+    }
+
+    @Override
+    public synchronized void close() {
+        if( !this.running ) { return; }
+        this.running = false;
+        if( this.server  != null ) { this.server.stop(0); }
+        this.coalescers.values().forEach(BatchCoalescer::close);  // score waiting requests before shutdown
+        if( this.workers  != null ) { this.workers.shutdown(); }
+        if( this.handlers != null ) { this.handlers.shutdownNow(); }
+        logger.info("PredictServer stopped | {}", gson.toJson(this.getStats()));
+    }
+}
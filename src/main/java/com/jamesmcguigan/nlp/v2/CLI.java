@@ -3,6 +3,8 @@ package com.jamesmcguigan.nlp.v2;
 import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
 import com.jamesmcguigan.nlp.v2.config.YamlParser;
 import com.jamesmcguigan.nlp.v2.controller.Controller;
+import com.jamesmcguigan.nlp.v2.controller.TaskScheduler;
+import com.jamesmcguigan.nlp.v2.datasets.DatasetRegistry;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,6 +14,7 @@ import picocli.CommandLine;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 // Usage:
 // java -cp target/classes:`cat classpath` com.jamesmcguigan.nlp.v2.CLI
@@ -30,6 +33,12 @@ public class CLI implements Callable<Integer> {
     @CommandLine.Option(names={"-c", "--config"}, required=true, description="YAML configuration file")
     private Path path;
 
+    @CommandLine.Option(names={"--cache"}, description="Directory for the binary dataset cache (disabled if unset)")
+    private Path cacheDirectory = null;
+
+    @CommandLine.Option(names={"-t", "--threads"}, description="Thread pool size (default: number of processors)")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
     @CommandLine.Option(names={"-v", "--verbose"}, description="Verbose Logging")
     private boolean verbose = false;
 
@@ -63,11 +72,20 @@ public class CLI implements Callable<Integer> {
     public void setQuiet()   { Configurator.setAllLevels(LogManager.getRootLogger().getName(), Level.ERROR); }
     public void setVerbose() { Configurator.setAllLevels(LogManager.getRootLogger().getName(), Level.DEBUG); }
 
+    /**
+     * All configs in the file are scheduled on a shared pool and run concurrently, sharing loaded datasets
+     */
     private void parseConfig() {
         List<ControllerConfig> configs = YamlParser.getExtractorConfigs(this.path);
-        for( ControllerConfig config : configs ) {
-            Controller controller = new Controller(config);
-            controller.run();
+        try( DatasetRegistry registry = new DatasetRegistry(this.cacheDirectory) ) {
+            List<Controller> controllers = configs.stream()
+                .map(config -> new Controller(config, registry))
+                .collect(Collectors.toList())
+            ;
+            try( TaskScheduler scheduler = new TaskScheduler(this.threads) ) {
+                controllers.forEach(controller -> controller.schedule(scheduler));
+                scheduler.run();
+            }
         }
     }
 }
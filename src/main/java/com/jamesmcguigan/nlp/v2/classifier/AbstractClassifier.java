@@ -0,0 +1,234 @@
+package com.jamesmcguigan.nlp.v2.classifier;
+
+import com.jamesmcguigan.nlp.utils.elasticsearch.update.BulkUpdateQueue;
+import com.jamesmcguigan.nlp.utils.elasticsearch.update.UpdateQueue;
+import com.jamesmcguigan.nlp.utils.features.HashingVectorizer;
+import com.jamesmcguigan.nlp.utils.features.SparseVector;
+import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import com.jamesmcguigan.nlp.v2.config.Task;
+import com.jamesmcguigan.nlp.v2.datasets.DataRow;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+import com.jamesmcguigan.nlp.v2.extractor.AbstractExtractor;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Base class for native classifiers over hashed sparse features, one model per {@code predict} label
+ * <pre>
+ *     configuration:
+ *       predict:       # label fields, one model each
+ *         - target
+ *       fields:        # optional, default: all text fields
+ *         - text
+ *       bits:   20     # optional, 2^bits hashed feature dimensions
+ *       ngrams: 1      # optional, maximum word n-gram length
+ * </pre>
+ * Tasks:
+ * <pre>
+ *     train   fits a model for each label on the train stream of every dataset
+ *     csv     writes predictions for the test stream to each dataset's {@code files.output}
+ *     enrich  writes predictions for the test stream back to each dataset's elasticsearch {@code index}
+ *             as {@code _{context}.{label}}
+ * </pre>
+ * Extractor instances are shared between the tasks of a pipeline, so models trained by {@code train}
+ * are used by later stages
+ */
+public abstract class AbstractClassifier extends AbstractExtractor {
+    private static final Logger logger = LogManager.getLogger();
+
+    protected final HashingVectorizer vectorizer;
+    private final ThreadLocal<SparseVector>         buffers = ThreadLocal.withInitial(SparseVector::new);
+    private final Map<DatasetConfig, List<String>>  fields  = new ConcurrentHashMap<>();
+
+    protected AbstractClassifier(ControllerConfig parentConfig) {
+        super(parentConfig);
+        this.vectorizer = this.newVectorizer(
+            this.getConfigurationInt("bits", HashingVectorizer.DEFAULT_BITS),
+            this.getConfigurationInt("ngrams", 1)
+        );
+    }
+
+    /**
+     * Subclasses may override, eg to disable signed or normalized features
+     */
+    protected HashingVectorizer newVectorizer(int bits, int ngrams) {
+        return new HashingVectorizer(bits).setNgrams(ngrams);
+    }
+
+
+    //***** Abstract *****//
+
+    /**
+     * Fits or replaces the model for one label
+     */
+    protected abstract void train(String label, List<Dataset> datasets);
+
+    /**
+     * @return predicted class, or null if no model has been trained for the label
+     */
+    public abstract @Nullable String predict(String label, DataRow row);
+
+
+    //***** Tasks *****//
+
+    @Override
+    public void run(Task task, List<Dataset> datasets) {
+        switch( task ) {
+            case train:
+                for( String label : this.getLabels() ) { this.train(label, datasets); }
+                break;
+            case csv:
+                for( Dataset dataset : datasets ) { this.writeCSV(dataset); }
+                break;
+            case enrich:
+                for( Dataset dataset : datasets ) { this.enrich(dataset); }
+                break;
+            default:
+                logger.debug("{} | {} | task not supported by {}", this.getContext(), task, this.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Predictions are computed in parallel and written in test stream order
+     * Columns are {@code output_mapping} if configured, else the id field followed by each label
+     */
+    protected void writeCSV(Dataset dataset) {
+        List<String> labels = this.getLabels();
+        try( Stream<DataRow> rows = dataset.getTestStream() ) {
+            CSVPrinter[] printer = { null };
+            rows.parallel()
+                .map(row -> new AbstractMap.SimpleImmutableEntry<>(row, this.getRecord(row, labels)))
+                .forEachOrdered(entry -> {
+                    try {
+                        if( printer[0] == null ) { printer[0] = this.openCSV(entry.getKey().getConfig(), labels); }
+                        if( printer[0] != null ) { printer[0].printRecord(entry.getValue()); }
+                    } catch( IOException e ) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+            ;
+            if( printer[0] != null ) { printer[0].close(); }
+        } catch( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Datasets without an {@code index} are skipped, as there is nowhere to write predictions back to
+     */
+    protected void enrich(Dataset dataset) {
+        List<String> labels = this.getLabels();
+        try( Stream<DataRow> rows = dataset.getTestStream() ) {
+            UpdateQueue[] queue = { null };
+            rows.forEach(row -> {
+                String index = row.getConfig().getIndex();
+                if( index == null ) { return; }
+                if( queue[0] == null ) {
+                    logger.info("{} | {} | enriching: {}", this.getContext(), row.getConfig().getName(), index);
+                    queue[0] = new BulkUpdateQueue(index);
+                }
+                Map<String, Object> updates = new HashMap<>();
+                for( String label : labels ) {
+                    String prediction = this.predict(label, row);
+                    if( prediction != null ) { updates.put(this.getEnrichKey(label), prediction); }
+                }
+                Object id = row.getDecoded(row.getConfig().getIdField());
+                if( id != null ) { queue[0].update(id.toString(), updates); }
+            });
+            if( queue[0] != null ) { queue[0].close(); }
+        } catch( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String getEnrichKey(String label) {
+        return "_" + this.getContext() + "." + label;
+    }
+
+    private @Nullable CSVPrinter openCSV(DatasetConfig config, List<String> labels) throws IOException {
+        if( config.getFiles() == null || config.getFiles().output == null ) {
+            logger.warn("{} | {} | no files.output configured, skipping csv", this.getContext(), config.getName());
+            return null;
+        }
+        Path output = config.getFiles().output;
+        if( output.toAbsolutePath().getParent() != null ) { Files.createDirectories(output.toAbsolutePath().getParent()); }
+        logger.info("{} | {} | writing: {}", this.getContext(), config.getName(), output);
+
+        List<String> header = new ArrayList<>();
+        if( config.getOutputMapping() != null ) {
+            header.addAll(config.getOutputMapping().keySet());
+        } else {
+            header.add(config.getIdField());
+            header.addAll(labels);
+        }
+        return new CSVPrinter(Files.newBufferedWriter(output), CSVFormat.DEFAULT.withHeader(header.toArray(new String[0])));
+    }
+
+    private List<Object> getRecord(DataRow row, List<String> labels) {
+        Map<String, String> mapping = row.getConfig().getOutputMapping();
+        List<String> columns = new ArrayList<>();
+        if( mapping != null ) {
+            columns.addAll(mapping.values());
+        } else {
+            columns.add(row.getConfig().getIdField());
+            columns.addAll(labels);
+        }
+        List<Object> record = new ArrayList<>(columns.size());
+        for( String field : columns ) {
+            record.add( labels.contains(field) ? this.predict(field, row) : row.getDecoded(field) );
+        }
+        return record;
+    }
+
+
+    //***** Features *****//
+
+    /**
+     * @return hashed features of the configured text fields, in a thread-local buffer valid until the next call
+     */
+    protected SparseVector vectorize(DataRow row) {
+        List<String[]> tokens = new ArrayList<>();
+        for( String field : this.getFields(row.getConfig()) ) {
+            tokens.add(row.getTokens(field));
+        }
+        return this.vectorizer.transform(tokens, this.buffers.get());
+    }
+
+    /**
+     * @return label value as a class string, or null if missing
+     */
+    protected static @Nullable String getLabelValue(DataRow row, String label) {
+        Object value = row.getDecoded(label);
+        return ( value != null ) ? value.toString() : null;
+    }
+
+
+    //***** Configuration *****//
+
+    protected List<String> getFields(DatasetConfig config) {
+        return this.fields.computeIfAbsent(config, key -> {
+            List<String> fields = this.getConfigurationStrings("fields");
+            if( fields != null ) { return fields; }
+            return key.getFields().entrySet().stream()
+                .filter(entry -> entry.getValue() == DatasetField.text)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList())
+            ;
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package com.jamesmcguigan.nlp.v2.classifier;
+
+import com.jamesmcguigan.nlp.utils.features.SparseVector;
+import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.datasets.DataRow;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+
+/**
+ * Logistic regression or linear SVM over hashed sparse features, trained by lock-free parallel SGD (Hogwild)
+ * <p/>
+ * Each epoch streams the train set of every dataset in parallel, with all threads updating the same
+ * {@link LinearModel} weights, so throughput scales with cores. The learning rate decays per epoch.
+ * <pre>
+ *     configuration:
+ *       loss:          log      # log = logistic regression, hinge = linear SVM
+ *       epochs:        5
+ *       learning_rate: 0.5
+ *       l2:            0.000001
+ * </pre>
+ * See {@link AbstractClassifier} for the shared feature and task configuration
+ */
+public class LinearClassifier extends AbstractClassifier {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final LinearModel.Loss loss;
+    private final int    epochs;
+    private final double learningRate;
+    private final double l2;
+    private final Map<String, LinearModel> models = new ConcurrentHashMap<>();
+
+    public LinearClassifier(ControllerConfig parentConfig) {
+        super(parentConfig);
+        Object loss       = this.getConfigurationValue("loss");
+        this.loss         = ( loss != null ) ? LinearModel.Loss.valueOf(loss.toString()) : LinearModel.Loss.log;
+        this.epochs       = this.getConfigurationInt("epochs", 5);
+        this.learningRate = this.getConfigurationDouble("learning_rate", 0.5);
+        this.l2           = this.getConfigurationDouble("l2", 1e-6);
+        if(!( this.epochs >= 1 )) { throw new IllegalArgumentException("PRECONDITION: epochs="+this.epochs+" >= 1"); }
+    }
+
+    public @Nullable LinearModel getModel(String label) { return this.models.get(label); }
+
+
+    //***** Training *****//
+
+    @Override
+    protected void train(String label, List<Dataset> datasets) {
+        LinearModel model = new LinearModel(this.vectorizer.getDimensions(), this.loss);
+        for( int epoch = 0; epoch < this.epochs; epoch++ ) {
+            float     rate    = (float) (this.learningRate / Math.sqrt(1.0 + epoch));
+            LongAdder rows    = new LongAdder();
+            long      started = System.nanoTime();
+            for( Dataset dataset : datasets ) {
+                try( Stream<DataRow> stream = dataset.getTrainStream() ) {
+                    stream.parallel().forEach(row -> {
+                        String value = getLabelValue(row, label);
+                        if( value == null ) { return; }
+                        int classId = model.getClassId(value);
+                        model.update(this.vectorize(row), classId, rate, (float) this.l2);
+                        rows.increment();
+                    });
+                }
+            }
+            logger.info("{} | {} | epoch {}/{} | {} rows in {} ms", this.getContext(), label,
+                epoch + 1, this.epochs, rows.sum(), (System.nanoTime() - started) / 1_000_000);
+        }
+        this.models.put(label, model);  // replace only once fully trained
+    }
+
+
+    //***** Prediction *****//
+
+    @Override
+    public @Nullable String predict(String label, DataRow row) {
+        LinearModel model = this.models.get(label);
+        return ( model != null ) ? model.predict(this.vectorize(row)) : null;
+    }
+
+    /**
+     * @return class probabilities indexed by {@code LinearModel.getClasses()}, or null if untrained
+     */
+    public @Nullable double[] probabilities(String label, DataRow row) {
+        LinearModel model = this.models.get(label);
+        if( model == null ) { return null; }
+        SparseVector features = this.vectorize(row);
+        return model.probabilities(features);
+    }
+}
@@ -0,0 +1,151 @@
+package com.jamesmcguigan.nlp.v2.classifier;
+
+import com.jamesmcguigan.nlp.utils.features.SparseVector;
+import com.jamesmcguigan.nlp.v2.datasets.CategoryDictionary;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * One-vs-rest linear model over hashed sparse features, scored through a dense float weight array per class
+ * <p/>
+ * {@code update()} is lock-free and may be called concurrently (Hogwild): threads write to the shared weights
+ * without synchronization, and the occasional lost update on a colliding feature does not affect convergence
+ * because each sparse update touches only a small fraction of the weights.
+ * Classes are discovered during training, their weight arrays are added copy-on-write.
+ * <pre>
+ *     weights[class][0 .. dimensions)  feature weights
+ *     weights[class][dimensions]       bias
+ * </pre>
+ */
+public class LinearModel {
+    public enum Loss { log, hinge }
+
+    private final int  dimensions;
+    private final Loss loss;
+    private final CategoryDictionary classes = new CategoryDictionary("class");
+    private volatile float[][] weights = new float[0][];
+
+    public LinearModel(int dimensions, Loss loss) {
+        if(!( dimensions >= 1 )) { throw new IllegalArgumentException("PRECONDITION: dimensions="+dimensions+" >= 1"); }
+        this.dimensions = dimensions;
+        this.loss       = loss;
+    }
+
+    public int  getDimensions()  { return this.dimensions; }
+    public Loss getLoss()        { return this.loss;       }
+    public int  getClassCount()  { return this.weights.length; }
+    public List<String> getClasses() { return this.classes.getValues(); }
+
+    /**
+     * @return weights of one class, followed by the bias, shared not copied
+     */
+    public float[] getWeights(int classId) { return this.weights[classId]; }
+
+    /**
+     * @return dense class id, adding a zero weight vector for new classes
+     */
+    public int getClassId(String label) {
+        int id = this.classes.encode(label);
+        if( id >= this.weights.length ) {
+            synchronized( this ) {
+                float[][] current = this.weights;
+                if( id >= current.length ) {
+                    float[][] grown = Arrays.copyOf(current, id + 1);
+                    for( int i = current.length; i < grown.length; i++ ) { grown[i] = new float[this.dimensions + 1]; }
+                    this.weights = grown;
+                }
+            }
+        }
+        return id;
+    }
+
+
+    //***** Training *****//
+
+    /**
+     * Single SGD step for one example, updating every class one-vs-rest
+     * L2 regularization is applied lazily to the weights touched by the example
+     * @param features      hashed features, indices must be less than {@code dimensions}
+     * @param classId       true class, from {@code getClassId()}
+     * @param learningRate  step size
+     * @param l2            L2 regularization strength
+     */
+    public void update(SparseVector features, int classId, float learningRate, float l2) {
+        float[][] weights = this.weights;
+        int[]     indices = features.getIndices();
+        float[]   values  = features.getValues();
+        int       size    = features.size();
+        for( int c = 0; c < weights.length; c++ ) {
+            float[] w      = weights[c];
+            float   y      = ( c == classId ) ? 1f : -1f;
+            double  margin = y * this.score(w, features);
+            float   gradient = switch( this.loss ) {  // d(loss)/d(score)
+                case hinge -> ( margin < 1 ) ? -y : 0f;
+                case log   -> (float) (-y / (1 + Math.exp(margin)));
+            };
+            for( int i = 0; i < size; i++ ) {
+                int index = indices[i];
+                w[index] -= learningRate * (gradient * values[i] + l2 * w[index]);
+            }
+            w[this.dimensions] -= learningRate * gradient;
+        }
+    }
+
+
+    //***** Scoring *****//
+
+    private double score(float[] w, SparseVector features) {
+        return features.dot(w) + w[this.dimensions];
+    }
+
+    /**
+     * @return decision function for each class, indexed by class id
+     */
+    public double[] scores(SparseVector features) {
+        float[][] weights = this.weights;
+        double[]  scores  = new double[weights.length];
+        for( int c = 0; c < weights.length; c++ ) { scores[c] = this.score(weights[c], features); }
+        return scores;
+    }
+
+    /**
+     * @return class probabilities from the one-vs-rest sigmoids, normalized to sum to 1
+     */
+    public double[] probabilities(SparseVector features) {
+        double[] scores = this.scores(features);
+        double   total  = 0;
+        for( int c = 0; c < scores.length; c++ ) {
+            scores[c] = 1 / (1 + Math.exp(-scores[c]));
+            total    += scores[c];
+        }
+        for( int c = 0; c < scores.length; c++ ) { scores[c] /= total; }
+        return scores;
+    }
+
+    /**
+     * @return id of the highest scoring class, or {@code CategoryDictionary.MISSING} if untrained
+     */
+    public int predictId(SparseVector features) {
+        float[][] weights = this.weights;
+        int    best      = CategoryDictionary.MISSING;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for( int c = 0; c < weights.length; c++ ) {
+            double score = this.score(weights[c], features);
+            if( score > bestScore ) {
+                best      = c;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return highest scoring class label, or null if untrained
+     */
+    public @Nullable String predict(SparseVector features) {
+        return this.classes.decode(this.predictId(features));
+    }
+}
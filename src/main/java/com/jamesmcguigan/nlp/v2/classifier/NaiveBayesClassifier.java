@@ -0,0 +1,124 @@
+package com.jamesmcguigan.nlp.v2.classifier;
+
+import com.jamesmcguigan.nlp.utils.features.HashingVectorizer;
+import com.jamesmcguigan.nlp.utils.features.SparseVector;
+import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.datasets.DataRow;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+
+/**
+ * Multinomial naive Bayes over hashed term counts, trained in a single parallel streaming pass
+ * <p/>
+ * Each stream partition accumulates its own {@link NaiveBayesCounts}, which are merged and added to the
+ * {@link NaiveBayesModel}. As the model is only its counts, {@code update()} can add newly labeled data
+ * to an existing model without revisiting the rows it has already seen.
+ * <pre>
+ *     configuration:
+ *       alpha: 1.0     # additive smoothing
+ * </pre>
+ * See {@link AbstractClassifier} for the shared feature and task configuration
+ */
+public class NaiveBayesClassifier extends AbstractClassifier {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final double alpha;
+    private final Map<String, NaiveBayesModel> models = new ConcurrentHashMap<>();
+
+    public NaiveBayesClassifier(ControllerConfig parentConfig) {
+        super(parentConfig);
+        this.alpha = this.getConfigurationDouble("alpha", 1.0);
+        if(!( this.alpha > 0 )) { throw new IllegalArgumentException("PRECONDITION: alpha="+this.alpha+" > 0"); }
+    }
+
+    /**
+     * Naive Bayes requires non-negative term counts
+     */
+    @Override
+    protected HashingVectorizer newVectorizer(int bits, int ngrams) {
+        return super.newVectorizer(bits, ngrams).setSigned(false).setNormalize(false);
+    }
+
+    public @Nullable NaiveBayesModel getModel(String label) { return this.models.get(label); }
+
+    public NaiveBayesModel newModel() { return new NaiveBayesModel(this.vectorizer.getDimensions(), this.alpha); }
+
+
+    //***** Training *****//
+
+    @Override
+    protected void train(String label, List<Dataset> datasets) {
+        NaiveBayesModel model = this.newModel();
+        for( Dataset dataset : datasets ) {
+            try( Stream<DataRow> stream = dataset.getTrainStream() ) {
+                this.update(model, label, stream);
+            }
+        }
+        this.models.put(label, model);  // replace only once fully trained
+    }
+
+    /**
+     * Adds the train streams of {@code datasets} to the existing model for {@code label}, creating it if needed
+     */
+    public void update(String label, List<Dataset> datasets) {
+        NaiveBayesModel model = this.models.computeIfAbsent(label, key -> this.newModel());
+        for( Dataset dataset : datasets ) {
+            try( Stream<DataRow> stream = dataset.getTrainStream() ) {
+                this.update(model, label, stream);
+            }
+        }
+    }
+
+    /**
+     * Counts {@code rows} in parallel and adds them to {@code model}, rows without a {@code label} value are skipped
+     * @return number of rows counted
+     */
+    public long update(NaiveBayesModel model, String label, Stream<DataRow> rows) {
+        long started = System.nanoTime();
+        NaiveBayesCounts counts = rows.parallel().collect(Collector.of(
+            NaiveBayesCounts::new,
+            (partition, row) -> {
+                String value = getLabelValue(row, label);
+                if( value == null ) { return; }
+                partition.add(model.getClassId(value), this.vectorize(row));
+            },
+            NaiveBayesCounts::merge,
+            Collector.Characteristics.UNORDERED
+        ));
+        model.update(counts);
+
+        long documents = 0;
+        for( int c = 0; c < counts.getClassCount(); c++ ) { documents += counts.getClassDocs(c); }
+        logger.info("{} | {} | {} rows in {} ms | {} total", this.getContext(), label,
+            documents, (System.nanoTime() - started) / 1_000_000, model.getDocumentCount());
+        return documents;
+    }
+
+
+    //***** Prediction *****//
+
+    @Override
+    public @Nullable String predict(String label, DataRow row) {
+        NaiveBayesModel model = this.models.get(label);
+        return ( model != null ) ? model.predict(this.vectorize(row)) : null;
+    }
+
+    /**
+     * @return class probabilities indexed by {@code NaiveBayesModel.getClasses()}, or null if untrained
+     */
+    public @Nullable double[] probabilities(String label, DataRow row) {
+        NaiveBayesModel model = this.models.get(label);
+        if( model == null ) { return null; }
+        SparseVector features = this.vectorize(row);
+        return model.probabilities(features);
+    }
+}
@@ -0,0 +1,140 @@
+package com.jamesmcguigan.nlp.v2.classifier;
+
+import com.jamesmcguigan.nlp.utils.features.SparseVector;
+
+import java.util.Arrays;
+
+import static com.jamesmcguigan.nlp.utils.data.OpenAddressing.*;
+
+
+/**
+ * Sufficient statistics for multinomial naive Bayes over one stream partition
+ * <p/>
+ * Per-class feature counts are held sparsely in a primitive open-addressing map keyed by
+ * {@code classId << 32 | feature}, so a partition costs memory proportional to the features it has seen
+ * rather than classes * 2^bits. Partitions are combined with {@code merge()}, then added to a
+ * {@link NaiveBayesModel} with {@code NaiveBayesModel.update()}.
+ * Counts are doubles, as a float stops incrementing by 1 at 2^24.
+ * Not thread-safe
+ */
+public class NaiveBayesCounts {
+    private static final long EMPTY = -1L;
+
+    private long[]   keys;
+    private double[] counts;
+    private int      size = 0;
+
+    private long[]  classDocs   = new long[2];    // classId -> documents
+    private double[] classTotals = new double[2];  // classId -> sum of feature counts
+
+    public NaiveBayesCounts() { this(1024); }
+    public NaiveBayesCounts(int capacity) {
+        int tableSize = tableSizeFor(Math.max(16, capacity));
+        this.keys   = newTable(tableSize, EMPTY);
+        this.counts = new double[tableSize];
+    }
+
+    public int size() { return this.size; }
+
+    /**
+     * @return number of classes seen, ie the largest class id + 1
+     */
+    public int getClassCount() {
+        for( int c = this.classDocs.length - 1; c >= 0; c-- ) {
+            if( this.classDocs[c] != 0 || this.classTotals[c] != 0 ) { return c + 1; }
+        }
+        return 0;
+    }
+    public long   getClassDocs(int classId)   { return ( classId < this.classDocs.length   ) ? this.classDocs[classId]   : 0; }
+    public double getClassTotal(int classId)  { return ( classId < this.classTotals.length ) ? this.classTotals[classId] : 0; }
+
+
+    //***** Accumulate *****//
+
+    /**
+     * Counts one document
+     * @param classId   dense class id, from {@code NaiveBayesModel.getClassId()}
+     * @param features  non-negative feature counts
+     */
+    public void add(int classId, SparseVector features) {
+        this.ensureClass(classId);
+        this.classDocs[classId]++;
+        for( int i = 0; i < features.size(); i++ ) {
+            this.add(classId, features.getIndex(i), features.getValue(i));
+        }
+    }
+
+    private void add(int classId, int feature, double count) {
+        if( count == 0 ) { return; }
+        long key  = ((long) classId << 32) | (feature & 0xFFFFFFFFL);
+        int  mask = this.keys.length - 1;
+        int  slot = mix(key) & mask;
+        while( this.keys[slot] != EMPTY && this.keys[slot] != key ) { slot = (slot + 1) & mask; }
+        if( this.keys[slot] == EMPTY ) {
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.counts[slot] += count;
+        this.classTotals[classId] += count;
+        if( isFull(this.size, this.keys.length) ) { this.rehash(this.keys.length * 2); }
+    }
+
+    /**
+     * Adds another partition into this one
+     * @return this
+     */
+    public NaiveBayesCounts merge(NaiveBayesCounts other) {
+        for( int c = 0; c < other.classDocs.length; c++ ) {
+            if( other.classDocs[c] == 0 ) { continue; }
+            this.ensureClass(c);
+            this.classDocs[c] += other.classDocs[c];
+        }
+        for( int slot = 0; slot < other.keys.length; slot++ ) {
+            long key = other.keys[slot];
+            if( key == EMPTY ) { continue; }
+            int classId = (int) (key >>> 32);
+            this.ensureClass(classId);
+            this.add(classId, (int) key, other.counts[slot]);
+        }
+        return this;
+    }
+
+
+    //***** Iteration *****//
+
+    public interface CountConsumer {
+        void accept(int classId, int feature, double count);
+    }
+
+    public void forEach(CountConsumer consumer) {
+        for( int slot = 0; slot < this.keys.length; slot++ ) {
+            long key = this.keys[slot];
+            if( key != EMPTY ) { consumer.accept((int) (key >>> 32), (int) key, this.counts[slot]); }
+        }
+    }
+
+
+    //***** Storage *****//
+
+    private void ensureClass(int classId) {
+        if( classId < this.classDocs.length ) { return; }
+        int length = Math.max(classId + 1, this.classDocs.length * 2);
+        this.classDocs   = Arrays.copyOf(this.classDocs,   length);
+        this.classTotals = Arrays.copyOf(this.classTotals, length);
+    }
+
+    private void rehash(int tableSize) {
+        long[]   oldKeys   = this.keys;
+        double[] oldCounts = this.counts;
+        this.keys   = newTable(tableSize, EMPTY);
+        this.counts = new double[tableSize];
+        int mask = tableSize - 1;
+        for( int i = 0; i < oldKeys.length; i++ ) {
+            if( oldKeys[i] == EMPTY ) { continue; }
+            int slot = mix(oldKeys[i]) & mask;
+            while( this.keys[slot] != EMPTY ) { slot = (slot + 1) & mask; }
+            this.keys[slot]   = oldKeys[i];
+            this.counts[slot] = oldCounts[i];
+        }
+    }
+}
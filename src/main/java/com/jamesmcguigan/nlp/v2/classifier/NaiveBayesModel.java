@@ -0,0 +1,163 @@
+package com.jamesmcguigan.nlp.v2.classifier;
+
+import com.jamesmcguigan.nlp.utils.features.SparseVector;
+import com.jamesmcguigan.nlp.v2.datasets.CategoryDictionary;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Multinomial naive Bayes over hashed feature counts, with Laplace/Lidstone smoothing {@code alpha}
+ * <p/>
+ * The model is its sufficient statistics: per-class feature counts in dense double arrays, class totals
+ * and class document counts. {@code update()} adds the counts of newly labeled data in place,
+ * so retraining costs time proportional to the new data only.
+ * Log-probabilities for scoring are rebuilt lazily after each update.
+ * <p/>
+ * Thread-safe: updates are synchronized, and scoring reads an immutable snapshot of the log-probabilities
+ */
+public class NaiveBayesModel {
+    private final int    dimensions;
+    private final double alpha;
+    private final CategoryDictionary classes = new CategoryDictionary("class");
+
+    // guarded by synchronized(this)
+    private double[][] featureCounts = new double[0][];
+    private double[]   classTotals   = new double[0];
+    private long[]     classDocs     = new long[0];
+    private long       documents     = 0;
+
+    @Nullable private volatile LogProbabilities logProbabilities;  // null = rebuild on next score
+
+    private static class LogProbabilities {
+        private final double[]  priors;       // classId -> log P(class)
+        private final float[][] likelihoods;  // classId -> feature -> log P(feature | class)
+        LogProbabilities(double[] priors, float[][] likelihoods) {
+            this.priors      = priors;
+            this.likelihoods = likelihoods;
+        }
+    }
+
+    public NaiveBayesModel(int dimensions) { this(dimensions, 1.0); }
+    public NaiveBayesModel(int dimensions, double alpha) {
+        if(!( dimensions >= 1 )) { throw new IllegalArgumentException("PRECONDITION: dimensions="+dimensions+" >= 1"); }
+        if(!( alpha > 0 ))       { throw new IllegalArgumentException("PRECONDITION: alpha="+alpha+" > 0"); }
+        this.dimensions = dimensions;
+        this.alpha      = alpha;
+    }
+
+    public int    getDimensions() { return this.dimensions; }
+    public double getAlpha()      { return this.alpha;      }
+    public List<String> getClasses() { return this.classes.getValues(); }
+    public synchronized long getDocumentCount() { return this.documents; }
+
+    public synchronized long getClassDocs(String label) {
+        int id = this.classes.lookup(label);
+        return ( id != CategoryDictionary.MISSING && id < this.classDocs.length ) ? this.classDocs[id] : 0;
+    }
+
+    /**
+     * @return dense class id for {@link NaiveBayesCounts}, assigning a new id for new classes
+     */
+    public int getClassId(String label) { return this.classes.encode(label); }
+
+
+    //***** Training *****//
+
+    /**
+     * Adds the counts of newly labeled documents to the model
+     * @param counts  partition statistics, with class ids from {@code getClassId()}
+     */
+    public synchronized void update(NaiveBayesCounts counts) {
+        int classCount = Math.max(this.classes.size(), counts.getClassCount());
+        if( classCount > this.featureCounts.length ) {
+            int previous = this.featureCounts.length;
+            this.featureCounts = Arrays.copyOf(this.featureCounts, classCount);
+            this.classTotals   = Arrays.copyOf(this.classTotals,   classCount);
+            this.classDocs     = Arrays.copyOf(this.classDocs,     classCount);
+            for( int c = previous; c < classCount; c++ ) { this.featureCounts[c] = new double[this.dimensions]; }
+        }
+        for( int c = 0; c < counts.getClassCount(); c++ ) {
+            this.classTotals[c] += counts.getClassTotal(c);
+            this.classDocs[c]   += counts.getClassDocs(c);
+            this.documents      += counts.getClassDocs(c);
+        }
+        double[][] featureCounts = this.featureCounts;
+        counts.forEach((classId, feature, count) -> featureCounts[classId][feature] += count);
+        this.logProbabilities = null;
+    }
+
+
+    //***** Scoring *****//
+
+    private LogProbabilities getLogProbabilities() {
+        LogProbabilities output = this.logProbabilities;
+        if( output != null ) { return output; }
+        synchronized( this ) {
+            if( this.logProbabilities != null ) { return this.logProbabilities; }
+            int       classCount  = this.featureCounts.length;
+            double[]  priors      = new double[classCount];
+            float[][] likelihoods = new float[classCount][];
+            for( int c = 0; c < classCount; c++ ) {
+                priors[c] = Math.log((double) this.classDocs[c] / Math.max(1, this.documents));
+                double denominator = Math.log(this.classTotals[c] + this.alpha * this.dimensions);
+                double[] counts    = this.featureCounts[c];
+                float[] likelihood = new float[this.dimensions];
+                for( int f = 0; f < this.dimensions; f++ ) {
+                    likelihood[f] = (float) (Math.log(counts[f] + this.alpha) - denominator);
+                }
+                likelihoods[c] = likelihood;
+            }
+            this.logProbabilities = new LogProbabilities(priors, likelihoods);
+            return this.logProbabilities;
+        }
+    }
+
+    /**
+     * @return joint log-likelihood for each class, indexed by class id
+     */
+    public double[] logScores(SparseVector features) {
+        LogProbabilities model  = this.getLogProbabilities();
+        double[]         scores = new double[model.priors.length];
+        for( int c = 0; c < scores.length; c++ ) {
+            scores[c] = model.priors[c] + features.dot(model.likelihoods[c]);
+        }
+        return scores;
+    }
+
+    /**
+     * @return posterior class probabilities, indexed by class id
+     */
+    public double[] probabilities(SparseVector features) {
+        double[] scores = this.logScores(features);
+        double   max    = Arrays.stream(scores).max().orElse(0);
+        double   total  = 0;
+        for( int c = 0; c < scores.length; c++ ) {
+            scores[c] = Math.exp(scores[c] - max);
+            total    += scores[c];
+        }
+        for( int c = 0; c < scores.length; c++ ) { scores[c] /= total; }
+        return scores;
+    }
+
+    /**
+     * @return id of the most probable class, or {@code CategoryDictionary.MISSING} if untrained
+     */
+    public int predictId(SparseVector features) {
+        double[] scores = this.logScores(features);
+        int      best   = CategoryDictionary.MISSING;
+        for( int c = 0; c < scores.length; c++ ) {
+            if( best == CategoryDictionary.MISSING || scores[c] > scores[best] ) { best = c; }
+        }
+        return best;
+    }
+
+    /**
+     * @return most probable class label, or null if untrained
+     */
+    public @Nullable String predict(SparseVector features) {
+        return this.classes.decode(this.predictId(features));
+    }
+}
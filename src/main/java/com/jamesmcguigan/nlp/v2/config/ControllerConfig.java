@@ -6,9 +6,9 @@ import com.jamesmcguigan.nlp.v2.extractor.Extractor;
 import javax.annotation.Nullable;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
 
 
 @SuppressWarnings("java:S1104")
@@ -28,18 +28,20 @@ public class ControllerConfig {
     private final Extractor extractor;
     private final ControllerConfigYaml config;
     private final List<DatasetConfig> datasets;
+    private final List<TaskStage> stages;
 
     @SuppressWarnings("unchecked")
     public ControllerConfig(ControllerConfigYaml config, @Nullable String name) {
         try {
             this.name = name;
-            this.config = config;
+            this.config = normalize(config);
             this.extractorClass = (Class<? extends Extractor>) Class.forName(config.extractor);
             this.extractor = this.extractorClass
                 .getConstructor(ControllerConfig.class)
                 .newInstance(this)
             ;
             this.datasets = YamlParser.getDatasetConfigs(config.datasets);
+            this.stages   = this.parseStages();
         } catch(
             ClassNotFoundException | NoSuchMethodException | ClassCastException |
             IllegalAccessException | InvocationTargetException | InstantiationException exception
@@ -48,11 +50,102 @@ public class ControllerConfig {
         }
     }
 
-    public String getName()          { return name; }
-    public String getCondition()     { return config.condition; }
-    public String getContext()       { return config.context; }
-    public String getExtractorName() { return config.extractor; }
-    public Extractor getExtractor()  { return extractor; }
+    /**
+     * Accepts {@code context} and {@code datasets} either at the top level or nested under {@code configuration},
+     * and treats {@code None} or empty {@code condition} and {@code context} as unset
+     */
+    private static ControllerConfigYaml normalize(ControllerConfigYaml config) {
+        Map<String, Object> configuration = ( config.configuration != null ) ? config.configuration : Collections.emptyMap();
+        if( config.context == null && configuration.get("context") != null ) {
+            config.context = configuration.get("context").toString();
+        }
+        if( config.datasets == null && configuration.get("datasets") instanceof List ) {
+            config.datasets = ((List<?>) configuration.get("datasets")).stream()
+                .map(path -> Paths.get(path.toString()))
+                .collect(Collectors.toList())
+            ;
+        }
+        if( config.datasets == null ) { config.datasets = Collections.emptyList(); }
+        config.context   = unsetIfNone(config.context);
+        config.condition = unsetIfNone(config.condition);
+        return config;
+    }
+    private static @Nullable String unsetIfNone(@Nullable String value) {
+        return ( value == null || value.isEmpty() || "None".equals(value) ) ? null : value;
+    }
+
+    public String getName()                { return name; }
+    public @Nullable String getCondition() { return config.condition; }
+    public @Nullable String getContext()   { return config.context; }
+    public String getExtractorName()       { return config.extractor; }
+    public Extractor getExtractor()        { return extractor; }
     public Map<String, Object> getConfiguration() { return config.configuration; }
     public List<DatasetConfig> getDatasets()      { return Collections.unmodifiableList(datasets); }
+    public List<TaskStage> getStages()            { return Collections.unmodifiableList(stages); }
+
+    /**
+     * @return {@code configuration.task}, or null if not specified
+     */
+    public @Nullable Task getTask() {
+        Object task = ( config.configuration != null ) ? config.configuration.get("task") : null;
+        if( task == null ) { return null; }
+        try {
+            return Task.valueOf(task.toString());
+        } catch( IllegalArgumentException exception ) {
+            throw new InvalidConfigurationException(name + " | invalid task: " + task, exception);
+        }
+    }
+
+
+    //***** Pipeline *****//
+
+    /**
+     * Parses {@code configuration.tasks} into stages of child configs
+     * Children inherit condition, context, datasets and configuration, with task implied by the stage
+     * <pre>
+     *     tasks:
+     *       - train:
+     *         - extractor: com.example.Classifier
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    private List<TaskStage> parseStages() {
+        Object tasks = ( config.configuration != null ) ? config.configuration.get("tasks") : null;
+        if( tasks == null ) { return Collections.emptyList(); }
+        if( !(tasks instanceof List) ) { throw new InvalidConfigurationException(name + " | 'tasks' must be a list"); }
+
+        List<TaskStage> output = new ArrayList<>();
+        for( Object stage : (List<Object>) tasks ) {
+            if(!( stage instanceof Map && ((Map<String, Object>) stage).size() == 1 )) {
+                throw new InvalidConfigurationException(name + " | each 'tasks' entry must be a single { task: [extractors] } mapping");
+            }
+            var entry = ((Map<String, Object>) stage).entrySet().iterator().next();
+            Task task;
+            try {
+                task = Task.valueOf(entry.getKey());
+            } catch( IllegalArgumentException exception ) {
+                throw new InvalidConfigurationException(name + " | invalid task: " + entry.getKey(), exception);
+            }
+            List<ControllerConfig> children = new ArrayList<>();
+            for( Object child : (List<Object>) entry.getValue() ) {
+                children.add(this.childConfig(task, (Map<String, Object>) child));
+            }
+            output.add(new TaskStage(task, children));
+        }
+        return output;
+    }
+
+    private ControllerConfig childConfig(Task task, Map<String, Object> child) {
+        ControllerConfigYaml yaml = new ControllerConfigYaml();
+        yaml.extractor     = (String) child.get("extractor");
+        yaml.condition     = (String) child.getOrDefault("condition", config.condition);
+        yaml.context       = (String) child.getOrDefault("context",   config.context);
+        yaml.datasets      = config.datasets;
+        yaml.configuration = new HashMap<>(config.configuration);
+        yaml.configuration.remove("tasks");
+        yaml.configuration.putAll(child);
+        yaml.configuration.put("task", task.name());
+        if( yaml.extractor == null ) { throw new InvalidConfigurationException(name + " | " + task + " | 'extractor' is required"); }
+        return new ControllerConfig(yaml, name + "/" + task + "/" + yaml.extractor);
+    }
 }
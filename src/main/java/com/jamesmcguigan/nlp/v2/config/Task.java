@@ -0,0 +1,8 @@
+package com.jamesmcguigan.nlp.v2.config;
+
+public enum Task {
+    train,
+    statistics,
+    enrich,
+    csv
+}
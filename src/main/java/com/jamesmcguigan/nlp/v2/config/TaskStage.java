@@ -0,0 +1,22 @@
+package com.jamesmcguigan.nlp.v2.config;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A single entry of a pipeline {@code configuration.tasks} list,
+ * extractors within a stage are independent and may run concurrently
+ */
+public class TaskStage {
+    private final Task task;
+    private final List<ControllerConfig> configs;
+
+    public TaskStage(Task task, List<ControllerConfig> configs) {
+        this.task    = task;
+        this.configs = configs;
+    }
+
+    public Task getTask()                    { return task; }
+    public List<ControllerConfig> getConfigs() { return Collections.unmodifiableList(configs); }
+}
@@ -1,22 +1,162 @@
 package com.jamesmcguigan.nlp.v2.controller;
 
 import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.Task;
+import com.jamesmcguigan.nlp.v2.config.TaskStage;
 import com.jamesmcguigan.nlp.v2.datasets.Dataset;
-import com.jamesmcguigan.nlp.v2.datasets.Datasets;
+import com.jamesmcguigan.nlp.v2.datasets.DatasetRegistry;
+import com.jamesmcguigan.nlp.v2.datasets.MulticastDataset;
+import com.jamesmcguigan.nlp.v2.extractor.Extractor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
-import java.util.List;
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
+
+/**
+ * Schedules the tasks of a ControllerConfig as a DAG
+ * <p/>
+ * Pipeline stages run in order, but extractors within a stage run concurrently.
+ * Each task waits only for the previous stage tasks of the same extractor,
+ * or for the whole previous stage if the extractor did not appear in it.
+ * Extractor instances (by class + context) are shared between all tasks, and datasets are loaded once
+ * per run via a {@link DatasetRegistry}. Extractors within a stage that read the same dataset
+ * share a single scan, multicast by {@link MulticastDataset}
+ */
 public class Controller {
+    private static final Logger logger = LogManager.getLogger();
+
     private final ControllerConfig config;
     private final List<Dataset>    datasets;
+    private final DatasetRegistry  registry;
+    private final Map<String, Extractor> sharedExtractors = new ConcurrentHashMap<>();
 
     public Controller(ControllerConfig config) {
-        this.config = config;
-        this.datasets = Datasets.from(config.getDatasets(), config.getCondition());
+        this(config, new DatasetRegistry());
+    }
+    /**
+     * @param cacheDirectory  optional location for the binary {@code DatasetCache}
+     */
+    public Controller(ControllerConfig config, @Nullable Path cacheDirectory) {
+        this(config, new DatasetRegistry(cacheDirectory));
+    }
+    /**
+     * @param registry  shared between Controllers of the same run
+     */
+    public Controller(ControllerConfig config, DatasetRegistry registry) {
+        this.config   = config;
+        this.registry = registry;
+        this.datasets = config.getDatasets().stream()
+            .map(datasetConfig -> registry.get(datasetConfig, config.getCondition()))
+            .collect(Collectors.toList())
+        ;
+    }
+
+
+    //***** Shared Instances *****//
+
+    /**
+     * Creates multicast views for each dataset read by more than one task in the stage
+     * @return datasets for each task config, in stage order
+     */
+    private List<List<Dataset>> getStageDatasets(TaskStage stage) {
+        Map<String, Integer> consumers = new HashMap<>();
+        for( ControllerConfig taskConfig : stage.getConfigs() ) {
+            for( DatasetConfig datasetConfig : taskConfig.getDatasets() ) {
+                consumers.merge(DatasetRegistry.getKey(datasetConfig, taskConfig.getCondition()), 1, Integer::sum);
+            }
+        }
+        Map<String, Deque<MulticastDataset>> views = new HashMap<>();
+        List<List<Dataset>> output = new ArrayList<>();
+        for( ControllerConfig taskConfig : stage.getConfigs() ) {
+            List<Dataset> taskDatasets = new ArrayList<>();
+            for( DatasetConfig datasetConfig : taskConfig.getDatasets() ) {
+                String key = DatasetRegistry.getKey(datasetConfig, taskConfig.getCondition());
+                if( consumers.get(key) == 1 ) {
+                    taskDatasets.add(this.registry.get(datasetConfig, taskConfig.getCondition()));
+                } else {
+                    taskDatasets.add(views.computeIfAbsent(key, k -> new ArrayDeque<>(
+                        this.registry.multicast(datasetConfig, taskConfig.getCondition(), consumers.get(key))
+                    )).pop());
+                }
+            }
+            output.add(taskDatasets);
+        }
+        return output;
+    }
+
+    private Extractor getExtractor(ControllerConfig taskConfig) {
+        String key = taskConfig.getExtractorName() + "|" + taskConfig.getContext();
+        return this.sharedExtractors.computeIfAbsent(key, k -> taskConfig.getExtractor());
+    }
+
+
+    //***** Run *****//
+
+    /**
+     * Runs all tasks on a pool sized to the number of processors, multicast consumers that cannot
+     * start before their peers finish are dropped from the shared scan, see {@link MulticastDataset}
+     * @return wall time of each task
+     */
+    public Map<String, Duration> run() {
+        try( TaskScheduler scheduler = new TaskScheduler() ) {
+            this.schedule(scheduler);
+            return scheduler.run();
+        }
+    }
+
+    /**
+     * Adds this config's tasks to a scheduler, allowing several Controllers to share a pool
+     */
+    public void schedule(TaskScheduler scheduler) {
+        if( this.config.getStages().isEmpty() ) {
+            Task task = this.config.getTask();
+            if( task == null ) {
+                logger.warn("{} | no task or tasks configured", this.config.getName());
+                return;
+            }
+            this.add(scheduler, this.config, task, this.datasets, Collections.emptyList());
+            return;
+        }
+
+        Map<String, List<TaskScheduler.TaskNode>> previous = new LinkedHashMap<>();
+        for( TaskStage stage : this.config.getStages() ) {
+            List<TaskScheduler.TaskNode> previousAll = previous.values().stream()
+                .flatMap(Collection::stream)
+                .collect(Collectors.toList())
+            ;
+            Map<String, List<TaskScheduler.TaskNode>> current = new LinkedHashMap<>();
+            List<List<Dataset>> stageDatasets = this.getStageDatasets(stage);
+            for( int i = 0; i < stage.getConfigs().size(); i++ ) {
+                ControllerConfig taskConfig = stage.getConfigs().get(i);
+                String key = taskConfig.getExtractorName() + "|" + taskConfig.getContext();
+                List<TaskScheduler.TaskNode> dependencies = previous.getOrDefault(key, previousAll);
+                TaskScheduler.TaskNode node = this.add(
+                    scheduler, taskConfig, stage.getTask(), stageDatasets.get(i), dependencies
+                );
+                current.computeIfAbsent(key, k -> new ArrayList<>()).add(node);
+            }
+            previous = current;
+        }
     }
 
-    @SuppressWarnings("EmptyMethod")
-    public void run() {
-        // TODO: implement
+    private TaskScheduler.TaskNode add(
+        TaskScheduler scheduler, ControllerConfig taskConfig, Task task,
+        List<Dataset> taskDatasets, List<TaskScheduler.TaskNode> dependencies
+    ) {
+        Extractor extractor = this.getExtractor(taskConfig);
+        String name = this.config.getName() + " | " + task + " | " + taskConfig.getExtractorName();
+        return scheduler.add(name, () -> extractor.run(task, taskDatasets), dependencies)
+            .whenDone(() -> taskDatasets.stream()   // detach so other multicast consumers are not blocked
+                .filter(MulticastDataset.class::isInstance)
+                .forEach(dataset -> ((MulticastDataset) dataset).close())
+            )
+        ;
     }
 }
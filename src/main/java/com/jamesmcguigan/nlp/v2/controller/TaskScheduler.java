@@ -0,0 +1,129 @@
+package com.jamesmcguigan.nlp.v2.controller;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Runs a DAG of tasks on a bounded thread pool
+ * <p/>
+ * Each task starts as soon as all its dependencies have completed, so independent tasks run concurrently.
+ * If a task fails, its dependents are skipped and {@code run()} rethrows the first failure
+ * after all other branches have finished. Wall time is logged and reported for each task
+ */
+public class TaskScheduler implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final ExecutorService executor;
+    private final List<TaskNode>  nodes   = new ArrayList<>();
+    private final Map<String, Duration> timings = new ConcurrentHashMap<>();
+
+    public TaskScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    public TaskScheduler(int threads) {
+        if(!( threads >= 1 )) { throw new IllegalArgumentException("PRECONDITION: threads="+threads+" >= 1"); }
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "task-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    //***** Graph *****//
+
+    public static class TaskNode {
+        private final String name;
+        private final CompletableFuture<Void> future;
+
+        private TaskNode(String name, CompletableFuture<Void> future) {
+            this.name   = name;
+            this.future = future;
+        }
+        public String getName() { return this.name; }
+        public boolean isDone() { return this.future.isDone(); }
+
+        /**
+         * @param callback  called once the task has finished, failed or been skipped due to a failed dependency
+         */
+        public TaskNode whenDone(Runnable callback) {
+            this.future.whenComplete((result, exception) -> callback.run());
+            return this;
+        }
+    }
+
+    /**
+     * Tasks are submitted immediately, but will wait for dependencies before running
+     * @param name          unique task name used for logging
+     * @param task          work to run
+     * @param dependencies  tasks that must complete successfully first
+     */
+    public synchronized TaskNode add(String name, Runnable task, Collection<TaskNode> dependencies) {
+        CompletableFuture<?>[] futures = dependencies.stream().map(node -> node.future).toArray(CompletableFuture<?>[]::new);
+        CompletableFuture<Void> future = CompletableFuture.allOf(futures).thenRunAsync(() -> this.time(name, task), this.executor);
+        TaskNode node = new TaskNode(name, future);
+        this.nodes.add(node);
+        return node;
+    }
+
+    private void time(String name, Runnable task) {
+        logger.info("{} | started", name);
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            Duration duration = Duration.ofNanos(System.nanoTime() - start);
+            this.timings.put(name, duration);
+            logger.info("{} | finished in {} ms", name, duration.toMillis());
+        }
+    }
+
+
+    //***** Run *****//
+
+    /**
+     * Blocks until all tasks have completed
+     * @return wall time for each task that ran, in order of submission
+     * @throws CompletionException wrapping the first task failure
+     */
+    public Map<String, Duration> run() {
+        long start = System.nanoTime();
+        List<TaskNode> submitted;
+        synchronized( this ) { submitted = new ArrayList<>(this.nodes); }
+
+        Throwable failure = null;
+        for( TaskNode node : submitted ) {
+            try {
+                node.future.join();
+            } catch( CompletionException | CancellationException exception ) {
+                if( failure == null ) { failure = exception; }
+                logger.error("{} | failed: {}", node.name, exception.getCause() != null ? exception.getCause() : exception);
+            }
+        }
+
+        Map<String, Duration> output = new LinkedHashMap<>();
+        for( TaskNode node : submitted ) {
+            if( this.timings.containsKey(node.name) ) { output.put(node.name, this.timings.get(node.name)); }
+        }
+        long sum = output.values().stream().mapToLong(Duration::toMillis).sum();
+        logger.info("{} tasks finished in {} ms wall time ({} ms sequential)",
+            output.size(), Duration.ofNanos(System.nanoTime() - start).toMillis(), sum
+        );
+        if( failure != null ) {
+            throw ( failure instanceof CompletionException ) ? (CompletionException) failure : new CompletionException(failure);
+        }
+        return output;
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+}
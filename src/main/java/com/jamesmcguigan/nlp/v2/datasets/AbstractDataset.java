@@ -1,8 +1,11 @@
 package com.jamesmcguigan.nlp.v2.datasets;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Streams;
 import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
@@ -12,11 +15,51 @@ import java.util.stream.Stream;
 public abstract class AbstractDataset implements Dataset {
     protected DatasetConfig config;
     protected String condition;
+    protected final CategoryDictionaries dictionaries;
 
     protected AbstractDataset(DatasetConfig config, String condition) {
-        this.config    = config;
-        this.condition = condition;
+        this(config, condition, new CategoryDictionaries(config));
     }
+    protected AbstractDataset(DatasetConfig config, String condition, CategoryDictionaries dictionaries) {
+        this.config       = config;
+        this.condition    = condition;
+        this.dictionaries = dictionaries;
+    }
+
+
+    //***** Batches *****//
+
+    /**
+     * Category ids are assigned during ingestion and shared between all batches and streams of this dataset
+     */
+    @Override
+    public CategoryDictionaries getDictionaries() { return this.dictionaries; }
+
+    @Override
+    public CategoryDictionary getDictionary(String field) { return this.dictionaries.get(field); }
+
+    @Override
+    public Stream<DataBatch> getTrainBatches(int batchSize) {
+        return this.toBatches(this.getTrainStream(), batchSize);
+    }
+
+    @Override
+    public Stream<DataBatch> getTestBatches(int batchSize) {
+        return this.toBatches(this.getTestStream(), batchSize);
+    }
+
+    protected Stream<DataBatch> toBatches(Stream<DataRow> rows, int batchSize) {
+        if(!( batchSize >= 1 )) { throw new IllegalArgumentException("PRECONDITION: batchSize="+batchSize+" >= 1"); }
+
+        Iterator<List<DataRow>> partitions = Iterators.partition(rows.iterator(), batchSize);
+        return Streams.stream(partitions)
+            .map(batch -> new DataBatch(batch, this.config, this::getDictionary))
+            .onClose(rows::close)
+        ;
+    }
+
+
+    //***** KFold *****//
 
     public List<Map<TestTrain,Stream<DataRow>>> getKFoldTestTrainStreams(int folds) {
         if(!( folds >= 1 )) { throw new IllegalArgumentException("PRECONDITION: folds="+folds+" >= 1"); }
@@ -1,12 +1,11 @@
 package com.jamesmcguigan.nlp.v2.datasets;
 
 import com.google.common.collect.Streams;
+import com.jamesmcguigan.nlp.utils.iterators.csv.CSVSpliterator;
 import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
 import com.jamesmcguigan.nlp.v2.exceptions.InvalidConfigurationException;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 
+import javax.annotation.Nullable;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -14,34 +13,34 @@ import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Stream;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 
 // TODO: write unit tests
 public class CSVDataset extends AbstractDataset {
     public CSVDataset(DatasetConfig config, String condition) {
         super(config, condition);
-        if( !condition.isEmpty() ) { throw new InvalidConfigurationException("CSV conditions not implemented"); }
+        if( condition != null && !condition.isEmpty() ) { throw new InvalidConfigurationException("CSV conditions not implemented"); }
     }
 
 
+    /**
+     * Lazily parses the memory-mapped file, the file is split between threads if {@code .parallel()}
+     * Closing the stream releases the underlying reader
+     */
     public Stream<DataRow> getStream(Path path) {
-        try( BufferedReader reader = Files.newBufferedReader(path, UTF_8) ) {
-            return getStream(reader);
+        try {
+            return getStream(CSVSpliterator.open(path));
         } catch( IOException e ) {
             throw new InvalidConfigurationException("Failed to parse CSV: "+path.toString(), e);
         }
     }
     public Stream<DataRow> getStream(BufferedReader reader) throws IOException {
-        CSVFormat csv = CSVFormat.RFC4180.withHeader();
-        try( CSVParser parser = csv.parse(reader) ) {
-            Iterator<CSVRecord> iterator = parser.iterator();
-            return Stream.iterate(
-                iterator.next(),
-                i -> iterator.hasNext(),
-                i -> iterator.next()
-            ).map(record -> new DataRow(new HashMap<>(record.toMap()), this.config));
-        }
+        return getStream(new CSVSpliterator(reader));
+    }
+    protected Stream<DataRow> getStream(CSVSpliterator spliterator) {
+        Map<String, Integer> columns = spliterator.getHeaderMap();
+        return spliterator.stream(false)
+            .map(row -> new DataRow(columns, this.dictionaries.encode(columns, row), this.config, this.dictionaries))
+        ;
     }
 
 
@@ -56,6 +55,20 @@ public class CSVDataset extends AbstractDataset {
     }
 
 
+    /**
+     * @return file size and modification time
+     */
+    @Override
+    public @Nullable String getSourceVersion(TestTrain testTrain) {
+        Path path = ( testTrain == TestTrain.train ) ? config.getFiles().train : config.getFiles().test;
+        try {
+            return Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis();
+        } catch( IOException e ) {
+            return null;
+        }
+    }
+
+
     @Override
     public List<Stream<DataRow>> getKFoldStreams(int folds) {
         return kFoldStream(getTrainStream(), folds);
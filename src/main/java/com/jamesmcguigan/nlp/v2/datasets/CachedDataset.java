@@ -0,0 +1,84 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+
+/**
+ * Wraps a Dataset with a {@link DatasetCache}, so repeated pipeline stages read
+ * a memory-mapped binary file instead of re-parsing the CSV or re-scrolling Elasticsearch
+ * <p/>
+ * The first read of each test/train split writes the cache, later reads are served from disk
+ * until {@code getSourceVersion()} changes. Category dictionaries are shared with the source dataset
+ */
+public class CachedDataset extends AbstractDataset {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final Dataset source;
+    private final DatasetCache cache;
+
+    public CachedDataset(Dataset source, DatasetConfig config, String condition, DatasetCache cache) {
+        super(config, condition, source.getDictionaries());
+        this.source = source;
+        this.cache  = cache;
+    }
+
+    public Dataset getSource() { return this.source; }
+
+
+    //***** Streams *****//
+
+    protected Stream<DataRow> getStream(TestTrain testTrain, Supplier<Stream<DataRow>> sourceStream) {
+        String sourceVersion = this.source.getSourceVersion(testTrain);
+        if( sourceVersion == null ) { return sourceStream.get(); }
+
+        Path path = this.cache.getPath(this.config, this.condition, testTrain);
+        synchronized( this ) {  // avoid duplicate writes when stages request the same split concurrently
+            if( !this.cache.isValid(path, sourceVersion) ) {
+                logger.info("{} | cache miss {}", this.config.getName(), path);
+                boolean written;
+                try( Stream<DataRow> rows = sourceStream.get() ) {
+                    written = this.cache.write(path, sourceVersion, rows, this.config);
+                }
+                if( !written ) { return sourceStream.get(); }
+            }
+        }
+        try {
+            return this.cache.read(path, this.config, this.dictionaries);
+        } catch( IOException e ) {
+            logger.warn("{} | failed to read cache {}", this.config.getName(), path, e);
+            return sourceStream.get();
+        }
+    }
+
+    @Override
+    public Stream<DataRow> getTrainStream() {
+        return this.getStream(TestTrain.train, this.source::getTrainStream);
+    }
+
+    @Override
+    public Stream<DataRow> getTestStream() {
+        return this.getStream(TestTrain.test, this.source::getTestStream);
+    }
+
+    /**
+     * Folds are partitioned from the cached train stream by index, see {@link CSVDataset#kFoldStream}
+     */
+    @Override
+    public List<Stream<DataRow>> getKFoldStreams(int folds) {
+        return CSVDataset.kFoldStream(this.getTrainStream(), folds);
+    }
+
+    @Override
+    public @Nullable String getSourceVersion(TestTrain testTrain) {
+        return this.source.getSourceVersion(testTrain);
+    }
+}
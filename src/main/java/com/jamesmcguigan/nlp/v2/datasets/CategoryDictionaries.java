@@ -0,0 +1,128 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Per-dataset collection of {@link CategoryDictionary}, one for each categorical or list_categorical field
+ * <p/>
+ * Rows are encoded during ingestion, so each DataRow stores a shared {@code Integer} id
+ * (or {@code int[]} for list_categorical) instead of repeating the raw category string.
+ * {@code decode()} provides the reverse lookup for output
+ */
+public class CategoryDictionaries {
+    private final Map<String, DatasetField>       types        = new HashMap<>();
+    private final Map<String, CategoryDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    public CategoryDictionaries(DatasetConfig config) {
+        for( Map<String, DatasetField> fields : Arrays.asList(config.getFields(), config.getLabels()) ) {
+            if( fields == null ) { continue; }
+            fields.forEach((field, type) -> {
+                if( type == DatasetField.categorical || type == DatasetField.list_categorical ) {
+                    this.types.put(field, type);
+                }
+            });
+        }
+    }
+
+
+    //***** Getters *****//
+
+    public CategoryDictionary get(String field) {
+        return this.dictionaries.computeIfAbsent(field, CategoryDictionary::new);
+    }
+    public Set<String> getFields()            { return Collections.unmodifiableSet(this.types.keySet()); }
+    public boolean     isEncoded(String field) { return this.types.containsKey(field); }
+
+
+    //***** Encode *****//
+
+    /**
+     * @param field  categorical or list_categorical field name
+     * @param value  raw value: String, or Collection for list_categorical
+     * @return       {@code Integer} id for categorical, {@code int[]} ids for list_categorical,
+     *               or the original value for non-categorical fields
+     */
+    public @Nullable Object encode(String field, @Nullable Object value) {
+        DatasetField type = this.types.get(field);
+        if( type == null || value == null )    { return value; }
+        if( value instanceof Integer || value instanceof int[] ) { return value; }  // already encoded
+        CategoryDictionary dictionary = this.get(field);
+        if( type == DatasetField.categorical ) {
+            return dictionary.encodeBoxed(value.toString());
+        }
+        return toList(value).stream().mapToInt(dictionary::encode).toArray();
+    }
+
+    /**
+     * Encodes a map of field values in place
+     */
+    public Map<String, Object> encode(Map<String, Object> data) {
+        for( String field : this.types.keySet() ) {
+            if( data.containsKey(field) ) {
+                data.put(field, this.encode(field, data.get(field)));
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Encodes a columnar row, returning a copy only if the row contains categorical fields
+     * @param columns  column name to index lookup
+     * @param values   row values in column order
+     * @return         encoded row values
+     */
+    public Object[] encode(Map<String, Integer> columns, Object[] values) {
+        Object[] output = values;
+        for( String field : this.types.keySet() ) {
+            Integer index = columns.get(field);
+            if( index == null || index >= values.length ) { continue; }
+            if( output == values ) { output = Arrays.copyOf(values, values.length, Object[].class); }
+            output[index] = this.encode(field, values[index]);
+        }
+        return output;
+    }
+
+
+    //***** Decode *****//
+
+    /**
+     * Reverse lookup of an encoded value for output
+     * @param field  field name
+     * @param value  encoded value as stored in a DataRow
+     * @return       category String, {@code List<String>} for list_categorical, or the original value
+     */
+    public @Nullable Object decode(String field, @Nullable Object value) {
+        if( !this.isEncoded(field) || value == null ) { return value; }
+        CategoryDictionary dictionary = this.get(field);
+        if( value instanceof Integer ) {
+            return dictionary.decode((Integer) value);
+        }
+        if( value instanceof int[] ) {
+            List<String> output = new ArrayList<>();
+            for( int id : (int[]) value ) { output.add(dictionary.decode(id)); }
+            return output;
+        }
+        return value;
+    }
+
+
+    //***** Casting *****//
+
+    static List<String> toList(@Nullable Object value) {
+        if( value == null ) { return Collections.emptyList(); }
+        if( value instanceof Collection ) {
+            List<String> values = new ArrayList<>();
+            for( Object item : (Collection<?>) value ) {
+                if( item != null ) { values.add(item.toString()); }
+            }
+            return values;
+        }
+        return value.toString().isEmpty() ? Collections.emptyList() : Collections.singletonList(value.toString());
+    }
+}
@@ -0,0 +1,77 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Thread-safe mapping of category strings to dense int ids [0, size) for a single field
+ * <p/>
+ * Ids are assigned in order of first appearance and are stable for the lifetime of the dictionary,
+ * so they can be shared between batches and used as array indices
+ */
+public class CategoryDictionary {
+    public static final int MISSING = -1;
+
+    private final String field;
+    private final Map<String, Integer> ids    = new ConcurrentHashMap<>();
+    private final List<String>         values = new ArrayList<>();  // guarded by synchronized(this)
+
+    public CategoryDictionary(String field) {
+        this.field = field;
+    }
+
+    public String getField() { return this.field; }
+    public synchronized int size() { return this.values.size(); }
+    public synchronized List<String> getValues() { return Collections.unmodifiableList(new ArrayList<>(this.values)); }
+
+
+    /**
+     * @param value  category string
+     * @return       existing id, or a newly assigned id, or {@code MISSING} for null
+     */
+    public int encode(@Nullable String value) {
+        Integer id = this.encodeBoxed(value);
+        return ( id != null ) ? id : MISSING;
+    }
+
+    /**
+     * Returns the Integer instance stored in the dictionary, avoiding per-row boxing allocations
+     * @param value  category string
+     * @return       existing id, or a newly assigned id, or null for null
+     */
+    public @Nullable Integer encodeBoxed(@Nullable String value) {
+        if( value == null ) { return null; }
+        Integer id = this.ids.get(value);  // lock-free fast path for existing categories
+        if( id != null ) { return id; }
+        synchronized( this ) {
+            return this.ids.computeIfAbsent(value, key -> {
+                this.values.add(key);
+                return this.values.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * @param value  category string
+     * @return       existing id without assigning a new one, or {@code MISSING}
+     */
+    public int lookup(@Nullable String value) {
+        if( value == null ) { return MISSING; }
+        return this.ids.getOrDefault(value, MISSING);
+    }
+
+    /**
+     * @param id  dense category id
+     * @return    reverse lookup of the category string, or null for {@code MISSING}
+     */
+    public synchronized @Nullable String decode(int id) {
+        if( id == MISSING ) { return null; }
+        if(!( 0 <= id && id < this.values.size() )) { throw new IllegalArgumentException("PRECONDITION: 0 <= id="+id+" < size="+this.values.size()); }
+        return this.values.get(id);
+    }
+}
@@ -0,0 +1,186 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Function;
+
+
+/**
+ * Columnar representation of a batch of DataRows, with one typed array per field
+ * <p/>
+ * Column types are driven by {@link DatasetField}:
+ * <pre>
+ *     text             -> String[]
+ *     categorical      -> int[]    dictionary ids, see {@link CategoryDictionary}
+ *     list_categorical -> int[][]  dictionary ids
+ *     numeric          -> double[] NaN if missing
+ *     integer          -> long[]   0 if missing
+ *     binary           -> BitSet
+ * </pre>
+ * Missing or unparsable values are also recorded in {@code getMissing(field)}
+ */
+public class DataBatch {
+    private final DatasetConfig config;
+    private final int size;
+    private final String[] ids;
+    private final Map<String, DatasetField> types   = new LinkedHashMap<>();
+    private final Map<String, Object>       columns = new HashMap<>();
+    private final Map<String, BitSet>       missing = new HashMap<>();
+
+
+    //***** Constructor *****//
+
+    /**
+     * @param rows          rows to be transposed into columns
+     * @param config        dataset config defining the field types
+     * @param dictionaries  lookup for the shared CategoryDictionary of each categorical field
+     */
+    public DataBatch(List<DataRow> rows, DatasetConfig config, Function<String, CategoryDictionary> dictionaries) {
+        this.config = config;
+        this.size   = rows.size();
+        this.ids    = new String[this.size];
+
+        String idField = config.getIdField();
+        for( int i = 0; i < this.size; i++ ) {
+            this.ids[i] = toString(rows.get(i).get(idField));
+        }
+        if( config.getFields() != null ) { this.types.putAll(config.getFields()); }
+        if( config.getLabels() != null ) { this.types.putAll(config.getLabels()); }
+        this.types.forEach((field, type) -> {
+            BitSet fieldMissing = new BitSet(this.size);
+            this.columns.put(field, this.toColumn(rows, field, type, fieldMissing, dictionaries));
+            this.missing.put(field, fieldMissing);
+        });
+    }
+
+    private Object toColumn(
+        List<DataRow> rows, String field, DatasetField type, BitSet fieldMissing,
+        Function<String, CategoryDictionary> dictionaries
+    ) {
+        return switch( type ) {
+            case text             -> this.toTextColumn(rows, field, fieldMissing);
+            case categorical      -> this.toCategoricalColumn(rows, field, fieldMissing, dictionaries.apply(field));
+            case list_categorical -> this.toListCategoricalColumn(rows, field, fieldMissing, dictionaries.apply(field));
+            case numeric          -> this.toNumericColumn(rows, field, fieldMissing);
+            case integer          -> this.toIntegerColumn(rows, field, fieldMissing);
+            case binary           -> this.toBinaryColumn(rows, field, fieldMissing);
+        };
+    }
+
+    private String[] toTextColumn(List<DataRow> rows, String field, BitSet fieldMissing) {
+        String[] column = new String[this.size];
+        for( int i = 0; i < this.size; i++ ) {
+            column[i] = toString(rows.get(i).get(field));
+            if( column[i] == null ) { fieldMissing.set(i); }
+        }
+        return column;
+    }
+
+    private int[] toCategoricalColumn(List<DataRow> rows, String field, BitSet fieldMissing, CategoryDictionary dictionary) {
+        int[] column = new int[this.size];
+        for( int i = 0; i < this.size; i++ ) {
+            Object value = rows.get(i).get(field);
+            column[i] = ( value instanceof Integer )  // encoded during ingestion
+                ? (Integer) value
+                : dictionary.encode(toString(value))
+            ;
+            if( column[i] == CategoryDictionary.MISSING ) { fieldMissing.set(i); }
+        }
+        return column;
+    }
+
+    private int[][] toListCategoricalColumn(List<DataRow> rows, String field, BitSet fieldMissing, CategoryDictionary dictionary) {
+        int[][] column = new int[this.size][];
+        for( int i = 0; i < this.size; i++ ) {
+            Object value = rows.get(i).get(field);
+            column[i] = ( value instanceof int[] )    // encoded during ingestion
+                ? (int[]) value
+                : CategoryDictionaries.toList(value).stream().mapToInt(dictionary::encode).toArray()
+            ;
+            if( column[i].length == 0 ) { fieldMissing.set(i); }
+        }
+        return column;
+    }
+
+    private double[] toNumericColumn(List<DataRow> rows, String field, BitSet fieldMissing) {
+        double[] column = new double[this.size];
+        for( int i = 0; i < this.size; i++ ) {
+            column[i] = toDouble(rows.get(i).get(field));
+            if( Double.isNaN(column[i]) ) { fieldMissing.set(i); }
+        }
+        return column;
+    }
+
+    private long[] toIntegerColumn(List<DataRow> rows, String field, BitSet fieldMissing) {
+        long[] column = new long[this.size];
+        for( int i = 0; i < this.size; i++ ) {
+            double value = toDouble(rows.get(i).get(field));
+            if( Double.isNaN(value) ) { fieldMissing.set(i); } else { column[i] = (long) value; }
+        }
+        return column;
+    }
+
+    private BitSet toBinaryColumn(List<DataRow> rows, String field, BitSet fieldMissing) {
+        BitSet column = new BitSet(this.size);
+        for( int i = 0; i < this.size; i++ ) {
+            Boolean value = toBoolean(rows.get(i).get(field));
+            if( value == null ) { fieldMissing.set(i); } else { column.set(i, value); }
+        }
+        return column;
+    }
+
+
+    //***** Getters *****//
+
+    public DatasetConfig getConfig()              { return this.config; }
+    public int           size()                   { return this.size;   }
+    public String[]      getIds()                 { return this.ids;    }
+    public Set<String>   getFieldNames()          { return Collections.unmodifiableSet(this.types.keySet()); }
+    public DatasetField  getType(String field)    { return this.types.get(field); }
+    public BitSet        getMissing(String field) { return this.missing.get(field); }
+
+    public String[] getText(String field)            { return (String[]) this.getColumn(field, DatasetField.text);             }
+    public int[]    getCategorical(String field)     { return (int[])    this.getColumn(field, DatasetField.categorical);      }
+    public int[][]  getListCategorical(String field) { return (int[][])  this.getColumn(field, DatasetField.list_categorical); }
+    public double[] getNumeric(String field)         { return (double[]) this.getColumn(field, DatasetField.numeric);          }
+    public long[]   getInteger(String field)         { return (long[])   this.getColumn(field, DatasetField.integer);          }
+    public BitSet   getBinary(String field)          { return (BitSet)   this.getColumn(field, DatasetField.binary);           }
+
+    private Object getColumn(String field, DatasetField expected) {
+        DatasetField type = this.types.get(field);
+        if( type == null )     { throw new IllegalArgumentException(String.format("%s not in %s", field, this.types.keySet())); }
+        if( type != expected ) { throw new IllegalArgumentException(String.format("%s is %s not %s", field, type, expected)); }
+        return this.columns.get(field);
+    }
+
+
+    //***** Casting *****//
+
+    private static @Nullable String toString(@Nullable Object value) {
+        return ( value != null ) ? value.toString() : null;
+    }
+
+    private static double toDouble(@Nullable Object value) {
+        if( value instanceof Number ) { return ((Number) value).doubleValue(); }
+        if( value == null || value.toString().isBlank() ) { return Double.NaN; }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch( NumberFormatException e ) {
+            return Double.NaN;
+        }
+    }
+
+    private static @Nullable Boolean toBoolean(@Nullable Object value) {
+        if( value instanceof Boolean ) { return (Boolean) value; }
+        if( value instanceof Number  ) { return ((Number) value).doubleValue() != 0; }
+        if( value == null ) { return null; }
+        return switch( value.toString().trim().toLowerCase() ) {
+            case "1", "true",  "yes", "y" -> true;
+            case "0", "false", "no",  "n" -> false;
+            default                       -> null;
+        };
+    }
+}
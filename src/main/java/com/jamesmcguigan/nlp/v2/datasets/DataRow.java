@@ -1,18 +1,132 @@
 package com.jamesmcguigan.nlp.v2.datasets;
 
+import com.jamesmcguigan.nlp.utils.tokenize.NLPTokenizer;
 import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
 
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 public class DataRow {
     private final Map<String, Object> data;
     private final DatasetConfig config;
+    @Nullable private final CategoryDictionaries dictionaries;
+    @Nullable private Map<String, Integer> tokenColumns;  // pre-tokenized text, see DatasetCache
+    @Nullable private String[][]           tokens;
 
     public DataRow(Map<String, Object> data, DatasetConfig config) {
-        this.data   = data;
-        this.config = config;
+        this(data, config, null);
+    }
+    public DataRow(Map<String, Object> data, DatasetConfig config, @Nullable CategoryDictionaries dictionaries) {
+        this.data         = data;
+        this.config       = config;
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * Columnar constructor, avoids a per-row HashMap copy
+     * @param columns  column name to index lookup, shared between all rows of the same source
+     * @param values   row values in column order
+     * @param config   dataset config
+     */
+    public DataRow(Map<String, Integer> columns, Object[] values, DatasetConfig config) {
+        this(columns, values, config, null);
+    }
+    public DataRow(Map<String, Integer> columns, Object[] values, DatasetConfig config, @Nullable CategoryDictionaries dictionaries) {
+        this(new ColumnMap(columns, values), config, dictionaries);
     }
 
     public Map<String, Object> toMap() { return this.data;   }
     public DatasetConfig getConfig()   { return this.config; }
+
+    /**
+     * @return raw stored value, categorical fields are {@code Integer} ids and list_categorical are {@code int[]}
+     */
+    public @Nullable Object get(String field) { return this.data.get(field); }
+
+    /**
+     * @return value with categorical ids decoded back into category strings, for output
+     */
+    public @Nullable Object getDecoded(String field) {
+        Object value = this.data.get(field);
+        return ( this.dictionaries != null ) ? this.dictionaries.decode(field, value) : value;
+    }
+
+    /**
+     * @return pre-tokenized text if loaded from {@link DatasetCache},
+     *         else the field tokenized by {@link NLPTokenizer#getSharedTokenizer()}
+     */
+    public String[] getTokens(String field) {
+        if( this.tokens != null && this.tokenColumns != null ) {
+            Integer index = this.tokenColumns.get(field);
+            if( index != null && index < this.tokens.length && this.tokens[index] != null ) {
+                return this.tokens[index];
+            }
+        }
+        Object value = this.getDecoded(field);
+        return ( value != null ) ? NLPTokenizer.getSharedTokenizer().tokenize(value.toString()) : new String[0];
+    }
+    DataRow setTokens(Map<String, Integer> tokenColumns, String[][] tokens) {
+        this.tokenColumns = tokenColumns;
+        this.tokens       = tokens;
+        return this;
+    }
+
+    /**
+     * @return dense category id, or {@code CategoryDictionary.MISSING}
+     */
+    public int getCategoryId(String field) {
+        Object value = this.data.get(field);
+        return ( value instanceof Integer ) ? (Integer) value : CategoryDictionary.MISSING;
+    }
+
+    /**
+     * @return dense category ids for a list_categorical field, or an empty array
+     */
+    public int[] getCategoryIds(String field) {
+        Object value = this.data.get(field);
+        return ( value instanceof int[] ) ? (int[]) value : new int[0];
+    }
+
+
+    /**
+     * Read-only Map view over a shared column index and a per-row values array
+     */
+    private static class ColumnMap extends AbstractMap<String, Object> {
+        private final Map<String, Integer> columns;
+        private final Object[] values;
+
+        ColumnMap(Map<String, Integer> columns, Object[] values) {
+            this.columns = columns;
+            this.values  = values;
+        }
+
+        @Override
+        public @Nullable Object get(Object key) {
+            Integer index = this.columns.get(key);
+            return ( index != null && index < this.values.length ) ? this.values[index] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) { return this.columns.containsKey(key); }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() { return ColumnMap.this.columns.size(); }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return ColumnMap.this.columns.keySet().stream()
+                        .map(key -> (Entry<String, Object>) new SimpleImmutableEntry<>(key, ColumnMap.this.get(key)))
+                        .iterator()
+                    ;
+                }
+            };
+        }
+    }
 }
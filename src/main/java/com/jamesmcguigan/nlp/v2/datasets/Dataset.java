@@ -1,5 +1,6 @@
 package com.jamesmcguigan.nlp.v2.datasets;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -7,4 +8,15 @@ public interface Dataset {
     Stream<DataRow> getTrainStream();
     Stream<DataRow> getTestStream();
     List<Stream<DataRow>> getKFoldStreams(int folds);
+
+    Stream<DataBatch> getTrainBatches(int batchSize);
+    Stream<DataBatch> getTestBatches(int batchSize);
+    CategoryDictionaries getDictionaries();
+    CategoryDictionary getDictionary(String field);
+
+    /**
+     * @return opaque string that changes whenever the source data changes, used to invalidate {@link DatasetCache}
+     *         or null if the version cannot be determined
+     */
+    @Nullable String getSourceVersion(TestTrain testTrain);
 }
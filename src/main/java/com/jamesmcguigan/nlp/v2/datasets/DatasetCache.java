@@ -0,0 +1,373 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.google.common.hash.Hashing;
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+
+/**
+ * Local binary cache of tokenized, dictionary-encoded DataRows, read back via a memory-mapped file
+ * <p/>
+ * Files are keyed by a hash of the DatasetConfig + condition, and store the source version
+ * (file size/mtime or index doc count) so that stale caches are rebuilt on the next read.
+ * <pre>
+ *     header:  MAGIC | FORMAT_VERSION | sourceVersion
+ *     rows:    [ tag value (+ token ids for text fields) ] per column
+ *     trailer: rowCount | columns | category dictionaries | token dictionary | block offsets
+ *     footer:  trailer offset
+ * </pre>
+ * Block offsets every {@code BLOCK_SIZE} rows allow the cache to be read in parallel
+ */
+public class DatasetCache {
+    private static final Logger logger = LogManager.getLogger();
+
+    static final int MAGIC          = 0x4e4c5043;  // "NLPC"
+    static final int FORMAT_VERSION = 2;  // 2: rebuild elasticsearch caches written without the last scroll hit
+    static final int BLOCK_SIZE     = 1024;
+
+    private static final byte NULL     = 0;
+    private static final byte STRING   = 1;
+    private static final byte CATEGORY = 2;
+    private static final byte LIST     = 3;
+    private static final byte LONG     = 4;
+    private static final byte DOUBLE   = 5;
+    private static final byte BOOLEAN  = 6;
+
+    private final Path directory;
+
+    public DatasetCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() { return this.directory; }
+
+
+    //***** Keys *****//
+
+    /**
+     * @return cache file path unique to the dataset config, condition and test/train split
+     */
+    public Path getPath(DatasetConfig config, @Nullable String condition, TestTrain testTrain) {
+        String key = String.join("\n",
+            String.valueOf(FORMAT_VERSION),
+            String.valueOf(config.getName()),
+            String.valueOf(config.getType()),
+            String.valueOf(config.getIndex()),
+            ( config.getFiles() != null ) ? config.getFiles().train + "|" + config.getFiles().test : "null",
+            config.getIdField(),
+            String.valueOf(config.getFields()),
+            String.valueOf(config.getLabels()),
+            String.valueOf(condition),
+            testTrain.name()
+        );
+        String hash = Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString().substring(0, 16);
+        return this.directory.resolve(config.getName() + "-" + testTrain + "-" + hash + ".bin");
+    }
+
+    /**
+     * @return true if the cache file exists and was written from the same source version
+     */
+    public boolean isValid(Path path, String sourceVersion) {
+        if( !Files.isRegularFile(path) ) { return false; }
+        try( var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path))) ) {
+            return input.readInt() == MAGIC
+                && input.readInt() == FORMAT_VERSION
+                && input.readUTF().equals(sourceVersion)
+            ;
+        } catch( IOException e ) {
+            return false;
+        }
+    }
+
+
+    //***** Write *****//
+
+    /**
+     * Writes to a temporary file which is atomically moved into place, so concurrent readers never see partial files
+     * @return false if the cache could not be written, in which case the caller should read from source
+     */
+    public boolean write(Path path, String sourceVersion, Stream<DataRow> rows, DatasetConfig config) {
+        Path temp = null;
+        try {
+            Files.createDirectories(this.directory);
+            temp = Files.createTempFile(this.directory, path.getFileName().toString(), ".tmp");
+            long size;
+            try( var output = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))) ) {
+                new CacheWriter(config, output).write(sourceVersion, rows);
+                size = output.getCount();
+            }
+            if( size > Integer.MAX_VALUE ) {
+                logger.warn("{} | {} bytes is too large to memory-map, skipping cache", path, size);
+                return false;
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("{} | wrote {} bytes", path, size);
+            return true;
+        } catch( IOException | UncheckedIOException e ) {
+            logger.warn("{} | failed to write cache", path, e);
+            return false;
+        } finally {
+            try { if( temp != null ) { Files.deleteIfExists(temp); } } catch( IOException ignored ) { /* best effort */ }
+        }
+    }
+
+    private static class CacheWriter {
+        private final DataOutputStream output;
+        private final CountingOutputStream counter;
+        private final String[] columns;
+        private final DatasetField[] types;
+        private final Map<String, Integer> tokenIds    = new HashMap<>();
+        private final List<String>         tokens      = new ArrayList<>();
+        private final Map<String, CategoryDictionary> categories = new HashMap<>();
+        private final List<Long>           blocks      = new ArrayList<>();
+
+        CacheWriter(DatasetConfig config, CountingOutputStream counter) {
+            Map<String, DatasetField> fields = new LinkedHashMap<>();
+            fields.put(config.getIdField(), null);
+            if( config.getFields() != null ) { fields.putAll(config.getFields()); }
+            if( config.getLabels() != null ) { fields.putAll(config.getLabels()); }
+            this.columns = fields.keySet().toArray(new String[0]);
+            this.types   = fields.values().toArray(new DatasetField[0]);
+            this.counter = counter;
+            this.output  = new DataOutputStream(counter);
+        }
+
+        void write(String sourceVersion, Stream<DataRow> rows) throws IOException {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(sourceVersion);
+
+            int rowCount = 0;
+            Iterator<DataRow> iterator = rows.iterator();
+            while( iterator.hasNext() ) {
+                if( rowCount % BLOCK_SIZE == 0 ) { blocks.add(counter.getCount()); }
+                this.writeRow(iterator.next());
+                rowCount++;
+            }
+            long trailer = counter.getCount();
+
+            output.writeInt(rowCount);
+            output.writeInt(columns.length);
+            for( String column : columns ) { this.writeString(column); }
+            output.writeInt(categories.size());
+            for( var entry : categories.entrySet() ) {
+                this.writeString(entry.getKey());
+                this.writeStrings(entry.getValue().getValues());
+            }
+            this.writeStrings(tokens);
+            output.writeInt(blocks.size());
+            for( long block : blocks ) { output.writeLong(block); }
+            output.writeLong(trailer);
+            output.flush();
+        }
+
+        private void writeRow(DataRow row) throws IOException {
+            for( int i = 0; i < columns.length; i++ ) {
+                String field = columns[i];
+                DatasetField type = types[i];
+                if( type == DatasetField.categorical || type == DatasetField.list_categorical ) {
+                    this.writeCategory(field, row.getDecoded(field));
+                } else {
+                    this.writeValue(row.get(field));
+                }
+                if( type == DatasetField.text ) {
+                    String[] fieldTokens = row.getTokens(field);
+                    output.writeInt(fieldTokens.length);
+                    for( String token : fieldTokens ) {
+                        output.writeInt(tokenIds.computeIfAbsent(token, key -> { tokens.add(key); return tokens.size() - 1; }));
+                    }
+                }
+            }
+        }
+
+        private void writeCategory(String field, @Nullable Object value) throws IOException {
+            CategoryDictionary dictionary = categories.computeIfAbsent(field, CategoryDictionary::new);
+            if( value == null ) {
+                output.writeByte(NULL);
+            } else if( value instanceof Collection ) {
+                List<String> values = CategoryDictionaries.toList(value);
+                output.writeByte(LIST);
+                output.writeInt(values.size());
+                for( String item : values ) { output.writeInt(dictionary.encode(item)); }
+            } else {
+                output.writeByte(CATEGORY);
+                output.writeInt(dictionary.encode(value.toString()));
+            }
+        }
+
+        private void writeValue(@Nullable Object value) throws IOException {
+            if( value == null ) {
+                output.writeByte(NULL);
+            } else if( value instanceof Integer || value instanceof Long || value instanceof Short ) {
+                output.writeByte(LONG);
+                output.writeLong(((Number) value).longValue());
+            } else if( value instanceof Number ) {
+                output.writeByte(DOUBLE);
+                output.writeDouble(((Number) value).doubleValue());
+            } else if( value instanceof Boolean ) {
+                output.writeByte(BOOLEAN);
+                output.writeBoolean((Boolean) value);
+            } else {
+                output.writeByte(STRING);
+                this.writeString(value.toString());
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);  // writeUTF() is limited to 64k
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        private void writeStrings(List<String> values) throws IOException {
+            output.writeInt(values.size());
+            for( String value : values ) { this.writeString(value); }
+        }
+    }
+
+
+    //***** Read *****//
+
+    /**
+     * Memory-maps the cache file, remapping cached category ids into the live dataset dictionaries
+     * The returned stream is split by block if {@code .parallel()}
+     */
+    public Stream<DataRow> read(Path path, DatasetConfig config, CategoryDictionaries dictionaries) throws IOException {
+        ByteBuffer buffer;
+        try( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CacheReader reader = new CacheReader(buffer, config, dictionaries);
+        return IntStream.range(0, reader.blocks.length).boxed().flatMap(reader::readBlock);
+    }
+
+    private static class CacheReader {
+        private final ByteBuffer buffer;
+        private final DatasetConfig config;
+        private final CategoryDictionaries dictionaries;
+        private final int rowCount;
+        private final String[] columns;
+        private final Map<String, Integer> columnIndex = new HashMap<>();
+        private final boolean[] isText;
+        private final Integer[][] categories;  // cached id -> live dictionary id
+        private final String[]  tokens;
+        private final long[]    blocks;
+
+        CacheReader(ByteBuffer buffer, DatasetConfig config, CategoryDictionaries dictionaries) {
+            this.buffer       = buffer;
+            this.config       = config;
+            this.dictionaries = dictionaries;
+
+            ByteBuffer input = buffer.duplicate();
+            input.position((int) input.getLong(input.limit() - Long.BYTES));
+            this.rowCount = input.getInt();
+            this.columns  = new String[input.getInt()];
+            this.isText   = new boolean[this.columns.length];
+            for( int i = 0; i < this.columns.length; i++ ) {
+                this.columns[i] = readString(input);
+                this.columnIndex.put(this.columns[i], i);
+                this.isText[i]  = getType(config, this.columns[i]) == DatasetField.text;
+            }
+            this.categories = new Integer[this.columns.length][];
+            int categoryCount = input.getInt();
+            for( int n = 0; n < categoryCount; n++ ) {
+                String field    = readString(input);
+                String[] values = readStrings(input);
+                Integer[] ids   = new Integer[values.length];
+                for( int id = 0; id < values.length; id++ ) {
+                    ids[id] = dictionaries.get(field).encodeBoxed(values[id]);
+                }
+                this.categories[this.columnIndex.get(field)] = ids;
+            }
+            this.tokens = readStrings(input);
+            this.blocks = new long[input.getInt()];
+            for( int i = 0; i < this.blocks.length; i++ ) { this.blocks[i] = input.getLong(); }
+        }
+
+        Stream<DataRow> readBlock(int block) {
+            ByteBuffer input = this.buffer.duplicate();
+            input.position((int) this.blocks[block]);
+            int size = Math.min(BLOCK_SIZE, this.rowCount - block * BLOCK_SIZE);
+            List<DataRow> rows = new ArrayList<>(size);
+            for( int i = 0; i < size; i++ ) { rows.add(this.readRow(input)); }
+            return rows.stream();
+        }
+
+        private DataRow readRow(ByteBuffer input) {
+            Object[]   values    = new Object[this.columns.length];
+            String[][] rowTokens = new String[this.columns.length][];
+            for( int i = 0; i < this.columns.length; i++ ) {
+                values[i] = this.readValue(input, i);
+                if( this.isText[i] ) {
+                    String[] fieldTokens = new String[input.getInt()];
+                    for( int t = 0; t < fieldTokens.length; t++ ) { fieldTokens[t] = this.tokens[input.getInt()]; }
+                    rowTokens[i] = fieldTokens;
+                }
+            }
+            return new DataRow(this.columnIndex, values, this.config, this.dictionaries)
+                .setTokens(this.columnIndex, rowTokens)
+            ;
+        }
+
+        private @Nullable Object readValue(ByteBuffer input, int column) {
+            byte tag = input.get();
+            return switch( tag ) {
+                case NULL     -> null;
+                case STRING   -> readString(input);
+                case CATEGORY -> this.categories[column][input.getInt()];
+                case LIST     -> {
+                    int[] ids = new int[input.getInt()];
+                    for( int i = 0; i < ids.length; i++ ) { ids[i] = this.categories[column][input.getInt()]; }
+                    yield ids;
+                }
+                case LONG     -> input.getLong();
+                case DOUBLE   -> input.getDouble();
+                case BOOLEAN  -> input.get() != 0;
+                default       -> throw new IllegalStateException("Corrupt cache: unknown tag "+tag);
+            };
+        }
+    }
+
+    private static @Nullable DatasetField getType(DatasetConfig config, String field) {
+        if( config.getFields() != null && config.getFields().containsKey(field) ) { return config.getFields().get(field); }
+        if( config.getLabels() != null && config.getLabels().containsKey(field) ) { return config.getLabels().get(field); }
+        return null;
+    }
+
+    private static String readString(ByteBuffer input) {
+        byte[] bytes = new byte[input.getInt()];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    private static String[] readStrings(ByteBuffer input) {
+        String[] values = new String[input.getInt()];
+        for( int i = 0; i < values.length; i++ ) { values[i] = readString(input); }
+        return values;
+    }
+
+
+    //***** Utils *****//
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+        CountingOutputStream(OutputStream output) { super(output); }
+        long getCount() { return this.count; }
+
+        @Override public void write(int b) throws IOException { out.write(b); count++; }
+        @Override public void write(byte[] b, int off, int len) throws IOException { out.write(b, off, len); count += len; }
+    }
+}
@@ -0,0 +1,69 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Per-run registry of Dataset instances, so each DatasetConfig + condition is only loaded once
+ * <p/>
+ * {@code multicast()} returns views that share a single scan of the source between concurrent consumers,
+ * see {@link MulticastDataset}. {@code close()} releases the datasets at the end of the run
+ */
+public class DatasetRegistry implements AutoCloseable {
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final @Nullable Path cacheDirectory;
+    private final int bufferSize;
+    private final Map<String, Dataset> datasets = new ConcurrentHashMap<>();
+
+    public DatasetRegistry() {
+        this(null);
+    }
+    public DatasetRegistry(@Nullable Path cacheDirectory) {
+        this(cacheDirectory, DEFAULT_BUFFER_SIZE);
+    }
+    /**
+     * @param cacheDirectory  optional location for the binary {@link DatasetCache}
+     * @param bufferSize      maximum rows buffered per multicast consumer
+     */
+    public DatasetRegistry(@Nullable Path cacheDirectory, int bufferSize) {
+        if(!( bufferSize >= 1 )) { throw new IllegalArgumentException("PRECONDITION: bufferSize="+bufferSize+" >= 1"); }
+        this.cacheDirectory = cacheDirectory;
+        this.bufferSize     = bufferSize;
+    }
+
+    public int size() { return this.datasets.size(); }
+
+
+    /**
+     * @return shared Dataset instance for this config + condition
+     */
+    public Dataset get(DatasetConfig config, @Nullable String condition) {
+        return this.datasets.computeIfAbsent(getKey(config, condition), key ->
+            Datasets.from(config, condition, this.cacheDirectory)
+        );
+    }
+
+    /**
+     * @param consumers  number of concurrent consumers that will each read the train/test streams
+     * @return           one view per consumer, sharing a single scan of the registered dataset
+     */
+    public List<MulticastDataset> multicast(DatasetConfig config, @Nullable String condition, int consumers) {
+        return MulticastDataset.of(this.get(config, condition), config, condition, consumers, this.bufferSize);
+    }
+
+    public static String getKey(DatasetConfig config, @Nullable String condition) {
+        return config.getName() + "|" + condition;
+    }
+
+    @Override
+    public void close() {
+        this.datasets.clear();
+    }
+}
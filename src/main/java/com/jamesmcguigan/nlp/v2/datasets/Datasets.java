@@ -2,6 +2,8 @@ package com.jamesmcguigan.nlp.v2.datasets;
 
 import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -9,8 +11,11 @@ public class Datasets {
     private Datasets() {}
 
     public static List<Dataset> from(List<DatasetConfig> datasetConfigs, String condition) {
+        return from(datasetConfigs, condition, null);
+    }
+    public static List<Dataset> from(List<DatasetConfig> datasetConfigs, String condition, @Nullable Path cacheDirectory) {
         return datasetConfigs.stream()
-            .map(datasetConfig -> Datasets.from(datasetConfig, condition))
+            .map(datasetConfig -> Datasets.from(datasetConfig, condition, cacheDirectory))
             .collect(Collectors.toList())
         ;
     }
@@ -20,4 +25,15 @@ public class Datasets {
             case csv           -> new CSVDataset(datasetConfig, condition);
         };
     }
+
+    /**
+     * @param cacheDirectory  if not null, wrap the dataset in a {@link CachedDataset} stored in this directory
+     */
+    public static Dataset from(DatasetConfig datasetConfig, String condition, @Nullable Path cacheDirectory) {
+        Dataset dataset = from(datasetConfig, condition);
+        return ( cacheDirectory != null )
+            ? new CachedDataset(dataset, datasetConfig, condition, new DatasetCache(cacheDirectory))
+            : dataset
+        ;
+    }
 }
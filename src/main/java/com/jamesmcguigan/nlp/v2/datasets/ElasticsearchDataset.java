@@ -1,21 +1,33 @@
 package com.jamesmcguigan.nlp.v2.datasets;
 
+import com.jamesmcguigan.nlp.utils.elasticsearch.ESClient;
 import com.jamesmcguigan.nlp.utils.elasticsearch.read.ScanAndScrollIterator;
 import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.core.CountRequest;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.script.Script;
 import org.json.JSONObject;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
 // TODO: write unit tests
 public class ElasticsearchDataset extends AbstractDataset {
+    private static final Logger logger = LogManager.getLogger();
     private final String index;
     private final List<String> fields;
 
@@ -58,11 +70,9 @@ public class ElasticsearchDataset extends AbstractDataset {
 
     public Stream<DataRow> getStream(List<String> fields, QueryBuilder query) {
         var scanAndScroll = new ScanAndScrollIterator<>(JSONObject.class, this.index, fields, query);
-        return Stream.iterate(
-            scanAndScroll.next(),
-            i -> scanAndScroll.hasNext(),
-            i -> scanAndScroll.next()
-        ).map(json -> new DataRow(json.toMap(), this.config));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(scanAndScroll, Spliterator.ORDERED), false)
+            .map(json -> new DataRow(this.dictionaries.encode(json.toMap()), this.config, this.dictionaries))
+        ;
     }
 
     @Override
@@ -75,6 +85,21 @@ public class ElasticsearchDataset extends AbstractDataset {
         return this.getStream(this.fields, this.getTestQuery());
     }
 
+    /**
+     * @return number of documents matching the query, as ES does not expose an index modification timestamp
+     */
+    @Override
+    public @Nullable String getSourceVersion(TestTrain testTrain) {
+        QueryBuilder query = ( testTrain == TestTrain.train ) ? this.getTrainQuery() : this.getTestQuery();
+        try {
+            CountRequest request = new CountRequest(this.index).query(query);
+            return "count:" + ESClient.getInstance().count(request, RequestOptions.DEFAULT).getCount();
+        } catch( IOException | ElasticsearchException e ) {
+            logger.warn("{} | unable to count documents", this.index, e);
+            return null;
+        }
+    }
+
     @Override
     public List<Stream<DataRow>> getKFoldStreams(int folds) {
         if(!( folds >= 1 )) { throw new IllegalArgumentException("PRECONDITION: folds="+folds+" >= 1"); }
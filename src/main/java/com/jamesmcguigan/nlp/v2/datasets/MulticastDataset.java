@@ -0,0 +1,301 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+
+
+/**
+ * One consumer's view of a Dataset whose streams are shared between a fixed group of consumers
+ * <p/>
+ * The first consumer to request a train/test stream starts a single scan of the source on its own producer thread,
+ * and each row is multicast to a bounded queue per consumer. The scan runs at the speed of the
+ * slowest reading consumer. The Nth stream requested by each consumer shares the Nth scan,
+ * and consumers that {@code close()} are detached so they never block the others.
+ * <p/>
+ * Only consumers that are reading apply backpressure. A pending consumer whose queue fills before it subscribes
+ * is dropped from the round, immediately if it is busy reading a different round, else after {@code pendingMillis},
+ * and later reads that stream directly from the source. So consumers need not run concurrently, and consumers
+ * requesting rounds in different orders cannot deadlock, at the cost of an extra scan.
+ * Rounds are removed once every consumer has finished, closed or been dropped from them
+ */
+public class MulticastDataset extends AbstractDataset implements AutoCloseable {
+    private final Group group;
+    private final int member;
+    private final Map<TestTrain, Integer> requests = new EnumMap<>(TestTrain.class);
+
+    private MulticastDataset(Group group, int member, DatasetConfig config, String condition) {
+        super(config, condition, group.source.getDictionaries());
+        this.group  = group;
+        this.member = member;
+    }
+
+    public static final long DEFAULT_PENDING_MILLIS = 1000;
+
+    public static List<MulticastDataset> of(
+        Dataset source, DatasetConfig config, String condition, int consumers, int bufferSize
+    ) {
+        return of(source, config, condition, consumers, bufferSize, DEFAULT_PENDING_MILLIS);
+    }
+    /**
+     * @param source         dataset to be scanned once per round
+     * @param consumers      number of views sharing each scan
+     * @param bufferSize     maximum rows buffered per consumer
+     * @param pendingMillis  how long a round waits on the full queue of a consumer that has not subscribed yet
+     */
+    public static List<MulticastDataset> of(
+        Dataset source, DatasetConfig config, String condition, int consumers, int bufferSize, long pendingMillis
+    ) {
+        if(!( consumers     >= 1 )) { throw new IllegalArgumentException("PRECONDITION: consumers="+consumers+" >= 1"); }
+        if(!( bufferSize    >= 1 )) { throw new IllegalArgumentException("PRECONDITION: bufferSize="+bufferSize+" >= 1"); }
+        if(!( pendingMillis >= 0 )) { throw new IllegalArgumentException("PRECONDITION: pendingMillis="+pendingMillis+" >= 0"); }
+
+        Group group = new Group(source, consumers, bufferSize, pendingMillis);
+        List<MulticastDataset> views = new ArrayList<>();
+        for( int member = 0; member < consumers; member++ ) {
+            views.add(new MulticastDataset(group, member, config, condition));
+        }
+        return views;
+    }
+
+    public Dataset getSource() { return this.group.source; }
+
+    /**
+     * @return number of rounds that still have unfinished consumers
+     */
+    int getRoundCount() {
+        synchronized( this.group ) { return this.group.rounds.size(); }
+    }
+
+
+    //***** Streams *****//
+
+    private Stream<DataRow> getStream(TestTrain testTrain) {
+        int round;
+        synchronized( this.requests ) {
+            round = this.requests.merge(testTrain, 1, Integer::sum) - 1;
+        }
+        return this.group.subscribe(testTrain, round, this.member);
+    }
+
+    @Override
+    public Stream<DataRow> getTrainStream() { return this.getStream(TestTrain.train); }
+
+    @Override
+    public Stream<DataRow> getTestStream()  { return this.getStream(TestTrain.test); }
+
+    /**
+     * KFold queries are specific to each dataset type, so are not shared
+     */
+    @Override
+    public List<Stream<DataRow>> getKFoldStreams(int folds) {
+        return this.group.source.getKFoldStreams(folds);
+    }
+
+    @Override
+    public @Nullable String getSourceVersion(TestTrain testTrain) {
+        return this.group.source.getSourceVersion(testTrain);
+    }
+
+    /**
+     * Detaches this consumer from current and future scans, called when its task completes
+     */
+    @Override
+    public void close() {
+        this.group.detach(this.member);
+    }
+
+
+    //***** Multicast *****//
+
+    private static final Object END = new Object();
+
+    private static class Failure {
+        private final RuntimeException exception;
+        Failure(RuntimeException exception) { this.exception = exception; }
+    }
+
+    /**
+     * Lifecycle of a consumer within a round, only updated while holding the Group lock
+     */
+    private enum State { pending, reading, dropped, done }
+
+    private static class Group {
+        private final Dataset   source;
+        private final int       bufferSize;
+        private final long      pendingMillis;
+        private final boolean[] detached;
+        private final int[]     reading;  // number of rounds each consumer is currently streaming
+        private final Map<String, Round> rounds = new HashMap<>();
+
+        Group(Dataset source, int consumers, int bufferSize, long pendingMillis) {
+            this.source        = source;
+            this.bufferSize    = bufferSize;
+            this.pendingMillis = pendingMillis;
+            this.detached      = new boolean[consumers];
+            this.reading       = new int[consumers];
+        }
+
+        Stream<DataRow> scan(TestTrain testTrain) {
+            return ( testTrain == TestTrain.train ) ? this.source.getTrainStream() : this.source.getTestStream();
+        }
+
+        synchronized Stream<DataRow> subscribe(TestTrain testTrain, int round, int member) {
+            if( this.detached[member] ) { return this.scan(testTrain); }
+            Round shared = this.rounds.computeIfAbsent(testTrain + ":" + round, key -> new Round(this, key, testTrain));
+            return shared.stream(member);
+        }
+
+        synchronized void detach(int member) {
+            this.detached[member] = true;
+            new ArrayList<>(this.rounds.values()).forEach(round -> round.finish(member));
+        }
+    }
+
+    /**
+     * A single scan of the source, multicast to every consumer attached when the round was created
+     */
+    private static class Round {
+        private final Group     group;
+        private final String    key;
+        private final TestTrain testTrain;
+        private final List<BlockingQueue<Object>> queues = new ArrayList<>();
+        private final AtomicReferenceArray<State> states;
+        private long started = 0;  // System.nanoTime() when the producer started, 0 before
+
+        Round(Group group, String key, TestTrain testTrain) {
+            this.group     = group;
+            this.key       = key;
+            this.testTrain = testTrain;
+            this.states    = new AtomicReferenceArray<>(group.detached.length);
+            for( int member = 0; member < group.detached.length; member++ ) {
+                this.queues.add(new ArrayBlockingQueue<>(group.bufferSize));
+                this.states.set(member, group.detached[member] ? State.done : State.pending);
+            }
+        }
+
+        /**
+         * Called while holding the Group lock
+         */
+        Stream<DataRow> stream(int member) {
+            State state = this.states.get(member);
+            if( state == State.dropped ) {
+                this.finish(member);
+                return this.group.scan(this.testTrain);
+            }
+            if( state != State.pending ) {
+                throw new IllegalStateException(this.key + " already streamed to consumer " + member);
+            }
+            this.states.set(member, State.reading);
+            this.group.reading[member]++;
+            if( this.started == 0 ) {
+                this.started = System.nanoTime();
+                Thread producer = new Thread(this::produce, "multicast-" + this.key);
+                producer.setDaemon(true);
+                producer.start();
+            }
+
+            BlockingQueue<Object> queue = this.queues.get(member);
+            Iterator<DataRow> iterator = new AbstractIterator<>() {
+                @Override
+                protected DataRow computeNext() {
+                    Object item;
+                    try {
+                        item = queue.take();
+                    } catch( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for multicast rows", e);
+                    }
+                    if( item == END ) {
+                        Round.this.finish(member);
+                        return this.endOfData();
+                    }
+                    if( item instanceof Failure ) {
+                        Round.this.finish(member);
+                        throw ((Failure) item).exception;
+                    }
+                    return (DataRow) item;
+                }
+            };
+            return Streams.stream(iterator).onClose(() -> this.finish(member));
+        }
+
+        /**
+         * Marks the consumer as done with this round, removing the round once all consumers are done
+         */
+        void finish(int member) {
+            synchronized( this.group ) {
+                State state = this.states.get(member);
+                if( state == State.done ) { return; }
+                if( state == State.reading ) { this.group.reading[member]--; }
+                this.states.set(member, State.done);
+                this.queues.get(member).clear();  // unblock the producer
+                for( int other = 0; other < this.queues.size(); other++ ) {
+                    if( this.states.get(other) != State.done ) { return; }
+                }
+                this.group.rounds.remove(this.key);
+            }
+        }
+
+        /**
+         * A pending consumer that is reading another round cannot drain this one, and one that has not
+         * subscribed within {@code pendingMillis} may be queued behind the readers, so either is dropped
+         * @return true if the consumer was dropped
+         */
+        private boolean dropIfBlocked(int member) {
+            synchronized( this.group ) {
+                if( this.states.get(member) != State.pending ) { return false; }
+                long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.started);
+                if( this.group.reading[member] == 0 && waited < this.group.pendingMillis ) { return false; }
+                this.states.set(member, State.dropped);
+                this.queues.get(member).clear();
+                return true;
+            }
+        }
+
+        private boolean isAttached(int member) {
+            State state = this.states.get(member);
+            return state == State.pending || state == State.reading;
+        }
+
+        private void produce() {
+            try( Stream<DataRow> rows = this.group.scan(this.testTrain) ) {
+                Iterator<DataRow> iterator = rows.iterator();
+                while( iterator.hasNext() ) {
+                    if( !this.offer(iterator.next()) ) { return; }  // all consumers detached
+                }
+                this.offer(END);
+            } catch( RuntimeException exception ) {
+                this.offer(new Failure(exception));
+            }
+        }
+
+        /**
+         * Blocks until every attached consumer has space for the item, or pending consumers are dropped
+         * @return false if there are no attached consumers left
+         */
+        private boolean offer(Object item) {
+            boolean delivered = false;
+            for( int member = 0; member < this.queues.size(); member++ ) {
+                try {
+                    while( this.isAttached(member) && !this.queues.get(member).offer(item, 100, TimeUnit.MILLISECONDS) ) {
+                        if( this.dropIfBlocked(member) ) { break; }
+                    }
+                } catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                delivered |= this.isAttached(member);
+            }
+            return delivered;
+        }
+    }
+}
@@ -2,7 +2,12 @@ package com.jamesmcguigan.nlp.v2.extractor;
 
 import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
 
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 public abstract class AbstractExtractor implements Extractor {
     private final ControllerConfig parentConfig;
@@ -15,4 +20,39 @@ public abstract class AbstractExtractor implements Extractor {
 
     public String getContext()                    { return parentConfig.getContext(); }
     public Map<String, Object> getConfiguration() { return configuration; }
+
+
+    //***** Configuration *****//
+
+    /**
+     * @return {@code configuration.predict} label fields, or empty if not configured
+     */
+    protected List<String> getLabels() {
+        List<String> labels = this.getConfigurationStrings("predict");
+        return ( labels != null ) ? labels : Collections.emptyList();
+    }
+
+    protected int getConfigurationInt(String key, int defaultValue) {
+        Object value = this.getConfigurationValue(key);
+        return ( value != null ) ? Integer.parseInt(value.toString()) : defaultValue;
+    }
+
+    protected double getConfigurationDouble(String key, double defaultValue) {
+        Object value = this.getConfigurationValue(key);
+        return ( value != null ) ? Double.parseDouble(value.toString()) : defaultValue;
+    }
+
+    /**
+     * @return list value as strings, or null if not configured as a list
+     */
+    protected @Nullable List<String> getConfigurationStrings(String key) {
+        Object values = this.getConfigurationValue(key);
+        if( !(values instanceof Collection) ) { return null; }
+        return ((Collection<?>) values).stream().map(Object::toString).collect(Collectors.toList());
+    }
+
+    protected @Nullable Object getConfigurationValue(String key) {
+        Map<String, Object> configuration = this.getConfiguration();
+        return ( configuration != null ) ? configuration.get(key) : null;
+    }
 }
@@ -1,8 +1,18 @@
 package com.jamesmcguigan.nlp.v2.extractor;
 
+import com.jamesmcguigan.nlp.v2.config.Task;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+
+import java.util.List;
 import java.util.Map;
 
 public interface Extractor {
     String getContext();
     Map<String, Object> getConfiguration();
+
+    /**
+     * Called by the Controller for each task, possibly concurrently with other extractors
+     * Datasets are shared between extractors and must not be mutated
+     */
+    void run(Task task, List<Dataset> datasets);
 }
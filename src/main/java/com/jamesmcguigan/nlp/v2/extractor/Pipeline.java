@@ -1,9 +1,21 @@
 package com.jamesmcguigan.nlp.v2.extractor;
 
 import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.config.Task;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
 
+import java.util.List;
+
+/**
+ * Container for {@code configuration.tasks}, the stages themselves are scheduled by the Controller
+ */
 public class Pipeline extends AbstractExtractor {
     public Pipeline(ControllerConfig parentConfig) {
         super(parentConfig);
     }
+
+    @Override
+    public void run(Task task, List<Dataset> datasets) {
+        // child extractors are run by Controller
+    }
 }
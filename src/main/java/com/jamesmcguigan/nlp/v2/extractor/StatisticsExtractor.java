@@ -0,0 +1,69 @@
+package com.jamesmcguigan.nlp.v2.extractor;
+
+import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.config.Task;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+import com.jamesmcguigan.nlp.v2.statistics.CorpusStatistics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * Implements {@code task: statistics}, computing {@link CorpusStatistics} for each dataset
+ * <pre>
+ *     configuration:
+ *       task:    statistics
+ *       predict:                  # label fields to count classes for
+ *         - target
+ *       fields:                   # optional, default: all text fields
+ *         - text
+ *       max_vocabulary: 1000000   # optional
+ * </pre>
+ * Other tasks are ignored
+ */
+public class StatisticsExtractor extends AbstractExtractor {
+    private static final Logger logger = LogManager.getLogger();
+
+    private final List<CorpusStatistics> statistics = Collections.synchronizedList(new ArrayList<>());
+
+    public StatisticsExtractor(ControllerConfig parentConfig) {
+        super(parentConfig);
+    }
+
+    /**
+     * @return statistics for each dataset of each completed statistics task, in completion order
+     */
+    public List<CorpusStatistics> getStatistics() {
+        synchronized( this.statistics ) { return new ArrayList<>(this.statistics); }
+    }
+
+    @Override
+    public void run(Task task, List<Dataset> datasets) {
+        if( task != Task.statistics ) { return; }
+        for( Dataset dataset : datasets ) {
+            CorpusStatistics result = CorpusStatistics.fromDataset(
+                dataset, this.getConfigurationStrings("fields"), this.getLabels(),
+                this.getConfigurationInt("max_vocabulary", CorpusStatistics.DEFAULT_MAX_VOCABULARY)
+            );
+            this.statistics.add(result);
+
+            logger.info("{} | {} | top terms: {}", this.getContext(), result, result.getVocabulary().stream()
+                .limit(10)
+                .map(term -> term + "=" + result.getDocumentFrequency(term))
+                .collect(Collectors.joining(", "))
+            );
+            for( String label : result.getLabels() ) {
+                logger.info("{} | {} classes: {}", this.getContext(), label, result.getClassCounts(label));
+            }
+            if( result.getPruneError() > 0 ) {
+                logger.warn("{} | vocabulary pruned to {} terms, document frequencies may be undercounted by up to {}",
+                    this.getContext(), result.getMaxVocabulary(), result.getPruneError());
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.jamesmcguigan.nlp.v2.statistics;
+
+import com.jamesmcguigan.nlp.utils.data.IndexedVocabulary;
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import com.jamesmcguigan.nlp.v2.datasets.DataRow;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+/**
+ * Term document-frequencies, total term frequencies, per-label class counts and vocabulary,
+ * built in a single parallel pass over a {@link Dataset}
+ * <p/>
+ * Each stream partition accumulates into its own primitive {@link TermCounts}, which are merged
+ * when the partitions are combined. Memory is bounded by {@code maxVocabulary}: whenever a partition
+ * holds twice that many terms, the terms with the lowest document frequency are pruned.
+ * A pruned term seen again later restarts from zero, so document frequencies are a lower bound
+ * with an error of at most {@code getPruneError()}, which is 0 whenever no pruning was needed.
+ * <pre>
+ *     CorpusStatistics statistics = CorpusStatistics.fromDataset(dataset, null, List.of("target"), 100_000);
+ *     statistics.getIDF("fire");
+ *     statistics.getClassCounts("target");  // {"0": 4342, "1": 3271}
+ * </pre>
+ */
+public class CorpusStatistics {
+    public static final int DEFAULT_MAX_VOCABULARY = 1_000_000;
+
+    @Nullable private List<String> fields;  // null = text fields from each row's DatasetConfig
+    private final List<String> labels;
+    private final int          maxVocabulary;
+
+    private final TermCounts              terms;
+    private final Map<String, TermCounts> classCounts = new LinkedHashMap<>();
+    private long documents  = 0;
+    private long pruneError = 0;
+
+    /**
+     * @param fields         text fields to tokenize, or null for all {@code text} fields of the dataset
+     * @param labels         label fields to count classes for
+     * @param maxVocabulary  maximum number of distinct terms retained
+     */
+    public CorpusStatistics(@Nullable List<String> fields, List<String> labels, int maxVocabulary) {
+        if(!( maxVocabulary >= 1 )) { throw new IllegalArgumentException("PRECONDITION: maxVocabulary="+maxVocabulary+" >= 1"); }
+        this.fields        = ( fields != null ) ? new ArrayList<>(fields) : null;
+        this.labels        = new ArrayList<>(labels);
+        this.maxVocabulary = maxVocabulary;
+        this.terms         = new TermCounts(Math.min(maxVocabulary, 1024));
+        for( String label : this.labels ) { this.classCounts.put(label, new TermCounts(16)); }
+    }
+
+
+    //***** Streaming *****//
+
+    public static CorpusStatistics fromDataset(Dataset dataset, @Nullable List<String> fields, List<String> labels, int maxVocabulary) {
+        try( Stream<DataRow> rows = dataset.getTrainStream() ) {
+            return rows.parallel().collect(collector(fields, labels, maxVocabulary));
+        }
+    }
+
+    public static Collector<DataRow, CorpusStatistics, CorpusStatistics> collector(
+        @Nullable List<String> fields, List<String> labels, int maxVocabulary
+    ) {
+        return Collector.of(
+            () -> new CorpusStatistics(fields, labels, maxVocabulary),
+            CorpusStatistics::accumulate,
+            CorpusStatistics::merge,
+            CorpusStatistics::finish,
+            Collector.Characteristics.UNORDERED
+        );
+    }
+
+    public void accumulate(DataRow row) {
+        int document = (int) this.documents++;  // only needs to differ from the previous document
+        for( String field : this.getFields(row.getConfig()) ) {
+            for( String token : row.getTokens(field) ) {
+                this.terms.count(token, document);
+            }
+        }
+        for( Map.Entry<String, TermCounts> entry : this.classCounts.entrySet() ) {
+            Object value = row.getDecoded(entry.getKey());
+            if( value instanceof Collection ) {
+                for( Object item : (Collection<?>) value ) {
+                    if( item != null ) { entry.getValue().count(item.toString(), document); }
+                }
+            } else if( value != null ) {
+                entry.getValue().count(value.toString(), document);
+            }
+        }
+        if( this.terms.size() > 2L * this.maxVocabulary ) { this.prune(); }
+    }
+
+    /**
+     * Merges another partition into this one
+     * @return this
+     */
+    public CorpusStatistics merge(CorpusStatistics other) {
+        if( this.fields == null ) { this.fields = other.fields; }
+        this.terms.merge(other.terms);
+        other.classCounts.forEach((label, counts) ->
+            this.classCounts.computeIfAbsent(label, key -> new TermCounts(16)).merge(counts)
+        );
+        this.documents  += other.documents;
+        this.pruneError += other.pruneError;
+        if( this.terms.size() > 2L * this.maxVocabulary ) { this.prune(); }
+        return this;
+    }
+
+    /**
+     * Prunes down to {@code maxVocabulary}, called once all partitions have been merged
+     * @return this
+     */
+    public CorpusStatistics finish() {
+        if( this.terms.size() > this.maxVocabulary ) { this.prune(); }
+        return this;
+    }
+
+    private void prune() {
+        this.pruneError += this.terms.prune(this.maxVocabulary);
+    }
+
+    private List<String> getFields(DatasetConfig config) {
+        if( this.fields == null ) {
+            this.fields = config.getFields().entrySet().stream()
+                .filter(entry -> entry.getValue() == DatasetField.text)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList())
+            ;
+        }
+        return this.fields;
+    }
+
+
+    //***** Getters *****//
+
+    public long getDocumentCount()  { return this.documents;    }
+    public int  getVocabularySize() { return this.terms.size(); }
+    public int  getMaxVocabulary()  { return this.maxVocabulary; }
+    public long getPruneError()     { return this.pruneError;   }
+    public List<String> getLabels() { return Collections.unmodifiableList(this.labels); }
+
+    public boolean contains(String term) { return this.terms.get(term) != -1; }
+
+    /**
+     * @return number of documents containing the term, or 0 if not in the vocabulary
+     */
+    public int getDocumentFrequency(String term) {
+        int id = this.terms.get(term);
+        return ( id != -1 ) ? this.terms.getDocFreq(id) : 0;
+    }
+
+    /**
+     * @return total occurrences of the term across all documents, or 0 if not in the vocabulary
+     */
+    public long getTermFrequency(String term) {
+        int id = this.terms.get(term);
+        return ( id != -1 ) ? this.terms.getTermFreq(id) : 0;
+    }
+
+    /**
+     * Smoothed inverse document frequency, as used by scikit-learn: {@code ln((1 + N) / (1 + df)) + 1}
+     */
+    public double getIDF(String term) {
+        return Math.log((1.0 + this.documents) / (1.0 + this.getDocumentFrequency(term))) + 1.0;
+    }
+
+    /**
+     * @param minDocFreq  minimum document frequency
+     * @return            terms ordered by descending document frequency, then alphabetically
+     */
+    public List<String> getVocabulary(int minDocFreq) {
+        List<Integer> ids = new ArrayList<>();
+        for( int id = 0; id < this.terms.size(); id++ ) {
+            if( this.terms.getDocFreq(id) >= minDocFreq ) { ids.add(id); }
+        }
+        ids.sort(Comparator
+            .comparingInt((Integer id) -> -this.terms.getDocFreq(id))
+            .thenComparing(this.terms::getTerm)
+        );
+        return ids.stream().map(this.terms::getTerm).collect(Collectors.toList());
+    }
+    public List<String> getVocabulary() { return this.getVocabulary(1); }
+
+    /**
+     * @param minDocFreq  minimum document frequency
+     * @return            vocabulary with document frequencies as counts, ids in descending document frequency
+     */
+    public IndexedVocabulary toVocabulary(int minDocFreq) {
+        List<String> vocabulary = this.getVocabulary(minDocFreq);
+        IndexedVocabulary output = new IndexedVocabulary(vocabulary.size(), false);
+        for( String term : vocabulary ) { output.add(term, this.getDocumentFrequency(term)); }
+        return output;
+    }
+
+    /**
+     * @param label  label field
+     * @return       number of documents for each class value, in order of first appearance
+     */
+    public Map<String, Integer> getClassCounts(String label) {
+        TermCounts counts = this.classCounts.get(label);
+        if( counts == null ) { throw new NoSuchElementException("label not counted: " + label); }
+        Map<String, Integer> output = new LinkedHashMap<>();
+        for( int id = 0; id < counts.size(); id++ ) {
+            output.put(counts.getTerm(id), counts.getDocFreq(id));
+        }
+        return output;
+    }
+
+    @Override
+    public String toString() {
+        return "CorpusStatistics{documents=" + this.documents + ", vocabulary=" + this.terms.size() + "}";
+    }
+}
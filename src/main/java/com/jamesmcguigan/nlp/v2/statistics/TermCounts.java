@@ -0,0 +1,114 @@
+package com.jamesmcguigan.nlp.v2.statistics;
+
+import com.jamesmcguigan.nlp.utils.data.IndexedVocabulary;
+
+import java.util.Arrays;
+
+
+/**
+ * Document frequency counters over an {@link IndexedVocabulary}, which maps each term to a dense int id
+ * and holds its total frequency as the vocabulary count
+ * <p/>
+ * Not thread-safe: each thread accumulates into its own instance, which are then combined with {@code merge()}.
+ * Ids are assigned in order of first appearance and are only stable until the next {@code prune()}
+ */
+final class TermCounts {
+    private static final int NONE = -1;
+
+    private IndexedVocabulary vocabulary;
+    private int[] docFreqs;      // id -> number of documents containing the term
+    private int[] lastDocument;  // id -> last document counted towards docFreqs
+
+    TermCounts() { this(1024); }
+    TermCounts(int capacity) {
+        capacity          = Math.max(16, capacity);
+        this.vocabulary   = new IndexedVocabulary(capacity, false);
+        this.docFreqs     = new int[capacity];
+        this.lastDocument = new int[capacity];
+    }
+
+    int size() { return this.vocabulary.size(); }
+
+    String getTerm(int id)     { return this.vocabulary.getTerm(id);  }
+    int    getDocFreq(int id)  { return this.docFreqs[id];            }
+    long   getTermFreq(int id) { return this.vocabulary.getCount(id); }
+
+
+    //***** Lookup *****//
+
+    /**
+     * @return id of the term, or -1 if absent
+     */
+    int get(String term) {
+        return this.vocabulary.getId(term);
+    }
+
+    /**
+     * @param termFreq  added to the term's total frequency
+     * @return          id of the term, assigning a new id if absent
+     */
+    private int add(String term, long termFreq) {
+        int size = this.vocabulary.size();
+        int id   = this.vocabulary.add(term, termFreq);
+        if( id == size ) {
+            if( id == this.docFreqs.length ) { this.growArrays(); }
+            this.lastDocument[id] = NONE;
+        }
+        return id;
+    }
+
+
+    //***** Counting *****//
+
+    /**
+     * Counts one occurrence of the term, and one document the first time the term is seen in that document
+     * @param document  caller-assigned document number, must differ between consecutive documents
+     */
+    void count(String term, int document) {
+        int id = this.add(term, 1);
+        if( this.lastDocument[id] != document ) {
+            this.lastDocument[id] = document;
+            this.docFreqs[id]++;
+        }
+    }
+
+    void merge(TermCounts other) {
+        for( int i = 0; i < other.size(); i++ ) {
+            int id = this.add(other.getTerm(i), other.getTermFreq(i));
+            this.docFreqs[id] += other.docFreqs[i];
+        }
+    }
+
+    /**
+     * Keeps at most {@code maxSize} terms with the highest document frequency, renumbering the remaining ids
+     * Ties at the threshold are all removed, so the result may be smaller than {@code maxSize}
+     * @return largest document frequency that was removed, or 0 if nothing was removed
+     */
+    int prune(int maxSize) {
+        int size = this.size();
+        if( size <= maxSize ) { return 0; }
+        int[] sorted = Arrays.copyOf(this.docFreqs, size);
+        Arrays.sort(sorted);
+        int threshold = sorted[size - maxSize - 1];
+
+        IndexedVocabulary kept = new IndexedVocabulary(maxSize, false);
+        for( int id = 0; id < size; id++ ) {
+            if( this.docFreqs[id] <= threshold ) { continue; }
+            int keptId = kept.add(this.getTerm(id), this.getTermFreq(id));
+            this.docFreqs[keptId]     = this.docFreqs[id];
+            this.lastDocument[keptId] = this.lastDocument[id];
+        }
+        Arrays.fill(this.docFreqs, kept.size(), size, 0);
+        this.vocabulary = kept;
+        return threshold;
+    }
+
+
+    //***** Storage *****//
+
+    private void growArrays() {
+        int capacity      = this.docFreqs.length * 2;
+        this.docFreqs     = Arrays.copyOf(this.docFreqs,     capacity);
+        this.lastDocument = Arrays.copyOf(this.lastDocument, capacity);
+    }
+}
@@ -0,0 +1,89 @@
+package com.jamesmcguigan.nlp.utils.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class BatchCoalescerTest {
+    private final ExecutorService workers = BatchCoalescer.newWorkerPool(4, "test");
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    private List<String> square(List<Integer> batch) {
+        batchSizes.add(batch.size());
+        return batch.stream().map(i -> String.valueOf(i * i)).collect(Collectors.toList());
+    }
+
+    @Test
+    void testFullBatches() {
+        BatchCoalescer<Integer, String> coalescer = new BatchCoalescer<>(this::square, 10, TimeUnit.SECONDS.toMicros(60), workers);
+        List<CompletableFuture<String>> futures = coalescer.submitAll(IntStream.range(0, 30).boxed().collect(Collectors.toList()));
+        List<String> results = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+
+        assertThat(results.get(7)).isEqualTo("49");
+        assertThat(results).hasSize(30);
+        assertThat(batchSizes).containsExactly(10, 10, 10);
+        assertThat(coalescer.getBatchCount()).isEqualTo(3);
+    }
+
+    @Test
+    void testDelayFlushesPartialBatch() throws Exception {
+        BatchCoalescer<Integer, String> coalescer = new BatchCoalescer<>(this::square, 100, 200_000, workers);
+        CompletableFuture<String> first  = coalescer.submit(3);
+        CompletableFuture<String> second = coalescer.submit(4);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("9");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("16");
+        assertThat(batchSizes).containsExactly(2);
+        assertThat(coalescer.getPendingCount()).isEqualTo(0);
+    }
+
+    @Test
+    void testConcurrentSubmit() {
+        BatchCoalescer<Integer, String> coalescer = new BatchCoalescer<>(this::square, 16, 500, workers);
+        List<String> results = IntStream.range(0, 1000).parallel()
+            .mapToObj(coalescer::submit)
+            .collect(Collectors.toList())
+            .stream()
+            .map(CompletableFuture::join)
+            .collect(Collectors.toList())
+        ;
+        assertThat(results).containsExactlyElementsIn(
+            IntStream.range(0, 1000).mapToObj(i -> String.valueOf(i * i)).collect(Collectors.toList())
+        ).inOrder();
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(1000);
+        assertThat(batchSizes.stream().allMatch(size -> size <= 16)).isTrue();
+    }
+
+    @Test
+    void testBatchFailure() {
+        BatchCoalescer<Integer, String> coalescer = new BatchCoalescer<>(batch -> {
+            throw new IllegalStateException("model missing");
+        }, 2, 1000, workers);
+        CompletableFuture<String> first  = coalescer.submit(1);
+        CompletableFuture<String> second = coalescer.submit(2);
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertThat(exception).hasCauseThat().hasMessageThat().isEqualTo("model missing");
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClose() {
+        BatchCoalescer<Integer, String> coalescer = new BatchCoalescer<>(this::square, 100, TimeUnit.SECONDS.toMicros(60), workers);
+        CompletableFuture<String> pending = coalescer.submit(5);
+        coalescer.close();
+        assertThat(pending.join()).isEqualTo("25");
+        assertThat(coalescer.submit(6).isCompletedExceptionally()).isTrue();
+    }
+}
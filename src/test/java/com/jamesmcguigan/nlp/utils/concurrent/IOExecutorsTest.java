@@ -0,0 +1,57 @@
+package com.jamesmcguigan.nlp.utils.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class IOExecutorsTest {
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(IOExecutors.PROPERTY);
+    }
+
+    @Test
+    void testGetMode() {
+        assertThat(IOExecutors.getMode()).isEqualTo(IOExecutors.Mode.platform);
+        System.setProperty(IOExecutors.PROPERTY, " Virtual ");
+        assertThat(IOExecutors.getMode()).isEqualTo(IOExecutors.Mode.virtual);
+        System.setProperty(IOExecutors.PROPERTY, "unknown");
+        assertThat(IOExecutors.getMode()).isEqualTo(IOExecutors.Mode.platform);
+    }
+
+    @Test
+    void testPlatformExecutorIsNotCommonPool() {
+        ExecutorService executor = IOExecutors.newExecutor(IOExecutors.Mode.platform, "test-io");
+        String name = CompletableFuture.supplyAsync(() -> Thread.currentThread().getName(), executor).join();
+        assertThat(name).startsWith("test-io-");
+        executor.shutdown();
+        assertThat(IOExecutors.newExecutor(IOExecutors.Mode.common, "test-io")).isSameInstanceAs(ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void testVirtualExecutorFallback() {
+        ExecutorService executor = IOExecutors.newExecutor(IOExecutors.Mode.virtual, "test-io");
+        // 200 concurrent blocking tasks must not be limited by the number of processors
+        List<CompletableFuture<Integer>> futures = IntStream.range(0, 200)
+            .mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+                try { Thread.sleep(50); } catch( InterruptedException e ) { Thread.currentThread().interrupt(); }
+                return i;
+            }, executor))
+            .collect(Collectors.toList())
+        ;
+        long start = System.nanoTime();
+        assertThat(futures.stream().mapToInt(CompletableFuture::join).sum()).isEqualTo(199 * 200 / 2);
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(2000L);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,103 @@
+package com.jamesmcguigan.nlp.utils.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class IndexedVocabularyTest {
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void addAndLookup(boolean direct) {
+        IndexedVocabulary vocabulary = new IndexedVocabulary(4, direct);
+        String[] terms = IntStream.range(0, 1000).mapToObj(i -> "term" + i).toArray(String[]::new);
+        for( String term : terms ) { vocabulary.add(term); }
+        vocabulary.add("term1");
+
+        assertThat(vocabulary.size()).isEqualTo(1000);
+        assertThat(vocabulary.isDirect()).isEqualTo(direct);
+        for( int id = 0; id < terms.length; id++ ) {
+            assertThat(vocabulary.getId(terms[id])).isEqualTo(id);
+            assertThat(vocabulary.getTerm(id)).isEqualTo(terms[id]);
+        }
+        assertThat(vocabulary.getCount("term1")).isEqualTo(2);
+        assertThat(vocabulary.getId("missing")).isEqualTo(IndexedVocabulary.MISSING);
+    }
+
+    @Test
+    void unicodeTerms() {
+        IndexedVocabulary vocabulary = new IndexedVocabulary();
+        String[] terms = { "café", "naïve", "日本語", "emoji🔥", "cafe" };
+        int[] ids = vocabulary.addAll(terms);
+        assertThat(vocabulary.decode(ids)).asList().containsExactlyElementsIn(terms).inOrder();
+        assertThat(vocabulary.getId("café")).isNotEqualTo(vocabulary.getId("cafe"));
+        assertThat(vocabulary.getId("emoji🔥")).isEqualTo(3);
+        assertThat(vocabulary.getArenaSize()).isGreaterThan(String.join("", terms).length());
+    }
+
+    @Test
+    void unpairedSurrogates() {
+        IndexedVocabulary vocabulary = new IndexedVocabulary();
+        String[] terms = { "high\uD83D", "\uDD25low", "mid\uD83Ddle", "pair\uD83D\uDD25" };
+        int[] ids = vocabulary.addAll(terms);
+        vocabulary.addAll(terms);
+
+        assertThat(vocabulary.size()).isEqualTo(terms.length);
+        for( int i = 0; i < terms.length; i++ ) {
+            assertThat(vocabulary.getId(terms[i])).isEqualTo(ids[i]);
+            assertThat(vocabulary.getCount(ids[i])).isEqualTo(2);
+        }
+        assertThat(vocabulary.getTerm(ids[0])).isEqualTo("high?");  // as encoded by String.getBytes(UTF_8)
+        assertThat(vocabulary.getTerm(ids[3])).isEqualTo("pair🔥");
+    }
+
+    @Test
+    void encodeSkipsUnknownTokens() {
+        IndexedVocabulary vocabulary = new IndexedVocabulary();
+        vocabulary.addAll(new String[]{ "a", "b", "c" });
+        assertThat(vocabulary.encode(new String[]{ "c", "x", "a", "a" })).asList().containsExactly(2, 0, 0).inOrder();
+    }
+
+    @Test
+    void pruneRenumbersByCount() {
+        IndexedVocabulary vocabulary = new IndexedVocabulary();
+        vocabulary.addAll(new String[]{ "rare", "common", "common", "common", "medium", "medium" });
+        IndexedVocabulary pruned = vocabulary.prune(2);
+        assertThat(pruned.size()).isEqualTo(2);
+        assertThat(pruned.getTerm(0)).isEqualTo("common");
+        assertThat(pruned.getTerm(1)).isEqualTo("medium");
+        assertThat(pruned.getCount(0)).isEqualTo(3);
+        assertThat(pruned.contains("rare")).isFalse();
+    }
+
+    @Test
+    void saveAndLoadMapped() throws IOException {
+        IndexedVocabulary vocabulary = new IndexedVocabulary();
+        String[] terms = IntStream.range(0, 500).mapToObj(i -> "wörd" + i).toArray(String[]::new);
+        for( String term : terms ) { vocabulary.add(term, 7); }
+        Path path = directory.resolve("vocabulary.bin");
+        vocabulary.save(path);
+
+        IndexedVocabulary loaded = IndexedVocabulary.load(path);
+        assertThat(loaded.size()).isEqualTo(terms.length);
+        for( int id = 0; id < terms.length; id++ ) {
+            assertThat(loaded.getId(terms[id])).isEqualTo(id);
+            assertThat(loaded.getCount(id)).isEqualTo(7);
+        }
+
+        // read-only mapping is copied on first write
+        int id = loaded.add("new");
+        assertThat(loaded.getTerm(id)).isEqualTo("new");
+        assertThat(loaded.getId(terms[42])).isEqualTo(42);
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -91,4 +92,12 @@ class TermVectorTokensTest {
         String[] tokensKeyword = termVectorTokens.tokenize("keyword");
         assertThat(tokensKeyword).isEqualTo(new String[]{ "" });
     }
+
+    @Test
+    void getTermFrequencies() {
+        Map<String, Integer> counts = termVectorTokens.getTermFrequencies();
+        assertThat( counts ).hasSize( 14 );
+        assertThat( counts.get("earthquake") ).isEqualTo( 1 );
+        assertThat( counts ).containsKey( "" );
+    }
 }
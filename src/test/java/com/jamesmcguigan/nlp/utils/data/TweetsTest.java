@@ -2,6 +2,8 @@ package com.jamesmcguigan.nlp.utils.data;
 
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -12,6 +14,7 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 class TweetsTest {
     @ParameterizedTest
@@ -37,4 +40,24 @@ class TweetsTest {
         Assertions.assertEquals(ids.size(), tweets.size());
         Assertions.assertEquals(lines.length - 1, tweets.size());
     }
+
+    @Test
+    void canReadQuotedCSVInOrder(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("train.csv");
+        String csv = "id,keyword,location,text,target\n" + IntStream.range(0, 5000)
+            .mapToObj(i -> i + ",fire,\"London, UK\",\"tweet " + i + "\nwith \"\"quotes\"\"\"," + (i % 2) + "\n")
+            .collect(Collectors.joining())
+        ;
+        Files.writeString(path, csv);
+
+        List<Tweet> tweets = Tweets.fromCSV(path);
+        Assertions.assertEquals(5000, tweets.size());
+        for( int i = 0; i < tweets.size(); i++ ) {
+            Tweet tweet = tweets.get(i);
+            Assertions.assertEquals(i, tweet.id);
+            Assertions.assertEquals("London, UK", tweet.location);
+            Assertions.assertEquals("tweet " + i + "\nwith \"quotes\"", tweet.text);
+            Assertions.assertEquals(String.valueOf(i % 2), tweet.target);
+        }
+    }
 }
@@ -47,6 +47,25 @@ class ScanAndScrollIteratorTest {
         assertThat(hit.keySet()).containsExactlyElementsIn(fields);
     }
 
+    @Test
+    void testDocValueFieldsRequest() {
+        var request = new ScanAndScrollIterator<>(String.class, index, Arrays.asList("text", "keyword"))
+            .setDocValueFields(List.of("keyword"));
+        var source  = request.getScanAndScrollRequest().source();
+        assertThat(source.fetchSource().includes()).asList().containsExactly("text");
+        assertThat(source.docValueFields()).hasSize(1);
+        assertThat(source.docValueFields().get(0).field).isEqualTo("keyword");
+    }
+
+    @Test
+    void testDocValueFieldsMerged() {
+        var request = new ScanAndScrollIterator<>(JSONObject.class, index, Arrays.asList("text", "id"), query)
+            .setDocValueFields(List.of("id"));
+        assertTrue( request.hasNext() );
+        JSONObject hit = request.next();
+        assertThat(hit.keySet()).containsExactly("text", "id");
+    }
+
     @Test
     void testIteratorQuery() {
         var request = new ScanAndScrollIterator<>(SearchHit.class, index, query);
@@ -0,0 +1,77 @@
+package com.jamesmcguigan.nlp.utils.elasticsearch.read;
+
+import com.jamesmcguigan.nlp.utils.data.TermVectorDocTokens;
+import com.jamesmcguigan.nlp.utils.data.TermVectorTokens;
+import org.elasticsearch.client.core.TermVectorsResponse;
+import org.elasticsearch.client.core.TermVectorsResponse.TermVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class SourceTermVectorsTest {
+
+    private final SourceTermVectors termVectors = new SourceTermVectors("twitter", Arrays.asList("text", "user.location", "missing"));
+    private final Map<String, Object> source = Map.of(
+        "text", "The fox, the FOX and the Hound",
+        "user", Map.of("location", List.of("New York", "York"))
+    );
+
+    @Test
+    void getTermVectors() {
+        TermVectorsResponse response = termVectors.getTermVectors("42", source);
+        assertThat( response.getId() ).isEqualTo("42");
+        assertThat( response.getFound() ).isTrue();
+        assertThat( response.getTermVectorsList().stream().map(TermVector::getFieldName).collect(Collectors.toList()) )
+            .containsExactly("text", "user.location").inOrder();
+
+        TermVector text = response.getTermVectorsList().get(0);
+        assertThat( text.getTerms().stream().map(TermVector.Term::getTerm).collect(Collectors.toList()) )
+            .containsExactly("and", "fox", "hound", "the").inOrder();
+        TermVector.Term fox = text.getTerms().get(1);
+        assertThat( fox.getTermFreq() ).isEqualTo(2);
+        assertThat( fox.getTokens().get(0).getPosition() ).isEqualTo(1);
+        assertThat( fox.getTokens().get(0).getStartOffset() ).isEqualTo(4);
+        assertThat( fox.getTokens().get(0).getEndOffset() ).isEqualTo(7);
+    }
+
+    @Test
+    void multiValuedFields() {
+        TermVector location = termVectors.getTermVectors("42", source).getTermVectorsList().get(1);
+        TermVector.Term york = location.getTerms().stream().filter(term -> term.getTerm().equals("york")).findFirst().orElseThrow();
+        assertThat( york.getTermFreq() ).isEqualTo(2);
+        // position_increment_gap separates values, as in Elasticsearch
+        assertThat( york.getTokens().get(0).getPosition() ).isEqualTo(1);
+        assertThat( york.getTokens().get(1).getPosition() ).isEqualTo(1 + SourceTermVectors.POSITION_INCREMENT_GAP + 1);
+        assertThat( york.getTokens().get(1).getStartOffset() ).isEqualTo("New York".length() + 1);
+    }
+
+    @Test
+    void tokenize() {
+        TermVectorsResponse response = termVectors.getTermVectors("42", source);
+        assertThat( new TermVectorTokens(response).tokenize("text") )
+            .asList().containsExactly("and", "fox", "fox", "hound", "the", "the", "the");
+        assertThat( new TermVectorDocTokens(response).tokenize() )
+            .asList().containsExactly("and", "fox", "hound", "the", "new", "york");
+    }
+
+    @Test
+    void withoutTokens() {
+        TermVectorsResponse response = new SourceTermVectors("twitter", List.of("text")).setTokens(false).getTermVectors("42", source);
+        TermVector.Term the = response.getTermVectorsList().get(0).getTerms().get(3);
+        assertThat( the.getTermFreq() ).isEqualTo(3);
+        assertThat( the.getTokens() ).isNull();
+        assertThat( new TermVectorTokens(response).getTermFrequencies() ).containsExactly("and", 1, "fox", 2, "hound", 1, "the", 3).inOrder();
+    }
+
+    @Test
+    void missingSource() {
+        TermVectorsResponse response = termVectors.getTermVectors("42", null);
+        assertThat( response.getFound() ).isFalse();
+        assertThat( response.getTermVectorsList() ).isEmpty();
+    }
+}
@@ -4,6 +4,7 @@ import com.jamesmcguigan.nlp.utils.data.TermVectorDocTokens;
 import com.jamesmcguigan.nlp.utils.data.TermVectorTokens;
 import com.jamesmcguigan.nlp.utils.elasticsearch.ESClient;
 import org.elasticsearch.client.core.TermVectorsResponse;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.query.TermQueryBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -104,6 +105,40 @@ class TermVectorIteratorTest {
         assertThat( buffer.size() ).isEqualTo( iterator.getRequestSize() );
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void pipelined(boolean ordered) {
+        List<String> sequential = new ArrayList<>();
+        List<String> pipelined  = new ArrayList<>();
+        while( iterator.hasNext() ) { sequential.add(iterator.next().getId()); }
+
+        var pipelinedIterator = new TermVectorIterator<>(TermVectorsResponse.class, index, fields, query)
+            .setParallelism(4)
+            .setBatchSize(10)
+            .setOrdered(ordered)
+        ;
+        while( pipelinedIterator.hasNext() ) { pipelined.add(pipelinedIterator.next().getId()); }
+        assertThat( pipelinedIterator.hasMoreRequests() ).isFalse();
+
+        if( ordered ) { assertThat( pipelined ).containsExactlyElementsIn( sequential ).inOrder(); }
+        else          { assertThat( pipelined ).containsExactlyElementsIn( sequential ); }
+    }
+
+    @Test
+    void sourceTermVectors() {
+        List<String> expected = new ArrayList<>();
+        List<String> actual   = new ArrayList<>();
+        while( iterator.hasNext() ) { expected.add(iterator.next().getId()); }
+
+        var sourceIterator = new TermVectorIterator<>(TermVectorsResponse.class, index, fields, query)
+            .setSource(TermVectorIterator.Source.source)
+        ;
+        assertThat( sourceIterator.getTotalHits() ).isEqualTo( expected.size() );
+        while( sourceIterator.hasNext() ) { actual.add(sourceIterator.next().getId()); }
+        assertThat( actual ).containsExactlyElementsIn( expected ).inOrder();
+        assertThat( TermVectorIterator.probeSource(index, fields) ).isNotEqualTo( TermVectorIterator.Source.auto );
+    }
+
     @ParameterizedTest
     @ValueSource(classes = {
         TermVectorsResponse.class,
@@ -119,4 +154,20 @@ class TermVectorIteratorTest {
         assertThat( output ).isNotNull();
         assertThat( type ).isEqualTo( output.getClass() );
     }
+
+    @Test
+    void defaultAnalyzerSettings() {
+        Settings none     = Settings.builder().put("index.number_of_shards", 1).build();
+        Settings standard = Settings.builder().put("index.analysis.analyzer.default.type", "standard").build();
+        Settings english  = Settings.builder().put("index.analysis.analyzer.default.type", "english").build();
+        Settings stopword = Settings.builder()
+            .put("index.analysis.analyzer.default.type", "standard")
+            .put("index.analysis.analyzer.default.stopwords", "_english_")
+            .build()
+        ;
+        assertThat( TermVectorIterator.isStandard(TermVectorIterator.getDefaultAnalyzer(none)) ).isTrue();
+        assertThat( TermVectorIterator.isStandard(TermVectorIterator.getDefaultAnalyzer(standard)) ).isTrue();
+        assertThat( TermVectorIterator.isStandard(TermVectorIterator.getDefaultAnalyzer(english)) ).isFalse();
+        assertThat( TermVectorIterator.isStandard(TermVectorIterator.getDefaultAnalyzer(stopword)) ).isFalse();
+    }
 }
@@ -1,10 +1,13 @@
 package com.jamesmcguigan.nlp.utils.elasticsearch.read;
 
+import com.jamesmcguigan.nlp.utils.data.TermVectorTokens;
 import com.jayway.jsonpath.JsonPath;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.core.TermVectorsResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.junitpioneer.jupiter.CartesianProductTest;
 import org.junitpioneer.jupiter.CartesianValueSource;
 
@@ -14,6 +17,7 @@ import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -95,6 +99,20 @@ class TermVectorQueryTest {
     }
 
 
+    @ParameterizedTest
+    @ValueSource(classes = { TermVectorsResponse.class, Object.class, TermVectorTokens.class, String[].class, Map.class })
+    void setProjection(Class<?> type) {
+        this.termVectorQuery.setProjection(type);
+        String requestJson = this.termVectorQuery.getMultiTermVectorsRequestJson(ids);
+        boolean full = type.isAssignableFrom(TermVectorsResponse.class);
+
+        for( String section : List.of("offsets", "payloads", "positions", "term_statistics", "field_statistics") ) {
+            List<Boolean> values = JsonPath.read(requestJson, "docs[*]." + section);
+            assertThat(Set.copyOf(values)).containsExactly(full);
+        }
+    }
+
+
     @Test
     void getMultiTermVectorRequest() throws IOException {
         String  requestJson = this.termVectorQuery.getMultiTermVectorsRequestJson(ids);
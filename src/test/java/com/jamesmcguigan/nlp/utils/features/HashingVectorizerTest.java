@@ -0,0 +1,68 @@
+package com.jamesmcguigan.nlp.utils.features;
+
+import com.jamesmcguigan.nlp.utils.tokenize.TabTokenizer;
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class HashingVectorizerTest {
+    private static final String[] TOKENS = { "the", "fire", "spread", "the", "fire" };
+
+    @Test
+    void countsCompactedBuckets() {
+        HashingVectorizer vectorizer = new HashingVectorizer(16).setNormalize(false).setSigned(false);
+        SparseVector vector = vectorizer.transform(TOKENS, new SparseVector(2));
+
+        assertThat(vector.size()).isEqualTo(3);
+        for( int i = 1; i < vector.size(); i++ ) {
+            assertThat(vector.getIndex(i)).isGreaterThan(vector.getIndex(i - 1));
+        }
+        float fire = 0;
+        for( int i = 0; i < vector.size(); i++ ) {
+            if( vector.getIndex(i) == vectorizer.getIndex("fire") ) { fire = vector.getValue(i); }
+        }
+        assertThat(fire).isEqualTo(2f);
+    }
+
+    @Test
+    void signedNormalized() {
+        HashingVectorizer vectorizer = new HashingVectorizer(16);
+        SparseVector vector = vectorizer.transform(TOKENS, new SparseVector());
+        double norm = 0;
+        for( int i = 0; i < vector.size(); i++ ) { norm += vector.getValue(i) * vector.getValue(i); }
+        assertThat(norm).isWithin(1e-6).of(1.0);
+        assertThat(vector.getIndices()[0]).isLessThan(vectorizer.getDimensions());
+    }
+
+    @Test
+    void ngramsAreOrderSensitive() {
+        HashingVectorizer vectorizer = new HashingVectorizer(20).setNgrams(2).setNormalize(false).setSigned(false);
+        SparseVector forward  = vectorizer.transform(new String[]{ "fire", "spread" }, new SparseVector());
+        SparseVector backward = vectorizer.transform(new String[]{ "spread", "fire" }, new SparseVector());
+        assertThat(forward.size()).isEqualTo(3);  // fire, spread, fire+spread
+        assertThat(backward.size()).isEqualTo(3);
+        assertThat(forward.toString()).isNotEqualTo(backward.toString());
+
+        SparseVector trigrams = new HashingVectorizer(20).setNgrams(3).transform(TOKENS, new SparseVector());
+        assertThat(trigrams.size()).isEqualTo(3 + 3 + 3);  // unique unigrams, bigrams ("the fire" repeats) and trigrams
+    }
+
+    @Test
+    void reusesBuffers() {
+        HashingVectorizer vectorizer = new HashingVectorizer(8, new TabTokenizer());
+        SparseVector vector = new SparseVector();
+        vectorizer.transform("a\tb\tc\td", vector);
+        int[] indices = vector.getIndices();
+        vectorizer.transform("a\tb", vector);
+        assertThat(vector.size()).isAtMost(2);
+        assertThat(vector.getIndices()).isSameInstanceAs(indices);
+    }
+
+    @Test
+    void compactCancelsCollisions() {
+        SparseVector vector = new SparseVector().add(5, 1f).add(3, 2f).add(5, -1f).add(3, 1f).add(1, 1f);
+        vector.compact();
+        assertThat(vector.toString()).isEqualTo("{1=1.0, 3=3.0}");
+    }
+}
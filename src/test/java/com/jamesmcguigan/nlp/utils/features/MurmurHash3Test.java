@@ -0,0 +1,32 @@
+package com.jamesmcguigan.nlp.utils.features;
+
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class MurmurHash3Test {
+    @ParameterizedTest
+    @ValueSource(strings = { "", "a", "ab", "abc", "abcd", "abcde", "hello world", "café", "日本語", "emoji🔥!", "\uD800lone" })
+    void matchesGuava(String text) {
+        for( int seed : new int[]{ 0, 42 } ) {
+            int expected = Hashing.murmur3_32(seed).hashBytes(text.getBytes(StandardCharsets.UTF_8)).asInt();
+            assertThat(MurmurHash3.hash32(text, seed)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void hashSubstring() {
+        assertThat(MurmurHash3.hash32("xxhelloxx", 2, 7, 0)).isEqualTo(MurmurHash3.hash32("hello"));
+    }
+
+    @Test
+    void hashInt() {
+        assertThat(MurmurHash3.hashInt(12345, 7)).isEqualTo(Hashing.murmur3_32(7).hashInt(12345).asInt());
+    }
+}
@@ -0,0 +1,55 @@
+package com.jamesmcguigan.nlp.utils.features;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class NGramHasherTest {
+    private static List<Integer> hash(NGramHasher hasher, String... tokens) {
+        List<Integer> hashes = new ArrayList<>();
+        hasher.hash(tokens, hashes::add);
+        return hashes;
+    }
+
+    @Test
+    void rollingMatchesEachWindow() {
+        String[] tokens = "the quick brown fox jumps over the lazy dog".split(" ");
+        NGramHasher hasher = new NGramHasher(3);
+        List<Integer> rolling = hash(hasher, tokens);
+        assertThat(rolling).hasSize(tokens.length + (tokens.length - 1) + (tokens.length - 2));
+
+        // the last hash emitted for each window is its longest n-gram
+        for( int n = 2; n <= 3; n++ ) {
+            for( int i = 0; i + n <= tokens.length; i++ ) {
+                List<Integer> window = hash(new NGramHasher(n), Arrays.copyOfRange(tokens, i, i + n));
+                assertThat(rolling).contains(window.get(window.size() - 1));
+            }
+        }
+        assertThat(hash(hasher, "the").get(0)).isEqualTo(MurmurHash3.hash32("the"));
+    }
+
+    @Test
+    void wordNgramsAreOrderSensitive() {
+        NGramHasher hasher = new NGramHasher(2);
+        assertThat(hash(hasher, "fire", "spread").get(2)).isNotEqualTo(hash(hasher, "spread", "fire").get(2));
+    }
+
+    @Test
+    void charNgramsSharedBetweenTokens() {
+        NGramHasher hasher = new NGramHasher(0, 3, 3, 0);
+        Set<Integer> cat  = new TreeSet<>(hash(hasher, "cat"));   // <ca cat at>
+        Set<Integer> scat = new TreeSet<>(hash(hasher, "scat"));  // <sc sca cat at>
+        assertThat(cat).hasSize(3);
+        assertThat(scat).hasSize(4);
+        cat.retainAll(scat);
+        assertThat(cat).hasSize(2);
+        assertThat(hash(hasher, "a")).hasSize(1);  // <a>
+    }
+}
@@ -0,0 +1,118 @@
+package com.jamesmcguigan.nlp.utils.iterators.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class CSVSpliteratorTest {
+    @TempDir
+    Path directory;
+
+    private Path write(String csv) throws IOException {
+        Path path = this.directory.resolve("test.csv");
+        Files.writeString(path, csv);
+        return path;
+    }
+
+
+    @Test
+    void header() throws IOException {
+        var spliterator = CSVSpliterator.open(write("id,keyword,text\n1,fire,hello\n"));
+        assertThat(spliterator.getHeader()).containsExactly("id", "keyword", "text").inOrder();
+        assertThat(spliterator.getHeaderMap().get("text")).isEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "id,text", "id,text\n" })
+    void empty(String csv) throws IOException {
+        try( Stream<String[]> stream = CSVSpliterator.open(write(csv)).stream(false) ) {
+            assertThat(stream.count()).isEqualTo(0);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "id,text\n1,one\n2,two", "id,text\n1,one\n2,two\n", "id,text\r\n1,one\r\n2,two\r\n" })
+    void includesLastRow(String csv) throws IOException {
+        try( Stream<String[]> stream = CSVSpliterator.open(write(csv)).stream(false) ) {
+            List<String> ids = stream.map(row -> row[0]).collect(Collectors.toList());
+            assertThat(ids).containsExactly("1", "2").inOrder();
+        }
+    }
+
+    @Test
+    void quotedNewlines() throws IOException {
+        String csv = "id,text\n1,\"multi\nline \"\"quoted\"\"\"\n2,\"comma, separated\"\n3,\n";
+        try( Stream<String[]> stream = CSVSpliterator.open(write(csv)).stream(false) ) {
+            List<String[]> rows = stream.collect(Collectors.toList());
+            assertThat(rows).hasSize(3);
+            assertThat(rows.get(0)[1]).isEqualTo("multi\nline \"quoted\"");
+            assertThat(rows.get(1)[1]).isEqualTo("comma, separated");
+            assertThat(rows.get(2)[1]).isEqualTo("");
+        }
+    }
+
+    @Test
+    void missingColumns() throws IOException {
+        try( Stream<String[]> stream = CSVSpliterator.open(write("id,keyword,text\n1,fire\n")).stream(false) ) {
+            String[] row = stream.findFirst().orElseThrow();
+            assertThat(row).asList().containsExactly("1", "fire", null).inOrder();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 16, 1024 })
+    void parallelMatchesSequential(int minSplitSize) throws IOException {
+        String csv = "id,text\n" + IntStream.range(0, 1000)
+            .mapToObj(i -> i + ",\"line " + i + "\nwith, \"\"quotes\"\" and newlines\"\n")
+            .collect(Collectors.joining())
+        ;
+        Path path = write(csv);
+
+        List<String> sequential;
+        List<String> parallel;
+        try( Stream<String[]> stream = CSVSpliterator.open(path).stream(false) ) {
+            sequential = stream.map(row -> row[0] + "|" + row[1]).collect(Collectors.toList());
+        }
+        try( Stream<String[]> stream = CSVSpliterator.open(path).setMinSplitSize(minSplitSize).stream(true) ) {
+            parallel = stream.map(row -> row[0] + "|" + row[1]).collect(Collectors.toList());
+        }
+        assertThat(sequential).hasSize(1000);
+        assertThat(parallel).containsExactlyElementsIn(sequential).inOrder();
+    }
+
+    @Test
+    void splitsAtRecordBoundaries() throws IOException {
+        String csv = "id,text\n" + IntStream.range(0, 100)
+            .mapToObj(i -> i + ",\"a\nb\"\n")
+            .collect(Collectors.joining())
+        ;
+        var spliterator = CSVSpliterator.open(write(csv)).setMinSplitSize(1);
+        var prefix      = spliterator.trySplit();
+        assertThat(prefix).isNotNull();
+
+        long count = Stream.of(prefix, spliterator)
+            .mapToLong(split -> {
+                int[] rows = { 0 };
+                split.forEachRemaining(row -> {
+                    assertThat(row[1]).isEqualTo("a\nb");
+                    rows[0]++;
+                });
+                return rows[0];
+            })
+            .sum()
+        ;
+        assertThat(count).isEqualTo(100);
+    }
+}
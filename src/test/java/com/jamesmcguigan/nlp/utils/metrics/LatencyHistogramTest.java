@@ -0,0 +1,50 @@
+package com.jamesmcguigan.nlp.utils.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThat(histogram.getPercentile(50)).isEqualTo(Duration.ZERO);
+        assertThat(histogram.getMean()).isEqualTo(Duration.ZERO);
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        IntStream.rangeClosed(1, 1000).parallel().forEach(ms -> histogram.record(Duration.ofMillis(ms)));
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMax()).isEqualTo(Duration.ofMillis(1000));
+        assertThat((double) histogram.getPercentile(50).toMillis()).isWithin(500 * 0.05).of(500);
+        assertThat((double) histogram.getPercentile(99).toMillis()).isWithin(990 * 0.05).of(990);
+        assertThat(histogram.getPercentile(100)).isEqualTo(Duration.ofMillis(1000));
+        assertThat(histogram.getMean().toMillis()).isEqualTo(500);
+    }
+
+    @Test
+    void testOverflow() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Duration.ofHours(1));
+        assertThat(histogram.getPercentile(50)).isEqualTo(Duration.ofHours(1));
+    }
+
+    @Test
+    void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Duration.ofMillis(5));
+        histogram.reset();
+        assertThat(histogram.getCount()).isEqualTo(0);
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(0));
+    }
+}
@@ -0,0 +1,138 @@
+package com.jamesmcguigan.nlp.utils.models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class ModelRegistryTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Treats a String as a model, with heap size equal to its length
+     */
+    private static class StringCodec implements ModelCodec<String> {
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public String getName() { return "string"; }
+
+        @Override
+        public void write(String model, OutputStream output) throws IOException {
+            output.write(model.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String read(InputStream input) throws IOException {
+            reads.incrementAndGet();
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public long estimateHeapSize(String model, long serializedSize) { return model.length(); }
+    }
+
+    @Test
+    void testPutGet() throws IOException {
+        ModelKey key = new ModelKey("twitter", "target", "nlp");
+        new ModelRegistry<>(directory, new StringCodec(), 1000).put(key, "model weights");
+
+        StringCodec codec = new StringCodec();
+        ModelRegistry<String> registry = new ModelRegistry<>(directory, codec, 1000);
+        assertThat(Files.exists(directory.resolve("nlp/twitter/target.model"))).isTrue();
+        assertThat(registry.isLoaded(key)).isFalse();
+        assertThat(registry.get(key)).isEqualTo("model weights");
+        assertThat(registry.get(key)).isEqualTo("model weights");
+        assertThat(codec.reads.get()).isEqualTo(1);
+        assertThat(registry.get(new ModelKey("twitter", "missing"))).isNull();
+    }
+
+    @Test
+    void testLRUEviction() throws IOException {
+        StringCodec codec = new StringCodec();
+        ModelRegistry<String> registry = new ModelRegistry<>(directory, codec, 20);
+        ModelKey a = new ModelKey("dataset", "a");
+        ModelKey b = new ModelKey("dataset", "b");
+        ModelKey c = new ModelKey("dataset", "c");
+        registry.put(a, "aaaaaaaaaa");
+        registry.put(b, "bbbbbbbbbb");
+        registry.put(c, "cccccccccc");
+
+        registry.get(a);
+        registry.get(b);
+        registry.get(a);  // b is now least recently used
+        registry.get(c);
+        assertThat(registry.isLoaded(a)).isTrue();
+        assertThat(registry.isLoaded(b)).isFalse();
+        assertThat(registry.isLoaded(c)).isTrue();
+        assertThat(registry.getHeapUsage()).isEqualTo(20);
+
+        assertThat(registry.get(b)).isEqualTo("bbbbbbbbbb");  // reloaded from the mapped file
+        assertThat(codec.reads.get()).isEqualTo(4);
+    }
+
+    @Test
+    void testPutReplacesLoaded() throws IOException {
+        ModelRegistry<String> registry = new ModelRegistry<>(directory, new StringCodec(), 1000);
+        ModelKey key = new ModelKey("dataset", "target");
+        registry.put(key, "version 1");
+        assertThat(registry.get(key)).isEqualTo("version 1");
+        registry.put(key, "version 2");
+        assertThat(registry.get(key)).isEqualTo("version 2");
+        assertThat(registry.getHeapUsage()).isEqualTo("version 2".length());
+    }
+
+    @Test
+    void testList() throws IOException {
+        ModelRegistry<String> registry = new ModelRegistry<>(directory, new StringCodec(), 1000);
+        registry.put(new ModelKey("tweets", "target"), "1");
+        registry.put(new ModelKey("tweets", "keyword", "v2 context"), "2");
+        assertThat(registry.list()).containsExactly(
+            new ModelKey("tweets", "target"),
+            new ModelKey("tweets", "keyword", "v2 context")
+        );
+    }
+
+    @Test
+    void testPutDuringDecodeIsNotOverwritten() throws Exception {
+        CountDownLatch decoding = new CountDownLatch(1);
+        CountDownLatch replaced = new CountDownLatch(1);
+        StringCodec codec = new StringCodec() {
+            @Override
+            public String read(InputStream input) throws IOException {
+                String model = super.read(input);
+                if( model.equals("version 1") ) {
+                    decoding.countDown();
+                    try { replaced.await(); } catch( InterruptedException e ) { Thread.currentThread().interrupt(); }
+                }
+                return model;
+            }
+        };
+        ModelRegistry<String> registry = new ModelRegistry<>(directory, codec, 1000);
+        ModelKey key = new ModelKey("dataset", "target");
+        registry.put(key, "version 1");
+
+        CompletableFuture<String> stale = CompletableFuture.supplyAsync(() -> registry.get(key));
+        assertThat(decoding.await(10, TimeUnit.SECONDS)).isTrue();
+        registry.put(key, "version 2");
+        replaced.countDown();
+
+        assertThat(stale.get(10, TimeUnit.SECONDS)).isEqualTo("version 1");  // decoded before the put
+        assertThat(registry.isLoaded(key)).isFalse();
+        assertThat(registry.get(key)).isEqualTo("version 2");
+        assertThat(registry.getHeapUsage()).isEqualTo("version 2".length());
+    }
+}
@@ -0,0 +1,51 @@
+package com.jamesmcguigan.nlp.v1.classifier;
+
+import com.jamesmcguigan.nlp.utils.concurrent.BatchCoalescer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.jamesmcguigan.nlp.v1.classifier.DocumentSamples.*;
+
+
+class CoalescingClassifierTest {
+    private static final List<String> WORDS = List.of(
+        "burning", "flames", "smoking", "evacuated", "sunny", "beaches", "relaxing", "holidays",
+        "flooding", "rivers", "raining", "levees", "sandbagged", "running", "generously", "happily"
+    );
+
+    @Test
+    void concurrentBatchesMatchSequentialPredictions() throws Exception {
+        OpenNLPClassifier classifier = trained(FIRE, CALM, FLOOD);
+        List<String> texts = IntStream.range(0, 2000)
+            .mapToObj(i -> String.join(" ", WORDS.get(i % WORDS.size()), WORDS.get((i * 7 + 3) % WORDS.size()), "#tag" + i))
+            .collect(Collectors.toList())
+        ;
+        List<String> expected = texts.stream().map(classifier::predict).collect(Collectors.toList());
+
+        ExecutorService workers = BatchCoalescer.newWorkerPool(8, "coalescing-test");
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try( CoalescingClassifier coalescing = new CoalescingClassifier(classifier, 16, 200, workers) ) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for( String text : texts ) {
+                futures.add(CompletableFuture.supplyAsync(() -> coalescing.predict(text), callers).thenCompose(future -> future));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).get(30, TimeUnit.SECONDS);
+
+            List<String> actual = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+            assertThat(actual).containsExactlyElementsIn(expected).inOrder();
+            assertThat(coalescing.getCoalescer().getBatchCount()).isGreaterThan(1L);
+        } finally {
+            workers.shutdownNow();
+            callers.shutdownNow();
+        }
+    }
+}
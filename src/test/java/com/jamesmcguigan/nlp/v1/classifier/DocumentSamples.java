@@ -0,0 +1,56 @@
+package com.jamesmcguigan.nlp.v1.classifier;
+
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.util.ObjectStream;
+import opennlp.tools.util.ObjectStreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * Small separable corpora for training OpenNLP classifiers offline
+ */
+public final class DocumentSamples {
+    public static final List<DocumentSample> FIRE  = of("fire",  20, "fire", "smoke", "burning", "flames", "evacuate");
+    public static final List<DocumentSample> CALM  = of("calm",  20, "sunny", "beach", "relaxing", "coffee", "holiday");
+    public static final List<DocumentSample> FLOOD = of("flood", 20, "water", "river", "rain", "levee", "sandbags");
+
+    private DocumentSamples() {}
+
+    /**
+     * @return {@code count} samples of three consecutive words, cycling through {@code words}
+     */
+    public static List<DocumentSample> of(String category, int count, String... words) {
+        List<DocumentSample> samples = new ArrayList<>();
+        for( int i = 0; i < count; i++ ) {
+            String[] text = new String[3];
+            for( int j = 0; j < text.length; j++ ) { text[j] = words[(i + j) % words.length]; }
+            samples.add(new DocumentSample(category, text));
+        }
+        return samples;
+    }
+
+    @SafeVarargs
+    public static ObjectStream<DocumentSample> stream(List<DocumentSample>... samples) {
+        return ObjectStreamUtils.createObjectStream(Arrays.stream(samples)
+            .flatMap(List::stream)
+            .collect(Collectors.toList())
+        );
+    }
+
+    @SafeVarargs
+    public static OpenNLPClassifier trained(List<DocumentSample>... samples) {
+        OpenNLPClassifier classifier = new OpenNLPClassifier();
+        try {
+            classifier.train(stream(samples));
+        } catch( IOException e ) {
+            throw new UncheckedIOException(e);
+        }
+        return classifier;
+    }
+}
@@ -0,0 +1,83 @@
+package com.jamesmcguigan.nlp.v1.classifier;
+
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import opennlp.tools.doccat.DocumentSample;
+import opennlp.tools.ml.model.AbstractModel;
+import opennlp.tools.ml.model.MaxentModel;
+import opennlp.tools.util.ObjectStreamUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.jamesmcguigan.nlp.v1.classifier.DocumentSamples.*;
+
+
+class OpenNLPClassifierTest {
+    private static final List<String[]> TEXTS = List.of(
+        new String[]{ "fire", "smoke", "burning" },
+        new String[]{ "sunny", "beach", "coffee" },
+        new String[]{ "water", "river", "levee" },
+        new String[]{ "fire", "river", "holiday" },
+        new String[]{ "unseen", "words", "only" }
+    );
+
+    /**
+     * @return predicates of the model, for comparing vocabularies independent of order
+     */
+    private static List<String> getPredicates(DoccatModel model) {
+        Map<?, ?> predicates = (Map<?, ?>) ((AbstractModel) model.getMaxentModel()).getDataStructures()[1];
+        List<String> output = new ArrayList<>();
+        for( Object predicate : predicates.keySet() ) { output.add(predicate.toString()); }
+        return output;
+    }
+
+    private static void assertSameScores(OpenNLPClassifier expected, OpenNLPClassifier actual) {
+        DocumentCategorizerME expectedDoccat = new DocumentCategorizerME(expected.getModel());
+        DocumentCategorizerME actualDoccat   = new DocumentCategorizerME(actual.getModel());
+        for( String[] text : TEXTS ) {
+            Map<String, Double> expectedScores = expectedDoccat.scoreMap(text);
+            Map<String, Double> actualScores   = actualDoccat.scoreMap(text);
+            assertThat(actualScores.keySet()).containsExactlyElementsIn(expectedScores.keySet());
+            for( String category : expectedScores.keySet() ) {  // outcome order differs between models
+                assertThat(actualScores.get(category)).isWithin(1e-9).of(expectedScores.get(category));
+            }
+        }
+    }
+
+
+    @Test
+    void updateMatchesFullTraining() throws IOException {
+        OpenNLPClassifier full        = trained(FIRE, CALM, CALM, FLOOD);
+        OpenNLPClassifier incremental = trained(FIRE, CALM);
+        incremental.update(stream(CALM, FLOOD));  // existing outcome, plus a new outcome with new predicates
+
+        MaxentModel model = incremental.getModel().getMaxentModel();
+        assertThat(model.getNumOutcomes()).isEqualTo(3);
+        assertThat(model.getIndex("flood")).isAtLeast(0);
+        assertThat(getPredicates(incremental.getModel())).containsExactlyElementsIn(getPredicates(full.getModel()));
+        assertThat(getPredicates(incremental.getModel())).containsAtLeast("bow=water", "bow=levee");
+        assertSameScores(full, incremental);
+        assertThat(incremental.predict(new String[]{ "water", "river", "rain" })).isEqualTo("flood");
+    }
+
+    @Test
+    void updateUntrainedTrains() throws IOException {
+        OpenNLPClassifier full        = trained(FIRE, CALM);
+        OpenNLPClassifier incremental = new OpenNLPClassifier();
+        incremental.update(stream(FIRE, CALM));
+        assertSameScores(full, incremental);
+    }
+
+    @Test
+    void updateEmptyStreamKeepsModel() throws IOException {
+        OpenNLPClassifier classifier = trained(FIRE, CALM);
+        DoccatModel       model      = classifier.getModel();
+        classifier.update(ObjectStreamUtils.createObjectStream(new ArrayList<DocumentSample>()));
+        assertThat(classifier.getModel()).isSameInstanceAs(model);
+    }
+}
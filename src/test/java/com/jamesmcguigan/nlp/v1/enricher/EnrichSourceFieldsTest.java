@@ -0,0 +1,41 @@
+package com.jamesmcguigan.nlp.v1.enricher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class EnrichSourceFieldsTest {
+    private final List<String> fields  = List.of("text", "location");
+    private final List<String> targets = List.of("target", "keyword");
+
+    @Test
+    void enricherReadsExistingPrediction() {
+        OpenNLPEnricher enricher = new OpenNLPEnricher("twitter", fields, "target");
+        assertThat(enricher.isServerNoop()).isFalse();
+        assertThat(enricher.getEnrichSourceFields())
+            .containsExactly("id", "text", "location", "_opennlp.target").inOrder();
+    }
+
+    @Test
+    void enricherServerNoopSkipsPrediction() {
+        OpenNLPEnricher enricher = new OpenNLPEnricher("twitter", fields, "target", "").setServerNoop(true);
+        assertThat(enricher.isServerNoop()).isTrue();
+        assertThat(enricher.getEnrichSourceFields()).containsExactly("id", "text", "location").inOrder();
+    }
+
+    @Test
+    void multiEnricherReadsExistingPredictions() {
+        OpenNLPMultiEnricher enricher = new OpenNLPMultiEnricher("twitter", fields, targets, "ml");
+        assertThat(enricher.getEnrichSourceFields())
+            .containsExactly("id", "text", "location", "ml.target", "ml.keyword").inOrder();
+    }
+
+    @Test
+    void multiEnricherServerNoopSkipsPredictions() {
+        OpenNLPMultiEnricher enricher = new OpenNLPMultiEnricher("twitter", fields, targets).setServerNoop(true);
+        assertThat(enricher.getEnrichSourceFields()).containsExactly("id", "text", "location").inOrder();
+    }
+}
@@ -0,0 +1,81 @@
+package com.jamesmcguigan.nlp.v1.enricher;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ExistsQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.ScriptQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+
+
+class IncrementalEnrichmentTest {
+    private static BoolQueryBuilder getStale(QueryBuilder query) {
+        BoolQueryBuilder output = (BoolQueryBuilder) query;
+        assertThat(output.filter()).hasSize(1);
+        return (BoolQueryBuilder) output.filter().get(0);
+    }
+
+    private static List<ScriptQueryBuilder> getScripts(BoolQueryBuilder stale) {
+        return stale.should().stream()
+            .filter(ScriptQueryBuilder.class::isInstance)
+            .map(ScriptQueryBuilder.class::cast)
+            .collect(Collectors.toList())
+        ;
+    }
+
+
+    @Test
+    void keys() {
+        assertThat(IncrementalEnrichment.getModelKey("_opennlp")).isEqualTo("_opennlp.model");
+        assertThat(IncrementalEnrichment.getEnrichedAtKey("_opennlp")).isEqualTo("_opennlp.enriched_at");
+        assertThat(IncrementalEnrichment.getVersionKey("_opennlp")).isEqualTo("_opennlp.version");
+        assertThat(IncrementalEnrichment.getEnrichedAtKey("")).isEqualTo("_enriched_at");
+    }
+
+    @Test
+    void stateUpdate() {
+        assertThat(IncrementalEnrichment.getStateUpdate("_opennlp", "abc", 1234L)).containsExactly(
+            "_opennlp.model",       "abc",
+            "_opennlp.enriched_at", 1234L
+        );
+    }
+
+    @Test
+    void staleQueryWithoutUpdatedAt() {
+        BoolQueryBuilder stale = getStale(IncrementalEnrichment.getStaleQuery("_opennlp", "abc", null, null));
+        assertThat(stale.minimumShouldMatch()).isEqualTo("1");
+        assertThat(stale.should()).hasSize(2);
+
+        BoolQueryBuilder modelChanged = (BoolQueryBuilder) stale.should().get(0);
+        TermQueryBuilder fingerprint  = (TermQueryBuilder) modelChanged.mustNot().get(0);
+        assertThat(fingerprint.fieldName()).isEqualTo("_opennlp.model");
+        assertThat(fingerprint.value()).isEqualTo("abc");
+
+        BoolQueryBuilder   missing = (BoolQueryBuilder) stale.should().get(1);
+        ExistsQueryBuilder exists  = (ExistsQueryBuilder) missing.mustNot().get(0);
+        assertThat(exists.fieldName()).isEqualTo("_opennlp.enriched_at");
+        assertThat(getScripts(stale)).isEmpty();
+    }
+
+    @Test
+    void staleQueryWithUpdatedAt() {
+        QueryBuilder     query = termQuery("lang", "en");
+        BoolQueryBuilder root  = (BoolQueryBuilder) IncrementalEnrichment.getStaleQuery("_opennlp", "abc", "updated_at", query);
+        assertThat(root.must()).containsExactly(query);
+
+        List<ScriptQueryBuilder> scripts = getScripts(getStale(root));
+        assertThat(scripts).hasSize(1);
+        assertThat(scripts.get(0).script().getParams()).containsExactly(
+            "enrichedAtKey",  "_opennlp.enriched_at",
+            "updatedAtField", "updated_at"
+        );
+        assertThat(scripts.get(0).script().getIdOrCode()).contains(">= doc[params.enrichedAtKey].value");
+        assertThat(scripts.get(0).script().getIdOrCode()).doesNotContain("_seq_no");
+    }
+}
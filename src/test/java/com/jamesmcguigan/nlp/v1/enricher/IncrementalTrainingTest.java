@@ -0,0 +1,88 @@
+package com.jamesmcguigan.nlp.v1.enricher;
+
+import com.jamesmcguigan.nlp.utils.models.ModelKey;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPClassifier;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPModelCodec;
+import opennlp.tools.doccat.DoccatModel;
+import opennlp.tools.doccat.DocumentCategorizerME;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.jamesmcguigan.nlp.v1.classifier.DocumentSamples.*;
+import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
+
+
+class IncrementalTrainingTest {
+    @TempDir
+    Path directory;
+
+    private static RangeQueryBuilder getRange(QueryBuilder query) {
+        BoolQueryBuilder bool = (BoolQueryBuilder) query;
+        assertThat(bool.filter()).hasSize(2);
+        return (RangeQueryBuilder) bool.filter().get(1);
+    }
+
+
+    @Test
+    void snapshotVersionsIncrease() {
+        long first = ModelVersion.nextVersion(0);
+        assertThat(first).isAtLeast(1_600_000_000_000L);  // epoch millis, comparable with ModelVersion
+        assertThat(ModelVersion.nextVersion(first)).isGreaterThan(first);
+        assertThat(ModelVersion.nextVersion(Long.MAX_VALUE - 1)).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void withSnapshotRoundTrip() throws IOException {
+        OpenNLPClassifier classifier = trained(FIRE, CALM);
+        DoccatModel       model      = classifier.getModel();
+        assertThat(IncrementalTraining.getVersion(model)).isEqualTo(0);
+        assertThat(IncrementalTraining.getHighWaterMark(model)).isNull();
+        assertThat(IncrementalTraining.getVersion(null)).isEqualTo(0);
+        assertThat(IncrementalTraining.getHighWaterMark(null)).isNull();
+
+        DoccatModel snapshot = IncrementalTraining.withSnapshot(model, 3, 1_600_000_000_000L);
+        assertThat(IncrementalTraining.getVersion(snapshot)).isEqualTo(3);
+        assertThat(IncrementalTraining.getHighWaterMark(snapshot)).isEqualTo(1_600_000_000_000L);
+        assertThat(snapshot.getMaxentModel()).isSameInstanceAs(model.getMaxentModel());
+
+        ModelRegistry<DoccatModel> registry = new ModelRegistry<>(directory, new OpenNLPModelCodec(), Long.MAX_VALUE);
+        ModelKey key = new ModelKey("index", "target", "context");
+        classifier.setModel(snapshot).save(registry, key);
+        registry.invalidate(key);
+        DoccatModel loaded = new OpenNLPClassifier().load(registry, key).getModel();
+        assertThat(IncrementalTraining.getVersion(loaded)).isEqualTo(3);
+        assertThat(IncrementalTraining.getHighWaterMark(loaded)).isEqualTo(1_600_000_000_000L);
+
+        String[] text = { "fire", "smoke", "beach" };
+        assertThat(new DocumentCategorizerME(loaded).categorize(text))
+            .usingTolerance(1e-9)
+            .containsExactly(new DocumentCategorizerME(model).categorize(text))
+            .inOrder();
+    }
+
+    @Test
+    void newLabelsQuery() {
+        QueryBuilder labeled = existsQuery("target");
+
+        QueryBuilder      query   = IncrementalTraining.getNewLabelsQuery(labeled, "labeled_at", 100L, 200L);
+        RangeQueryBuilder bounded = getRange(query);
+        assertThat(((BoolQueryBuilder) query).filter().get(0)).isEqualTo(labeled);
+        assertThat(bounded.fieldName()).isEqualTo("labeled_at");
+        assertThat(bounded.from()).isEqualTo(100L);
+        assertThat(bounded.includeLower()).isFalse();
+        assertThat(bounded.to()).isEqualTo(200L);
+        assertThat(bounded.includeUpper()).isTrue();
+
+        RangeQueryBuilder unbounded = getRange(IncrementalTraining.getNewLabelsQuery(labeled, "labeled_at", null, null));
+        assertThat(unbounded.from()).isNull();
+        assertThat(unbounded.to()).isNull();
+    }
+}
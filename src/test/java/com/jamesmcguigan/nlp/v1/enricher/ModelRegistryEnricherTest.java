@@ -0,0 +1,71 @@
+package com.jamesmcguigan.nlp.v1.enricher;
+
+import com.jamesmcguigan.nlp.utils.models.ModelKey;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPModelCodec;
+import opennlp.tools.doccat.DoccatModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.jamesmcguigan.nlp.v1.classifier.DocumentSamples.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class ModelRegistryEnricherTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadResolvesModelsFromRegistry() throws IOException {
+        ModelRegistry<DoccatModel> registry = new ModelRegistry<>(directory, new OpenNLPModelCodec(), Long.MAX_VALUE);
+        ModelKey key = new ModelKey("twitter", "target", "test");
+        trained(FIRE, CALM).save(registry, key);
+
+        OpenNLPMultiEnricher enricher = new OpenNLPMultiEnricher("twitter", List.of("text"), List.of("target"));
+        enricher.load(registry, "test");
+        ModelVersion version = enricher.getModelVersion();
+        assertThat(version.getRegistryKeys()).containsExactly("target", key);
+        assertThat(version.getVersion()).isGreaterThan(0L);
+
+        registry.evict(key);  // pinned by the version, so eviction does not change the model
+        assertThat(version.get("target").predict(new String[]{ "smoke", "flames" })).isEqualTo("fire");
+        assertThat(registry.isLoaded(key)).isFalse();
+        assertThat(version.get("target").getTokenizer()).isSameInstanceAs(enricher.getTokenizer());
+        assertThat(version.getFingerprint()).isEqualTo(IncrementalEnrichment.getFingerprint(Map.of("target", trained(FIRE, CALM))));
+    }
+
+    @Test
+    void registryPutDoesNotChangeLoadedVersion() throws IOException {
+        ModelRegistry<DoccatModel> registry = new ModelRegistry<>(directory, new OpenNLPModelCodec(), Long.MAX_VALUE);
+        ModelKey key = new ModelKey("twitter", "target", "test");
+        trained(FIRE, CALM).save(registry, key);
+
+        OpenNLPMultiEnricher enricher = new OpenNLPMultiEnricher("twitter", List.of("text"), List.of("target"));
+        ModelVersion loaded      = enricher.load(registry, "test").getModelVersion();
+        String       fingerprint = loaded.getFingerprint();
+
+        trained(FLOOD, CALM).save(registry, key);
+        assertThat(loaded.get("target").predict(new String[]{ "smoke", "flames" })).isEqualTo("fire");
+        assertThat(loaded.getFingerprint()).isEqualTo(fingerprint);
+
+        ModelVersion reloaded = enricher.load(registry, "test").getModelVersion();
+        assertThat(reloaded.getVersion()).isGreaterThan(loaded.getVersion());
+        assertThat(reloaded.get("target").predict(new String[]{ "water", "river" })).isEqualTo("flood");
+        assertThat(reloaded.getFingerprint()).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    void loadRequiresEveryTarget() {
+        ModelRegistry<DoccatModel> registry = new ModelRegistry<>(directory, new OpenNLPModelCodec(), Long.MAX_VALUE);
+        OpenNLPMultiEnricher enricher = new OpenNLPMultiEnricher("twitter", List.of("text"), List.of("target"));
+        assertThrows(FileNotFoundException.class, () -> enricher.load(registry, "test"));
+        assertThat(enricher.getModelVersion().getVersion()).isEqualTo(0L);
+    }
+}
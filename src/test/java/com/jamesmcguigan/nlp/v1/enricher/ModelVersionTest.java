@@ -0,0 +1,90 @@
+package com.jamesmcguigan.nlp.v1.enricher;
+
+import com.jamesmcguigan.nlp.utils.data.ESJsonPath;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPClassifier;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.jamesmcguigan.nlp.v1.classifier.DocumentSamples.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class ModelVersionTest {
+    private final OpenNLPClassifier fireCalm  = trained(FIRE, CALM);
+    private final OpenNLPClassifier floodCalm = trained(FLOOD, CALM);
+    private final ESJsonPath        document  = new ESJsonPath("{\"id\": \"1\", \"text\": \"smoke flames water river\"}");
+
+    private OpenNLPMultiEnricher newEnricher() {
+        return new OpenNLPMultiEnricher("twitter", List.of("text"), List.of("target", "keyword"), "ml");
+    }
+
+
+    @Test
+    void versionsAreMonotonic() {
+        ModelVersion initial = new ModelVersion(0, Map.of());
+        ModelVersion first   = initial.with(Map.of("target", fireCalm));
+        assertThat(first.getVersion()).isAtLeast(System.currentTimeMillis() - 60_000);
+
+        ModelVersion future = new ModelVersion(Long.MAX_VALUE - 10, Map.of());
+        ModelVersion next   = future.with(Map.of("target", fireCalm));
+        assertThat(next.getVersion()).isEqualTo(Long.MAX_VALUE - 9);  // prev+1 when ahead of the clock
+
+        long previous = first.getVersion();
+        ModelVersion current = first;
+        for( int i = 0; i < 100; i++ ) {
+            current = current.with(Map.of("keyword", floodCalm));
+            assertThat(current.getVersion()).isGreaterThan(previous);
+            previous = current.getVersion();
+        }
+    }
+
+    @Test
+    void withKeepsOtherTargets() {
+        ModelVersion first  = new ModelVersion(0, Map.of("target", fireCalm, "keyword", fireCalm));
+        ModelVersion second = first.with(Map.of("keyword", floodCalm));
+        assertThat(second.get("target")).isSameInstanceAs(fireCalm);
+        assertThat(second.get("keyword")).isSameInstanceAs(floodCalm);
+        assertThat(first.get("keyword")).isSameInstanceAs(fireCalm);
+    }
+
+    @Test
+    void swapRejectsUnknownTargets() {
+        OpenNLPMultiEnricher enricher = newEnricher();
+        assertThrows(IllegalArgumentException.class, () -> enricher.swapModel("missing", fireCalm));
+        assertThat(enricher.getModelVersion().getVersion()).isEqualTo(0L);
+    }
+
+    @Test
+    void inFlightSnapshotKeepsOldModels() {
+        OpenNLPMultiEnricher enricher = newEnricher();
+        enricher.swapModels(Map.of("target", fireCalm, "keyword", fireCalm));
+        ModelVersion inFlight = enricher.getModelVersion();
+
+        ModelVersion swapped = enricher.swapModel("target", floodCalm);
+        assertThat(swapped.getVersion()).isGreaterThan(inFlight.getVersion());
+        assertThat(enricher.getModelVersion()).isSameInstanceAs(swapped);
+        assertThat(inFlight.get("target")).isSameInstanceAs(fireCalm);
+
+        assertThat(enricher.predictUpdateMap(document, inFlight)).containsEntry("ml.target", "fire");
+        assertThat(enricher.predictUpdateMap(document, swapped)).containsEntry("ml.target", "flood");
+    }
+
+    @Test
+    void updatesAreStampedWithVersion() {
+        OpenNLPMultiEnricher enricher = newEnricher();
+        ModelVersion version = enricher.swapModels(Map.of("target", fireCalm, "keyword", floodCalm));
+
+        var pair = enricher.predictUpdatePairFromJson("{\"id\": \"1\", \"text\": \"smoke flames\"}");
+        assertThat(pair).isNotNull();
+        assertThat(pair.getLeft()).isEqualTo("1");
+        assertThat(pair.getRight()).containsEntry("ml.version", version.getVersion());
+
+        Map<String, Object> incremental = enricher.predictIncrementalUpdateMap(document, 1234L);
+        assertThat(incremental).containsEntry("ml.version",     version.getVersion());
+        assertThat(incremental).containsEntry("ml.model",       version.getFingerprint());
+        assertThat(incremental).containsEntry("ml.enriched_at", 1234L);
+    }
+}
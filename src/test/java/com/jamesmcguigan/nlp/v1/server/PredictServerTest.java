@@ -0,0 +1,74 @@
+package com.jamesmcguigan.nlp.v1.server;
+
+import com.jamesmcguigan.nlp.utils.models.ModelKey;
+import com.jamesmcguigan.nlp.utils.models.ModelRegistry;
+import com.jamesmcguigan.nlp.v1.classifier.OpenNLPModelCodec;
+import com.jamesmcguigan.nlp.v1.server.PredictServer.PredictRequest;
+import opennlp.tools.doccat.DoccatModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.jamesmcguigan.nlp.v1.classifier.DocumentSamples.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class PredictServerTest {
+    @TempDir
+    Path directory;
+    private ModelRegistry<DoccatModel> registry;
+    private PredictServer server;
+    private final ModelKey key = new ModelKey("twitter", "target", "test");
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new ModelRegistry<>(directory, new OpenNLPModelCodec(), Long.MAX_VALUE);
+        trained(FIRE, CALM).save(registry, key);
+        server = new PredictServer(registry, 8, 100, 2);
+        server.start(new InetSocketAddress("localhost", 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private String predict(String dataset) throws Exception {
+        return server.predict(new PredictRequest(dataset, "target", "test", "smoke flames")).get(10, TimeUnit.SECONDS).label;
+    }
+
+
+    @Test
+    void unknownModelsDoNotCreateCoalescers() {
+        for( int i = 0; i < 100; i++ ) {
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> predict("missing" + Math.random()));
+            assertThat(exception).hasCauseThat().isInstanceOf(NoSuchElementException.class);
+        }
+        assertThat(server.getCoalescerCount()).isEqualTo(0);
+    }
+
+    @Test
+    void evictionRemovesCoalescer() throws Exception {
+        assertThat(predict("twitter")).isEqualTo("fire");
+        assertThat(server.getCoalescerCount()).isEqualTo(1);
+
+        registry.evict(key);
+        assertThat(server.getCoalescerCount()).isEqualTo(0);
+        assertThat(predict("twitter")).isEqualTo("fire");
+
+        trained(FLOOD, CALM).save(registry, key);  // put() invalidates
+        assertThat(server.getCoalescerCount()).isEqualTo(0);
+        assertThat(server.predict(new PredictRequest("twitter", "target", "test", "water river")).get(10, TimeUnit.SECONDS).label)
+            .isEqualTo("flood");
+        assertThat(server.getStats()).containsEntry("batches", 3L);
+    }
+}
@@ -0,0 +1,122 @@
+package com.jamesmcguigan.nlp.v2.classifier;
+
+import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import com.jamesmcguigan.nlp.v2.config.Task;
+import com.jamesmcguigan.nlp.v2.config.YamlParser;
+import com.jamesmcguigan.nlp.v2.datasets.CSVDataset;
+import com.jamesmcguigan.nlp.v2.datasets.CSVFixture;
+import com.jamesmcguigan.nlp.v2.datasets.DataRow;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class LinearClassifierTest {
+    static final String[] POSITIVE = { "fire", "flood", "earthquake", "evacuate", "wildfire", "storm" };
+    static final String[] NEGATIVE = { "happy", "sunny", "party", "music", "friends", "lovely" };
+    static final String[] NEUTRAL  = { "today", "people", "street", "video", "night", "city" };
+
+    @TempDir
+    Path directory;
+    Path datasetYaml;
+    Path output;
+
+    /**
+     * Two separable classes, each row has two class words and two neutral words
+     */
+    static String toCSV(int rows, int seed) {
+        Random random = new Random(seed);
+        return "id,text,target\n" + IntStream.range(0, rows).mapToObj(i -> {
+            boolean  positive = random.nextBoolean();
+            String[] words    = positive ? POSITIVE : NEGATIVE;
+            String   text     = String.join(" ",
+                words[random.nextInt(words.length)], NEUTRAL[random.nextInt(NEUTRAL.length)],
+                words[random.nextInt(words.length)], NEUTRAL[random.nextInt(NEUTRAL.length)]
+            );
+            return i + "," + text + "," + (positive ? 1 : 0) + "\n";
+        }).collect(Collectors.joining());
+    }
+
+    static Path writeDataset(Path directory, Path output) throws IOException {
+        return new CSVFixture(directory, "classifier-test")
+            .train(toCSV(4000, 1))
+            .test(toCSV(500,  2))
+            .output(output)
+            .field("text",   DatasetField.text)
+            .label("target", DatasetField.binary)
+            .write()
+        ;
+    }
+
+    static double accuracy(AbstractClassifier classifier, Dataset dataset) {
+        try( Stream<DataRow> rows = dataset.getTestStream() ) {
+            List<Boolean> correct = rows
+                .map(row -> row.getDecoded("target").toString().equals(classifier.predict("target", row)))
+                .collect(Collectors.toList())
+            ;
+            return correct.stream().filter(Boolean::booleanValue).count() / (double) correct.size();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        output      = directory.resolve("output/predictions.csv");
+        datasetYaml = writeDataset(directory, output);
+    }
+
+    private ControllerConfig getConfig(String loss) {
+        String yaml = """
+            linear-classifier-test:
+              extractor: com.jamesmcguigan.nlp.v2.classifier.LinearClassifier
+              condition: ""
+              context:   test
+              datasets:
+                - %s
+              configuration:
+                predict:
+                  - target
+                loss:   %s
+                bits:   16
+                epochs: 3
+            """.formatted(datasetYaml, loss);
+        return YamlParser.getExtractorConfigs(yaml).get(0);
+    }
+
+
+    @ParameterizedTest
+    @ValueSource(strings = { "log", "hinge" })
+    void trainAndPredict(String loss) throws IOException {
+        ControllerConfig config     = getConfig(loss);
+        LinearClassifier classifier = (LinearClassifier) config.getExtractor();
+        Dataset          dataset    = new CSVDataset(config.getDatasets().get(0), "");
+
+        assertThat(classifier.getModel("target")).isNull();
+        classifier.run(Task.train, List.of(dataset));
+
+        LinearModel model = classifier.getModel("target");
+        assertThat(model).isNotNull();
+        assertThat(model.getClasses()).containsExactly("0", "1");
+        assertThat(model.getDimensions()).isEqualTo(1 << 16);
+        assertThat(accuracy(classifier, dataset)).isGreaterThan(0.95);
+
+        classifier.run(Task.csv, List.of(dataset));
+        List<String> lines = Files.readAllLines(output);
+        assertThat(lines.get(0)).isEqualTo("id,target");
+        assertThat(lines).hasSize(501);
+        assertThat(lines.get(1)).matches("0,[01]");
+    }
+}
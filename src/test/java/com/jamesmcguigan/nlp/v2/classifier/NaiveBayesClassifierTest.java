@@ -0,0 +1,164 @@
+package com.jamesmcguigan.nlp.v2.classifier;
+
+import com.jamesmcguigan.nlp.utils.features.SparseVector;
+import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.config.Task;
+import com.jamesmcguigan.nlp.v2.config.YamlParser;
+import com.jamesmcguigan.nlp.v2.datasets.CSVDataset;
+import com.jamesmcguigan.nlp.v2.datasets.DataRow;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.jamesmcguigan.nlp.v2.classifier.LinearClassifierTest.accuracy;
+import static com.jamesmcguigan.nlp.v2.classifier.LinearClassifierTest.writeDataset;
+
+
+class NaiveBayesClassifierTest {
+    @TempDir
+    Path directory;
+    Path datasetYaml;
+    Path output;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        output      = directory.resolve("output/predictions.csv");
+        datasetYaml = writeDataset(directory, output);
+    }
+
+    private ControllerConfig getConfig() {
+        String yaml = """
+            naive-bayes-test:
+              extractor: com.jamesmcguigan.nlp.v2.classifier.NaiveBayesClassifier
+              condition: ""
+              context:   test
+              datasets:
+                - %s
+              configuration:
+                predict:
+                  - target
+                bits: 16
+            """.formatted(datasetYaml);
+        return YamlParser.getExtractorConfigs(yaml).get(0);
+    }
+
+    private static Map<String, Double> toMap(NaiveBayesCounts counts) {
+        Map<String, Double> map = new HashMap<>();
+        counts.forEach((classId, feature, count) -> map.put(classId + ":" + feature, count));
+        return map;
+    }
+
+
+    @Test
+    void trainAndPredict() throws IOException {
+        ControllerConfig     config     = getConfig();
+        NaiveBayesClassifier classifier = (NaiveBayesClassifier) config.getExtractor();
+        Dataset              dataset    = new CSVDataset(config.getDatasets().get(0), "");
+
+        assertThat(classifier.getModel("target")).isNull();
+        classifier.run(Task.train, List.of(dataset));
+
+        NaiveBayesModel model = classifier.getModel("target");
+        assertThat(model).isNotNull();
+        assertThat(model.getClasses()).containsExactly("0", "1");
+        assertThat(model.getDocumentCount()).isEqualTo(4000);
+        assertThat(model.getClassDocs("0") + model.getClassDocs("1")).isEqualTo(4000);
+        assertThat(accuracy(classifier, dataset)).isGreaterThan(0.95);
+
+        classifier.run(Task.csv, List.of(dataset));
+        List<String> lines = Files.readAllLines(output);
+        assertThat(lines.get(0)).isEqualTo("id,target");
+        assertThat(lines).hasSize(501);
+    }
+
+    @Test
+    void incrementalUpdateMatchesFullTraining() {
+        ControllerConfig     config     = getConfig();
+        NaiveBayesClassifier classifier = (NaiveBayesClassifier) config.getExtractor();
+        Dataset              dataset    = new CSVDataset(config.getDatasets().get(0), "");
+
+        List<DataRow> rows;
+        try( Stream<DataRow> stream = dataset.getTrainStream() ) { rows = stream.collect(Collectors.toList()); }
+        NaiveBayesModel full        = classifier.newModel();
+        NaiveBayesModel incremental = classifier.newModel();
+        assertThat(classifier.update(full,        "target", rows.stream())).isEqualTo(4000);
+        assertThat(classifier.update(incremental, "target", rows.subList(0, 1000).stream())).isEqualTo(1000);
+        assertThat(classifier.update(incremental, "target", rows.subList(1000, 4000).stream())).isEqualTo(3000);
+
+        assertThat(incremental.getDocumentCount()).isEqualTo(full.getDocumentCount());
+        assertThat(incremental.getClassDocs("1")).isEqualTo(full.getClassDocs("1"));
+        for( DataRow row : rows.subList(0, 100) ) {
+            SparseVector features = classifier.vectorize(row);
+            double[] expected = full.logScores(features);
+            double[] actual   = incremental.logScores(features);
+            for( String label : List.of("0", "1") ) {  // class ids are assigned in parallel encounter order
+                assertThat(actual[incremental.getClassId(label)]).isWithin(1e-4).of(expected[full.getClassId(label)]);
+            }
+        }
+    }
+
+    @Test
+    void mergeMatchesSequentialCounts() {
+        SparseVector a = new SparseVector().add(1, 1f).add(5, 2f);
+        SparseVector b = new SparseVector().add(5, 1f).add(70_000, 3f);
+
+        NaiveBayesCounts sequential = new NaiveBayesCounts(4);
+        sequential.add(0, a);
+        sequential.add(2, b);
+        sequential.add(0, b);
+
+        NaiveBayesCounts left  = new NaiveBayesCounts(4);
+        NaiveBayesCounts right = new NaiveBayesCounts(4);
+        left.add(0, a);
+        right.add(2, b);
+        right.add(0, b);
+        NaiveBayesCounts merged = left.merge(right);
+
+        assertThat(toMap(merged)).isEqualTo(toMap(sequential));
+        assertThat(merged.size()).isEqualTo(5);
+        assertThat(merged.getClassCount()).isEqualTo(3);
+        assertThat(merged.getClassDocs(0)).isEqualTo(2);
+        assertThat(merged.getClassDocs(1)).isEqualTo(0);
+        assertThat(merged.getClassTotal(0)).isEqualTo(7.0);
+        assertThat(merged.getClassTotal(2)).isEqualTo(4.0);
+    }
+
+    @Test
+    void countsAboveFloatPrecision() {
+        int large = 1 << 24;  // float(2^24 + 1) == 2^24
+        NaiveBayesCounts counts = new NaiveBayesCounts();
+        counts.add(0, new SparseVector().add(3, (float) large));
+        counts.add(0, new SparseVector().add(3, 1f));
+        assertThat(toMap(counts)).containsExactly("0:3", large + 1.0);
+        assertThat(new NaiveBayesCounts().merge(counts).merge(counts).getClassTotal(0)).isEqualTo(2.0 * (large + 1));
+    }
+
+    @Test
+    void smoothing() {
+        NaiveBayesModel  model  = new NaiveBayesModel(4, 1.0);
+        NaiveBayesCounts counts = new NaiveBayesCounts();
+        counts.add(model.getClassId("a"), new SparseVector().add(0, 3f));
+        counts.add(model.getClassId("b"), new SparseVector().add(1, 1f));
+        model.update(counts);
+
+        SparseVector x = new SparseVector().add(0, 1f);
+        // P(a) = 1/2, P(x0|a) = (3+1)/(3+4)
+        assertThat(model.logScores(x)[0]).isWithin(1e-6).of(Math.log(0.5) + Math.log(4.0 / 7.0));
+        assertThat(model.predict(x)).isEqualTo("a");
+        assertThat(model.predict(new SparseVector().add(1, 1f))).isEqualTo("b");
+
+        double[] probabilities = model.probabilities(x);
+        assertThat(probabilities[0] + probabilities[1]).isWithin(1e-9).of(1.0);
+    }
+}
@@ -1,12 +1,15 @@
 package com.jamesmcguigan.nlp.v2.config;
 
+import com.jamesmcguigan.nlp.v2.classifier.NaiveBayesClassifier;
 import com.jamesmcguigan.nlp.v2.extractor.Extractor;
 import com.jamesmcguigan.nlp.v2.extractor.Pipeline;
+import com.jamesmcguigan.nlp.v2.extractor.StatisticsExtractor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
 
 import static com.google.common.truth.Truth.assertThat;
@@ -63,4 +66,84 @@ class ControllerConfigTest {
     void can_passthrough_context() {
         assertThat(config.getExtractor().getContext()).isEqualTo(this.expectedContext);
     }
+
+    /**
+     * Shipped configs nest {@code context} and {@code datasets} under {@code configuration}, and use {@code None} for unset
+     */
+    @Test
+    void can_load_shipped_pipeline() {
+        ControllerConfig pipeline = YamlParser.getExtractorConfigs(
+            Paths.get("config/pipelines/elasticsearch/0_pipeline_elasticsearch.yaml")
+        ).get(0);
+        assertThat(pipeline.getExtractor()).isInstanceOf(Pipeline.class);
+        assertThat(pipeline.getContext()).isEqualTo("naivebayes");
+        assertThat(pipeline.getCondition()).isNull();
+        assertThat(pipeline.getDatasets()).hasSize(1);
+        assertThat(pipeline.getDatasets().get(0).getIndex()).isEqualTo("twitter");
+        assertThat(pipeline.getStages()).hasSize(3);
+        assertThat(pipeline.getStages().get(0).getTask()).isEqualTo(Task.train);
+        assertThat(pipeline.getStages().get(0).getConfigs().get(0).getExtractor()).isInstanceOf(NaiveBayesClassifier.class);
+        assertThat(pipeline.getStages().get(1).getTask()).isEqualTo(Task.statistics);
+        assertThat(pipeline.getStages().get(1).getConfigs().get(0).getExtractor()).isInstanceOf(StatisticsExtractor.class);
+        assertThat(pipeline.getStages().get(2).getTask()).isEqualTo(Task.enrich);
+        assertThat(pipeline.getStages().get(2).getConfigs().get(0).getExtractor()).isInstanceOf(NaiveBayesClassifier.class);
+        for( TaskStage stage : pipeline.getStages() ) {
+            for( ControllerConfig child : stage.getConfigs() ) {
+                assertThat(child.getContext()).isEqualTo("naivebayes");
+                assertThat(child.getDatasets()).hasSize(1);
+            }
+        }
+    }
+
+    @Test
+    void can_load_shipped_statistics() {
+        for( String path : List.of(
+            "config/pipelines/elasticsearch/2_statistics_elasticsearch.yml",
+            "config/pipelines/filesystem/2_statistics_filesystem.yaml"
+        )) {
+            ControllerConfig statistics = YamlParser.getExtractorConfigs(Paths.get(path)).get(0);
+            assertThat(statistics.getExtractor()).isInstanceOf(StatisticsExtractor.class);
+            assertThat(statistics.getTask()).isEqualTo(Task.statistics);
+            assertThat(statistics.getDatasets()).isNotEmpty();
+            assertThat(statistics.getDatasets().get(0).getLabels()).containsKey("target");
+        }
+        ControllerConfig filesystem = YamlParser.getExtractorConfigs(
+            Paths.get("config/pipelines/filesystem/2_statistics_filesystem.yaml")
+        ).get(0);
+        assertThat(filesystem.getDatasets()).hasSize(6);
+        for( DatasetConfig dataset : filesystem.getDatasets() ) {
+            assertThat(dataset.getType()).isEqualTo(DatasetType.csv);
+            assertThat(dataset.getFiles().train.toString()).startsWith("input/");
+        }
+    }
+
+    @Test
+    void can_load_shipped_tasks() {
+        Map<String, Task> tasks = Map.of(
+            "config/pipelines/elasticsearch/1_train_elasticsearch.yml", Task.train,
+            "config/pipelines/filesystem/1_train_filesystem.yaml",      Task.train
+        );
+        tasks.forEach((path, task) -> {
+            ControllerConfig config = YamlParser.getExtractorConfigs(Paths.get(path)).get(0);
+            assertThat(config.getExtractor()).isInstanceOf(NaiveBayesClassifier.class);
+            assertThat(config.getTask()).isEqualTo(task);
+            assertThat(config.getDatasets()).isNotEmpty();
+        });
+
+        Map<String, Task> pipelines = Map.of(
+            "config/pipelines/elasticsearch/3_enrich_elasticsearch.yml", Task.enrich,
+            "config/pipelines/filesystem/3_csv_export_filesystem.yaml",  Task.csv
+        );
+        pipelines.forEach((path, task) -> {
+            ControllerConfig pipeline = YamlParser.getExtractorConfigs(Paths.get(path)).get(0);
+            assertThat(pipeline.getExtractor()).isInstanceOf(Pipeline.class);
+            assertThat(pipeline.getStages()).hasSize(2);
+            assertThat(pipeline.getStages().get(0).getTask()).isEqualTo(Task.train);
+            assertThat(pipeline.getStages().get(1).getTask()).isEqualTo(task);
+            for( TaskStage stage : pipeline.getStages() ) {
+                assertThat(stage.getConfigs().get(0).getExtractor()).isInstanceOf(NaiveBayesClassifier.class);
+                assertThat(stage.getConfigs().get(0).getDatasets()).isNotEmpty();
+            }
+        });
+    }
 }
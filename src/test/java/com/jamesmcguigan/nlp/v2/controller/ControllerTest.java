@@ -0,0 +1,88 @@
+package com.jamesmcguigan.nlp.v2.controller;
+
+import com.jamesmcguigan.nlp.v2.config.ControllerConfig;
+import com.jamesmcguigan.nlp.v2.config.Task;
+import com.jamesmcguigan.nlp.v2.config.YamlParser;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+import com.jamesmcguigan.nlp.v2.datasets.MulticastDataset;
+import com.jamesmcguigan.nlp.v2.extractor.AbstractExtractor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class ControllerTest {
+    private static final List<String>        calls      = new CopyOnWriteArrayList<>();
+    private static final Set<Object>         extractors = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    private static final Set<Object>         datasets   = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    private static final Set<Object>         views      = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    public static class FirstExtractor extends AbstractExtractor {
+        public FirstExtractor(ControllerConfig parentConfig) { super(parentConfig); }
+        @Override
+        public void run(Task task, List<Dataset> input) {
+            calls.add("first:" + task);
+            extractors.add(this);
+            record(input);
+        }
+    }
+    public static class SecondExtractor extends FirstExtractor {
+        public SecondExtractor(ControllerConfig parentConfig) { super(parentConfig); }
+        @Override
+        public void run(Task task, List<Dataset> input) {
+            calls.add("second:" + task);
+            extractors.add(this);
+            record(input);
+        }
+    }
+
+    private static void record(List<Dataset> input) {
+        for( Dataset dataset : input ) {
+            if( dataset instanceof MulticastDataset ) { views.add(dataset); }
+            datasets.add(dataset instanceof MulticastDataset ? ((MulticastDataset) dataset).getSource() : dataset);
+        }
+    }
+
+    private ControllerConfig config;
+
+    @BeforeEach
+    void setUp() {
+        calls.clear();
+        extractors.clear();
+        datasets.clear();
+        views.clear();
+        config = YamlParser.getExtractorConfigs(Paths.get("src/test/resources/PipelineConfigTest.yaml")).get(0);
+    }
+
+
+    @Test
+    void can_parse_stages() {
+        assertThat(config.getStages()).hasSize(2);
+        assertThat(config.getStages().get(0).getTask()).isEqualTo(Task.train);
+        assertThat(config.getStages().get(1).getConfigs().get(0).getTask()).isEqualTo(Task.enrich);
+        assertThat(config.getStages().get(1).getConfigs().get(0).getContext()).isEqualTo("test");
+    }
+
+    @Test
+    void runs_stages_in_order() {
+        Map<String, Duration> timings = new Controller(config).run();
+        assertThat(timings).hasSize(4);
+        assertThat(calls.indexOf("first:train")).isLessThan(calls.indexOf("first:enrich"));
+        assertThat(calls.indexOf("second:train")).isLessThan(calls.indexOf("second:enrich"));
+    }
+
+    @Test
+    void shares_extractors_and_datasets() {
+        new Controller(config).run();
+        assertThat(calls).hasSize(4);
+        assertThat(extractors).hasSize(2);
+        assertThat(datasets).hasSize(1);
+        assertThat(views).hasSize(4);  // one per task, as both extractors in each stage read the same dataset
+    }
+}
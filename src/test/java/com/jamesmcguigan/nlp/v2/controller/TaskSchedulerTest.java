@@ -0,0 +1,68 @@
+package com.jamesmcguigan.nlp.v2.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class TaskSchedulerTest {
+
+    @Test
+    void independentTasksRunConcurrently() {
+        CountDownLatch latch = new CountDownLatch(2);
+        Runnable task = () -> {
+            latch.countDown();
+            try {
+                // deadlocks if tasks are run sequentially
+                assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        try( TaskScheduler scheduler = new TaskScheduler(2) ) {
+            scheduler.add("a", task, Collections.emptyList());
+            scheduler.add("b", task, Collections.emptyList());
+            Map<String, Duration> timings = scheduler.run();
+            assertThat(timings.keySet()).containsExactly("a", "b").inOrder();
+        }
+    }
+
+    @Test
+    void dependenciesRunFirst() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        try( TaskScheduler scheduler = new TaskScheduler(4) ) {
+            var train1 = scheduler.add("train1", () -> order.add("train1"), Collections.emptyList());
+            var train2 = scheduler.add("train2", () -> order.add("train2"), Collections.emptyList());
+            scheduler.add("enrich", () -> order.add("enrich"), List.of(train1, train2));
+            scheduler.run();
+        }
+        assertThat(order).hasSize(3);
+        assertThat(order.get(2)).isEqualTo("enrich");
+    }
+
+    @Test
+    void failureSkipsDependents() {
+        AtomicBoolean ran = new AtomicBoolean(false);
+        AtomicBoolean independent = new AtomicBoolean(false);
+        try( TaskScheduler scheduler = new TaskScheduler(2) ) {
+            var train = scheduler.add("train", () -> { throw new IllegalStateException("boom"); }, Collections.emptyList());
+            scheduler.add("enrich", () -> ran.set(true), List.of(train));
+            scheduler.add("other",  () -> independent.set(true), Collections.emptyList());
+            var exception = assertThrows(CompletionException.class, scheduler::run);
+            assertThat(exception).hasCauseThat().isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(ran.get()).isFalse();
+        assertThat(independent.get()).isTrue();
+    }
+}
@@ -0,0 +1,85 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import com.jamesmcguigan.nlp.v2.config.YamlParser;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+
+/**
+ * Writes a csv dataset and its config yaml into a test directory, usually a {@code @TempDir}
+ * <pre>
+ *     DatasetConfig config = new CSVFixture(directory, "test")
+ *         .train("id,text,target\n1,fire,1\n")
+ *         .field("text",   DatasetField.text)
+ *         .label("target", DatasetField.binary)
+ *         .toConfig();
+ * </pre>
+ * The test file defaults to the train file, and the output file to {@code {directory}/output.csv}
+ */
+public final class CSVFixture {
+    private final Path   directory;
+    private final String name;
+    private String train = "id\n";
+    @Nullable private String test;
+    private Path output;
+    private final Map<String, DatasetField> fields = new LinkedHashMap<>();
+    private final Map<String, DatasetField> labels = new LinkedHashMap<>();
+
+    public CSVFixture(Path directory, String name) {
+        this.directory = directory;
+        this.name      = name;
+        this.output    = directory.resolve("output.csv");
+    }
+
+    public CSVFixture train(String csv)  { this.train  = csv;    return this; }
+    public CSVFixture test(String csv)   { this.test   = csv;    return this; }
+    public CSVFixture output(Path path)  { this.output = path;   return this; }
+    public CSVFixture field(String field, DatasetField type) { this.fields.put(field, type); return this; }
+    public CSVFixture label(String field, DatasetField type) { this.labels.put(field, type); return this; }
+
+    public Path getTrainPath() { return this.directory.resolve("train.csv"); }
+    public Path getTestPath()  { return ( this.test != null ) ? this.directory.resolve("test.csv") : this.getTrainPath(); }
+    public Path getYamlPath()  { return this.directory.resolve(this.name + ".yaml"); }
+
+
+    /**
+     * Writes the csv files and config yaml, replacing any previous versions
+     * @return path of the config yaml
+     */
+    public Path write() throws IOException {
+        Files.writeString(this.getTrainPath(), this.train);
+        if( this.test != null ) { Files.writeString(this.getTestPath(), this.test); }
+        Files.writeString(this.getYamlPath(), """
+            %s:
+                type: csv
+                files:
+                    train:  %s
+                    test:   %s
+                    output: %s
+                fields: %s
+                labels: %s
+            """.formatted(this.name, this.getTrainPath(), this.getTestPath(), this.output,
+                toYaml(this.fields), toYaml(this.labels)
+        ));
+        return this.getYamlPath();
+    }
+
+    public DatasetConfig toConfig() throws IOException {
+        return YamlParser.getDatasetConfigs(this.write()).get(0);
+    }
+
+    private static String toYaml(Map<String, DatasetField> types) {
+        return types.entrySet().stream()
+            .map(entry -> entry.getKey() + ": " + entry.getValue())
+            .collect(Collectors.joining(", ", "{ ", " }"))
+        ;
+    }
+}
@@ -0,0 +1,88 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class CategoryDictionariesTest {
+    @TempDir
+    Path directory;
+    private DatasetConfig config;
+    private CategoryDictionaries dictionaries;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new CSVFixture(directory, "dictionary-test")
+            .train("id,keyword,text,cuisine\n1,fire,hot,greek\n2,flood,wet,thai\n3,fire,,greek\n")
+            .field("keyword",     DatasetField.categorical)
+            .field("text",        DatasetField.text)
+            .field("ingredients", DatasetField.list_categorical)
+            .label("cuisine",     DatasetField.categorical)
+            .toConfig()
+        ;
+        dictionaries = new CategoryDictionaries(config);
+    }
+
+    @Test
+    void encodedFields() {
+        assertThat(dictionaries.getFields()).containsExactly("keyword", "ingredients", "cuisine");
+        assertThat(dictionaries.isEncoded("text")).isFalse();
+    }
+
+    @Test
+    void encodeDecodeMap() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("keyword",     "fire");
+        data.put("text",        "hot");
+        data.put("ingredients", Arrays.asList("salt", "pepper", "salt"));
+        dictionaries.encode(data);
+
+        assertThat(data.get("keyword")).isEqualTo(0);
+        assertThat(data.get("text")).isEqualTo("hot");
+        assertThat((int[]) data.get("ingredients")).asList().containsExactly(0, 1, 0).inOrder();
+
+        DataRow row = new DataRow(data, config, dictionaries);
+        assertThat(row.getCategoryId("keyword")).isEqualTo(0);
+        assertThat(row.getDecoded("keyword")).isEqualTo("fire");
+        assertThat(row.getDecoded("ingredients")).isEqualTo(Arrays.asList("salt", "pepper", "salt"));
+        assertThat(row.getDecoded("text")).isEqualTo("hot");
+    }
+
+    @Test
+    void encodedInstancesAreShared() {
+        for( int i = 0; i < 200; i++ ) { dictionaries.encode("keyword", "category-" + i); }  // beyond the Integer cache
+        Object first  = dictionaries.encode("keyword", "category-199");
+        Object second = dictionaries.encode("keyword", "category-199");
+        assertThat(first).isEqualTo(199);
+        assertThat(second).isSameInstanceAs(first);
+    }
+
+    @Test
+    void csvRowsAreEncodedDuringIngestion() {
+        CSVDataset dataset = new CSVDataset(config, "");
+        List<DataRow> rows;
+        try( Stream<DataRow> stream = dataset.getTrainStream() ) {
+            rows = stream.collect(Collectors.toList());
+        }
+        assertThat(rows.stream().map(row -> row.get("keyword")).collect(Collectors.toList()))
+            .containsExactly(0, 1, 0).inOrder();
+        assertThat(rows.stream().map(row -> row.getDecoded("cuisine")).collect(Collectors.toList()))
+            .containsExactly("greek", "thai", "greek").inOrder();
+        assertThat(rows.get(0).get("text")).isEqualTo("hot");
+        assertThat(dataset.getDictionary("keyword").getValues()).containsExactly("fire", "flood").inOrder();
+    }
+}
@@ -0,0 +1,128 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import com.jamesmcguigan.nlp.v2.config.YamlParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class DataBatchTest {
+    @TempDir
+    Path directory;
+    private DatasetConfig config;
+    private CSVDataset dataset;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new CSVFixture(directory, "databatch-test")
+            .train("""
+                id,keyword,text,score,count,target
+                1,fire,"hello, world",0.5,3,1
+                2,flood,goodbye,,4,0
+                3,fire,again,1.5,x,
+                """.stripIndent())
+            .field("keyword", DatasetField.categorical)
+            .field("text",    DatasetField.text)
+            .field("score",   DatasetField.numeric)
+            .field("count",   DatasetField.integer)
+            .label("target",  DatasetField.binary)
+            .toConfig()
+        ;
+        dataset = new CSVDataset(config, "");
+    }
+
+    @Test
+    void typedColumns() {
+        List<DataBatch> batches;
+        try( Stream<DataBatch> stream = dataset.getTrainBatches(10) ) {
+            batches = stream.collect(Collectors.toList());
+        }
+        assertThat(batches).hasSize(1);
+        DataBatch batch = batches.get(0);
+
+        assertThat(batch.size()).isEqualTo(3);
+        assertThat(batch.getIds()).asList().containsExactly("1", "2", "3").inOrder();
+        assertThat(batch.getType("keyword")).isEqualTo(DatasetField.categorical);
+        assertThat(batch.getText("text")).asList().containsExactly("hello, world", "goodbye", "again").inOrder();
+        assertThat(batch.getCategorical("keyword")).asList().containsExactly(0, 1, 0).inOrder();
+        assertThat(dataset.getDictionary("keyword").decode(1)).isEqualTo("flood");
+
+        double[] score = batch.getNumeric("score");
+        assertThat(score[0]).isEqualTo(0.5);
+        assertThat(Double.isNaN(score[1])).isTrue();
+        assertThat(batch.getMissing("score").get(1)).isTrue();
+
+        assertThat(batch.getInteger("count")[1]).isEqualTo(4L);
+        assertThat(batch.getMissing("count").get(2)).isTrue();
+
+        assertThat(batch.getBinary("target").get(0)).isTrue();
+        assertThat(batch.getBinary("target").get(1)).isFalse();
+        assertThat(batch.getMissing("target").get(2)).isTrue();
+
+        assertThrows(IllegalArgumentException.class, () -> batch.getNumeric("text"));
+        assertThrows(IllegalArgumentException.class, () -> batch.getText("unknown"));
+    }
+
+    @Test
+    void batchSize() {
+        try( Stream<DataBatch> stream = dataset.getTrainBatches(2) ) {
+            List<Integer> sizes = stream.map(DataBatch::size).collect(Collectors.toList());
+            assertThat(sizes).containsExactly(2, 1).inOrder();
+        }
+        assertThrows(IllegalArgumentException.class, () -> dataset.getTrainBatches(0));
+    }
+
+    @Test
+    void categoryIdsAreSharedBetweenBatches() {
+        try( Stream<DataBatch> stream = dataset.getTrainBatches(1) ) {
+            List<Integer> ids = stream
+                .map(batch -> batch.getCategorical("keyword")[0])
+                .collect(Collectors.toList())
+            ;
+            assertThat(ids).containsExactly(0, 1, 0).inOrder();
+        }
+    }
+
+    @Test
+    void listCategorical() {
+        String yaml = """
+            list-test:
+                type:  elasticsearch
+                index: whats-cooking
+                fields:
+                    ingredients: list_categorical
+                labels:
+                    cuisine: categorical
+            """;
+        DatasetConfig listConfig = YamlParser.getDatasetConfigs(yaml).get(0);
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", "1");
+        data.put("ingredients", Arrays.asList("salt", "pepper", "salt"));
+        data.put("cuisine", "greek");
+
+        CategoryDictionary ingredients = new CategoryDictionary("ingredients");
+        CategoryDictionary cuisine     = new CategoryDictionary("cuisine");
+        DataBatch batch = new DataBatch(
+            List.of(new DataRow(data, listConfig)),
+            listConfig,
+            field -> field.equals("cuisine") ? cuisine : ingredients
+        );
+        assertThat(batch.getListCategorical("ingredients")[0]).asList().containsExactly(0, 1, 0).inOrder();
+        assertThat(batch.getCategorical("cuisine")[0]).isEqualTo(0);
+        assertThat(ingredients.getValues()).containsExactly("salt", "pepper").inOrder();
+    }
+}
@@ -0,0 +1,116 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class DatasetCacheTest {
+    @TempDir
+    Path directory;
+    private Path train;
+    private DatasetConfig config;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        CSVFixture fixture = new CSVFixture(directory, "cache-test")
+            .train("""
+                id,keyword,text,target
+                1,fire,"Forest fire near La Ronge",1
+                2,,"multi
+                line ünïcode",0
+                3,flood,,1
+                """.stripIndent())
+            .field("keyword", DatasetField.categorical)
+            .field("text",    DatasetField.text)
+            .label("target",  DatasetField.categorical)
+        ;
+        config = fixture.toConfig();
+        train  = fixture.getTrainPath();
+    }
+
+    private CachedDataset cached() {
+        return new CachedDataset(new CSVDataset(config, ""), config, "", new DatasetCache(directory.resolve("cache")));
+    }
+
+    private static List<Map<String, Object>> decoded(Stream<DataRow> stream) {
+        try( stream ) {
+            return stream
+                .map(row -> Map.of(
+                    "id",      String.valueOf(row.getDecoded("id")),
+                    "keyword", String.valueOf(row.getDecoded("keyword")),
+                    "text",    String.valueOf(row.getDecoded("text")),
+                    "target",  String.valueOf(row.getDecoded("target")),
+                    "tokens",  List.of(row.getTokens("text"))
+                ))
+                .collect(Collectors.toList())
+            ;
+        }
+    }
+
+
+    @Test
+    void cacheMatchesSource() {
+        var expected = decoded(new CSVDataset(config, "").getTrainStream());
+        var dataset  = cached();
+        var path     = new DatasetCache(directory.resolve("cache")).getPath(config, "", TestTrain.train);
+
+        assertThat(Files.exists(path)).isFalse();
+        assertThat(decoded(dataset.getTrainStream())).containsExactlyElementsIn(expected).inOrder();  // miss
+        assertThat(Files.exists(path)).isTrue();
+        assertThat(decoded(dataset.getTrainStream())).containsExactlyElementsIn(expected).inOrder();  // hit
+        assertThat(decoded(cached().getTrainStream())).containsExactlyElementsIn(expected).inOrder(); // new dictionaries
+    }
+
+    @Test
+    void categoryIdsAreSharedWithSource() {
+        var dataset = cached();
+        dataset.getTrainStream().close();
+        try( var rows = dataset.getTrainStream() ) {
+            DataRow row = rows.findFirst().orElseThrow();
+            assertThat(row.get("keyword")).isEqualTo(dataset.getDictionary("keyword").lookup("fire"));
+        }
+    }
+
+    @Test
+    void invalidatedWhenSourceChanges() throws IOException {
+        var dataset = cached();
+        assertThat(decoded(dataset.getTrainStream())).hasSize(3);
+
+        Files.writeString(train, "id,keyword,text,target\n9,storm,rain,0\n");
+        Files.setLastModifiedTime(train, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        var rows = decoded(dataset.getTrainStream());
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).get("keyword")).isEqualTo("storm");
+    }
+
+    @Test
+    void parallelReadAcrossBlocks() throws IOException {
+        int size = DatasetCache.BLOCK_SIZE * 3 + 7;
+        Files.writeString(train, "id,keyword,text,target\n" + IntStream.range(0, size)
+            .mapToObj(i -> i + ",k" + (i % 5) + ",text number " + i + "," + (i % 2) + "\n")
+            .collect(Collectors.joining())
+        );
+        var dataset = cached();
+        dataset.getTrainStream().close();
+        try( var rows = dataset.getTrainStream().parallel() ) {
+            List<String> ids = rows.map(row -> row.get("id").toString()).collect(Collectors.toList());
+            assertThat(ids).hasSize(size);
+            assertThat(ids.get(size - 1)).isEqualTo(String.valueOf(size - 1));
+        }
+    }
+}
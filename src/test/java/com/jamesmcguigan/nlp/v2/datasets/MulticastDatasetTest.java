@@ -0,0 +1,159 @@
+package com.jamesmcguigan.nlp.v2.datasets;
+
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class MulticastDatasetTest {
+    @TempDir
+    Path directory;
+    private DatasetConfig config;
+    private CountingDataset source;
+    private ExecutorService executor;
+
+    static class CountingDataset extends CSVDataset {
+        final AtomicInteger scans = new AtomicInteger();
+        CountingDataset(DatasetConfig config) { super(config, ""); }
+
+        @Override
+        public Stream<DataRow> getTrainStream() {
+            this.scans.incrementAndGet();
+            return super.getTrainStream();
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        config = new CSVFixture(directory, "multicast-test")
+            .train("id,text\n" + IntStream.range(0, 100)
+                .mapToObj(i -> i + ",text " + i + "\n")
+                .collect(Collectors.joining())
+            )
+            .field("text", DatasetField.text)
+            .toConfig()
+        ;
+        source   = new CountingDataset(config);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<String> getIds(Stream<DataRow> stream) {
+        try( stream ) {
+            return stream.map(row -> row.get("id").toString()).collect(Collectors.toList());
+        }
+    }
+
+    private static CompletableFuture<List<String>> readIds(Dataset dataset) {
+        return CompletableFuture.supplyAsync(() -> getIds(dataset.getTrainStream()));
+    }
+
+
+    @Test
+    void singleScanSharedByConsumers() throws Exception {
+        var views  = MulticastDataset.of(source, config, "", 3, 2);
+        var first  = readIds(views.get(0));
+        var second = readIds(views.get(1));
+        var third  = readIds(views.get(2));
+
+        List<String> expected = IntStream.range(0, 100).mapToObj(String::valueOf).collect(Collectors.toList());
+        assertThat(first.get(10, TimeUnit.SECONDS)).containsExactlyElementsIn(expected).inOrder();
+        assertThat(second.get(10, TimeUnit.SECONDS)).containsExactlyElementsIn(expected).inOrder();
+        assertThat(third.get(10, TimeUnit.SECONDS)).containsExactlyElementsIn(expected).inOrder();
+        assertThat(source.scans.get()).isEqualTo(1);
+        assertThat(views.get(0).getRoundCount()).isEqualTo(0);
+    }
+
+    @Test
+    void oppositeOrderConsumersDoNotDeadlock() throws Exception {
+        var views = MulticastDataset.of(source, config, "", 2, 2);
+        var first = CompletableFuture.supplyAsync(() -> List.of(
+            getIds(views.get(0).getTrainStream()),
+            getIds(views.get(0).getTestStream())
+        ), executor);
+        var second = CompletableFuture.supplyAsync(() -> List.of(
+            getIds(views.get(1).getTestStream()),
+            getIds(views.get(1).getTrainStream())
+        ), executor);
+
+        for( List<String> ids : first.get(10, TimeUnit.SECONDS) )  { assertThat(ids).hasSize(100); }
+        for( List<String> ids : second.get(10, TimeUnit.SECONDS) ) { assertThat(ids).hasSize(100); }
+        assertThat(views.get(0).getRoundCount()).isEqualTo(0);
+    }
+
+    @Test
+    void closedConsumersDoNotBlock() throws Exception {
+        var views = MulticastDataset.of(source, config, "", 2, 2);
+        views.get(1).close();
+        assertThat(readIds(views.get(0)).get(10, TimeUnit.SECONDS)).hasSize(100);
+        assertThat(views.get(0).getRoundCount()).isEqualTo(0);
+    }
+
+    /**
+     * The slow consumer throttles the scan, but a consumer that has not subscribed yet does not
+     */
+    @Test
+    void slowConsumerWithUnsubscribedPeer() throws Exception {
+        var views = MulticastDataset.of(source, config, "", 3, 2, 50);
+        var slow  = CompletableFuture.supplyAsync(() -> {
+            try( Stream<DataRow> stream = views.get(0).getTrainStream() ) {
+                return stream.peek(row -> sleep(2)).count();
+            }
+        }, executor);
+        var fast = readIds(views.get(1));
+
+        assertThat(fast.get(10, TimeUnit.SECONDS)).hasSize(100);
+        assertThat(slow.get(10, TimeUnit.SECONDS)).isEqualTo(100);
+        assertThat(source.scans.get()).isEqualTo(1);
+
+        assertThat(readIds(views.get(2)).get(10, TimeUnit.SECONDS)).hasSize(100);  // dropped, so scans the source
+        assertThat(source.scans.get()).isEqualTo(2);
+        assertThat(views.get(0).getRoundCount()).isEqualTo(0);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void secondReadStartsNewScan() throws Exception {
+        var views = MulticastDataset.of(source, config, "", 1, 2);
+        assertThat(readIds(views.get(0)).get(10, TimeUnit.SECONDS)).hasSize(100);
+        assertThat(readIds(views.get(0)).get(10, TimeUnit.SECONDS)).hasSize(100);
+        assertThat(source.scans.get()).isEqualTo(2);
+    }
+
+    @Test
+    void registrySharesInstances() {
+        try( var registry = new DatasetRegistry() ) {
+            assertThat(registry.get(config, "")).isSameInstanceAs(registry.get(config, ""));
+            assertThat(registry.multicast(config, "", 2).get(0).getSource()).isSameInstanceAs(registry.get(config, ""));
+            assertThat(registry.size()).isEqualTo(1);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.jamesmcguigan.nlp.v2.statistics;
+
+import com.jamesmcguigan.nlp.utils.data.IndexedVocabulary;
+import com.jamesmcguigan.nlp.utils.tokenize.NLPTokenizer;
+import com.jamesmcguigan.nlp.v2.config.DatasetConfig;
+import com.jamesmcguigan.nlp.v2.config.DatasetField;
+import com.jamesmcguigan.nlp.v2.datasets.CSVDataset;
+import com.jamesmcguigan.nlp.v2.datasets.CSVFixture;
+import com.jamesmcguigan.nlp.v2.datasets.DataRow;
+import com.jamesmcguigan.nlp.v2.datasets.Dataset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+
+class CorpusStatisticsTest {
+    private static final String[] WORDS = { "fire", "flood", "storm", "earthquake", "rescue", "smoke", "wind", "rain" };
+    private static final int ROWS = 2000;
+
+    @TempDir
+    Path directory;
+    private Dataset dataset;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DatasetConfig config = new CSVFixture(directory, "statistics-test")
+            .train("id,text,target\n" + IntStream.range(0, ROWS)
+                .mapToObj(i -> i + "," + WORDS[i % WORDS.length] + " " + WORDS[i % 3] + " " + WORDS[i % 3] + " word" + i + "," + (i % 4 == 0 ? 1 : 0) + "\n")
+                .collect(Collectors.joining())
+            )
+            .field("text",   DatasetField.text)
+            .label("target", DatasetField.binary)
+            .toConfig()
+        ;
+        dataset = new CSVDataset(config, "");
+    }
+
+    private Map<String, Integer> expectedDocFreqs() {
+        Map<String, Integer> docFreqs = new HashMap<>();
+        try( Stream<DataRow> rows = dataset.getTrainStream() ) {
+            rows.forEach(row -> new HashSet<>(Arrays.asList(row.getTokens("text")))
+                .forEach(token -> docFreqs.merge(token, 1, Integer::sum))
+            );
+        }
+        return docFreqs;
+    }
+
+
+    @Test
+    void countsDocumentFrequenciesAndClasses() {
+        CorpusStatistics statistics = CorpusStatistics.fromDataset(dataset, null, List.of("target"), 10_000);
+        Map<String, Integer> expected = expectedDocFreqs();
+
+        assertThat(statistics.getDocumentCount()).isEqualTo(ROWS);
+        assertThat(statistics.getVocabularySize()).isEqualTo(expected.size());
+        assertThat(statistics.getPruneError()).isEqualTo(0);
+        expected.forEach((term, docFreq) -> assertThat(statistics.getDocumentFrequency(term)).isEqualTo(docFreq));
+
+        String repeated = tokenize("fire");  // row 0: "fire fire fire word0"
+        assertThat(statistics.getTermFrequency(repeated)).isGreaterThan(statistics.getDocumentFrequency(repeated));
+        assertThat(statistics.getIDF(repeated)).isLessThan(statistics.getIDF("word1"));
+        assertThat(statistics.getVocabulary(2)).doesNotContain("word1");
+
+        IndexedVocabulary vocabulary = statistics.toVocabulary(2);
+        assertThat(vocabulary.size()).isEqualTo(statistics.getVocabulary(2).size());
+        assertThat(vocabulary.getTerm(0)).isEqualTo(statistics.getVocabulary().get(0));
+        assertThat(vocabulary.getCount(repeated)).isEqualTo(statistics.getDocumentFrequency(repeated));
+
+        assertThat(statistics.getClassCounts("target")).containsExactly("1", ROWS / 4, "0", ROWS - ROWS / 4);
+    }
+
+    @Test
+    void parallelMatchesSequential() {
+        CorpusStatistics parallel = CorpusStatistics.fromDataset(dataset, List.of("text"), List.of("target"), 10_000);
+        CorpusStatistics sequential;
+        try( Stream<DataRow> rows = dataset.getTrainStream() ) {
+            sequential = rows.sequential().collect(CorpusStatistics.collector(List.of("text"), List.of("target"), 10_000));
+        }
+        assertThat(parallel.getVocabulary()).containsExactlyElementsIn(sequential.getVocabulary()).inOrder();
+        for( String term : sequential.getVocabulary() ) {
+            assertThat(parallel.getDocumentFrequency(term)).isEqualTo(sequential.getDocumentFrequency(term));
+            assertThat(parallel.getTermFrequency(term)).isEqualTo(sequential.getTermFrequency(term));
+        }
+    }
+
+    @Test
+    void pruningBoundsVocabulary() {
+        CorpusStatistics statistics = CorpusStatistics.fromDataset(dataset, null, List.of(), 100);
+        assertThat(statistics.getVocabularySize()).isAtMost(100);
+        assertThat(statistics.getPruneError()).isGreaterThan(0);
+
+        // frequent terms survive pruning with exact counts, as they are never removed
+        Map<String, Integer> expected = expectedDocFreqs();
+        for( String word : WORDS ) {
+            String term = tokenize(word);
+            assertThat(statistics.contains(term)).isTrue();
+            assertThat(statistics.getDocumentFrequency(term)).isEqualTo(expected.get(term));
+        }
+    }
+
+    private static String tokenize(String word) {
+        return NLPTokenizer.getSharedTokenizer().tokenize(word)[0];
+    }
+}